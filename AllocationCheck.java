@@ -0,0 +1,139 @@
+import java.lang.management.ManagementFactory;
+
+/**
+ * This is a class that checks that finding and making moves on the
+ * solitaire boards allocates nothing: <code>isLegal</code> on every pair
+ * and triple of positions, <code>anotherPlayIsPossible</code>, and a game
+ * played out with <code>playIfPossible</code>.  It plays some games to let
+ * the compiler settle, then counts the bytes the calling thread allocates
+ * during each game, dealing excluded, and exits with status 1 if any
+ * board allocated anything.
+ */
+public class AllocationCheck {
+
+	/**
+	 * The number of games to measure on each board when none is given.
+	 */
+	private static final int GAMES_TO_PLAY = 20000;
+
+	/**
+	 * The number of games to play on each board before measuring.
+	 */
+	private static final int WARMUP_GAMES = 20000;
+
+	/**
+	 * The thread bean that reports the bytes a thread has allocated.
+	 */
+	private static final com.sun.management.ThreadMXBean THREADS =
+		(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	/**
+	 * Receives the results of the calls measured,
+	 * so that the compiler cannot leave them out.
+	 */
+	private static long sink;
+
+
+	/**
+	 * Checks Elevens, Thirteens and Pairs and prints the bytes allocated.
+	 * @param args is optional: the number of games to measure on each board.
+	 */
+	public static void main(String[] args) {
+		int games = GAMES_TO_PLAY;
+		if (args.length > 0) {
+			games = Integer.parseInt(args[0]);
+		}
+		if (!THREADS.isThreadAllocatedMemorySupported()) {
+			System.out.println("This JVM cannot count the bytes a thread allocates");
+			return;
+		}
+		THREADS.setThreadAllocatedMemoryEnabled(true);
+		boolean clean = check("Elevens", new ElevensBoard(1), games);
+		clean &= check("Thirteens", new ThirteensBoard(2), games);
+		clean &= check("Pairs", new PairsBoard(3), games);
+		System.out.println("Checksum: " + sink);
+		if (!clean) {
+			System.out.println("FAILED: move detection allocated");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Warms up and then measures one board.  The warm-up runs the same
+	 * measuring loop, so that no part of it is still being compiled
+	 * while it measures.
+	 * @param name the name of the game, for the report.
+	 * @param board the board to play on.
+	 * @param games the number of games to measure.
+	 * @return true if nothing was allocated; false otherwise.
+	 */
+	private static boolean check(String name, Board board, int games) {
+		int[] selected = new int[3];
+		measure(board, WARMUP_GAMES, selected);
+		long bytes = measure(board, games, selected);
+		System.out.println(String.format("%-10s %d games, %d bytes allocated",
+			name + ":", games, bytes));
+		return bytes == 0;
+	}
+
+	/**
+	 * Plays games on a board and counts the bytes allocated while
+	 * finding and making moves, leaving out the dealing and the
+	 * bytes the count itself takes.
+	 * @param board the board to play on.
+	 * @param games the number of games to play.
+	 * @param selected scratch space for a selection of up to three cards.
+	 * @return the number of bytes allocated.
+	 */
+	private static long measure(Board board, int games, int[] selected) {
+		long start = allocatedBytes();
+		long overhead = allocatedBytes() - start;
+		long bytes = 0;
+		for (int g = 0; g < games; g++) {
+			board.newGame();
+			long before = allocatedBytes();
+			sink += playGame(board, selected);
+			bytes += allocatedBytes() - before - overhead;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Tries every pair and triple of positions on a freshly dealt board,
+	 * then plays the game out.
+	 * @param board the board, just dealt.
+	 * @param selected scratch space for a selection of up to three cards.
+	 * @return a count of the legal selections and moves made.
+	 */
+	private static long playGame(Board board, int[] selected) {
+		long found = 0;
+		int n = board.size();
+		for (int i = 0; i < n; i++) {
+			selected[0] = i;
+			for (int j = i + 1; j < n; j++) {
+				selected[1] = j;
+				if (board.isLegal(selected, 2)) {
+					found++;
+				}
+				for (int k = j + 1; k < n; k++) {
+					selected[2] = k;
+					if (board.isLegal(selected, 3)) {
+						found++;
+					}
+				}
+			}
+		}
+		while (board.anotherPlayIsPossible() && board.playIfPossible()) {
+			found++;
+		}
+		return found;
+	}
+
+	/**
+	 * Reads the number of bytes the calling thread has allocated.
+	 * @return the bytes allocated so far.
+	 */
+	private static long allocatedBytes() {
+		return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
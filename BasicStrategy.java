@@ -0,0 +1,124 @@
+/**
+ * A <code>BlackJackStrategy</code> that plays according to the standard
+ * basic-strategy tables for a multi-deck game in which the dealer stands
+ * on soft 17, doubling after a split is allowed, and late surrender is
+ * offered.  The tables are held as strings with one column per dealer up
+ * card, 2 through 10 followed by the ace, where H means hit, S stay,
+ * D double (or hit if doubling is not allowed), E double (or stay),
+ * R surrender (or hit) and P split.
+ */
+public class BasicStrategy implements BlackJackStrategy {
+
+	/**
+	 * The plays for hard hands worth 9 through 16.
+	 * Hard hands below 9 always hit, and those above 16 always stay.
+	 */
+	private static final String[] HARD = {
+		"HDDDDHHHHH", // 9
+		"DDDDDDDDHH", // 10
+		"DDDDDDDDDH", // 11
+		"HHSSSHHHHH", // 12
+		"SSSSSHHHHH", // 13
+		"SSSSSHHHHH", // 14
+		"SSSSSHHHRH", // 15
+		"SSSSSHHRRR", // 16
+	};
+
+	/**
+	 * The plays for soft hands worth 13 through 19.
+	 * Soft hands below 13 always hit, and those above 19 always stay.
+	 */
+	private static final String[] SOFT = {
+		"HHHDDHHHHH", // 13
+		"HHHDDHHHHH", // 14
+		"HHDDDHHHHH", // 15
+		"HHDDDHHHHH", // 16
+		"HDDDDHHHHH", // 17
+		"SEEEESSHHH", // 18
+		"SSSSSSSSSS", // 19
+	};
+
+	/**
+	 * The pairs to split, by the point value of the pair, ace first.
+	 * A pair that is not split is played as the hand it makes.
+	 */
+	private static final String[] PAIRS = {
+		"PPPPPPPPPP", // aces
+		"PPPPPP----", // 2s
+		"PPPPPP----", // 3s
+		"---PP-----", // 4s
+		"----------", // 5s
+		"PPPPP-----", // 6s
+		"PPPPPP----", // 7s
+		"PPPPPPPPPP", // 8s
+		"PPPPP-PP--", // 9s
+		"----------", // 10s
+	};
+
+	/**
+	 * Decides the play from the basic-strategy tables.
+	 * @param hand the hand being played.
+	 * @param dealerUpCard the point value of the dealer's face-up card;
+	 *                     1 for an ace.
+	 * @param canDouble true if the hand can be doubled.
+	 * @param canSplit true if the hand can be split.
+	 * @param canSurrender true if the player can surrender.
+	 * @return the play.
+	 */
+	@Override
+	public int play(BlackJackHand hand, int dealerUpCard, boolean canDouble,
+			boolean canSplit, boolean canSurrender) {
+		int column = dealerUpCard == 1 ? 9 : dealerUpCard - 2;
+		if (canSplit) {
+			int pair = CardCode.pointValue(hand.codeAt(0));
+			if (PAIRS[pair - 1].charAt(column) == 'P') {
+				return SPLIT;
+			}
+		}
+		int handValue = hand.value();
+		char play;
+		if (hand.isSoft()) {
+			if (handValue < 13) {
+				play = 'H';
+			} else if (handValue > 19) {
+				play = 'S';
+			} else {
+				play = SOFT[handValue - 13].charAt(column);
+			}
+		} else if (handValue < 9) {
+			play = 'H';
+		} else if (handValue > 16) {
+			play = 'S';
+		} else {
+			play = HARD[handValue - 9].charAt(column);
+		}
+		if (play == 'D') {
+			return canDouble ? DOUBLE : HIT;
+		} else if (play == 'E') {
+			return canDouble ? DOUBLE : STAND;
+		} else if (play == 'R') {
+			return canSurrender ? SURRENDER : HIT;
+		}
+		return play == 'S' ? STAND : HIT;
+	}
+
+	/**
+	 * Never takes insurance, which loses money off the top of the shoe.
+	 * @param hand the player's hand as dealt.
+	 * @param counter the count of the shoe, or null.
+	 * @return false.
+	 */
+	@Override
+	public boolean takesInsurance(BlackJackHand hand, CardCounter counter) {
+		return false;
+	}
+
+	/**
+	 * Generates and returns a string representation of this strategy.
+	 * @return the name of this strategy.
+	 */
+	@Override
+	public String toString() {
+		return "basic strategy";
+	}
+}
@@ -1,3 +1,4 @@
+import java.io.IOException;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -11,42 +12,111 @@ public class BlackJackBoard {
     /**
      * The ranks of the cards for this game to be sent to the deck.
      */
-    private static final String[] RANKS = 
+    static final String[] RANKS = 
         {"ace", "2", "3", "4", "5", "6", "7", "8", "9", "10", "jack", "queen", "king"};
 
     /**
      * The suits of the cards for this game to be sent to the deck.
      */
-    private static final String[] SUITS =
+    static final String[] SUITS =
         {"spades", "hearts", "diamonds", "clubs"};
 
     /**
      * The values of the cards for this game to be sent to the deck.
      */
-    private static final int[] POINT_VALUES =
+    static final int[] POINT_VALUES =
         {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 10, 10, 10};
 
     /**
      * Flag used to control debugging print statements.
      */
-    private static final boolean I_AM_DEBUGGING = true;
+    private static final boolean I_AM_DEBUGGING = false;
 
     /**
-     * my cards on this board.
+     * The dealer draws until the dealer's hand is worth at least this much.
      */
-    private Card[] myCards;
-    int myCardNumber = 0;
+    public static final int DEALER_STANDS_AT = 17;
 
     /**
-      * my cards on this board.
+     * The fraction of the shoe dealt before it is reshuffled,
+     * unless another is given.
+     */
+    public static final double DEFAULT_PENETRATION = 0.75;
+
+    /**
+     * The most hands a player can split into.
+     */
+    public static final int MAX_HANDS = 4;
+
+    /**
+     * my hands on this board, all made when the board is; only the
+     * first is played unless the player splits.
+     */
+    private BlackJackHand[] myHands;
+
+    /**
+     * The number of my hands in play.
+     */
+    private int handCount;
+
+    /**
+     * The index of the hand being played.
+     */
+    private int current;
+
+    /**
+     * The bet on each of my hands, in bets: 1, or 2 once doubled.
+     */
+    private int[] stakes;
+
+    /**
+     * True if a pair of aces was split this round;
+     * split aces take one card each.
+     */
+    private boolean splitAces;
+
+    /**
+     * True if the player took insurance this round.
+     */
+    private boolean insured;
+
+    /**
+     * True if the player surrendered this round.
+     */
+    private boolean surrendered;
+
+    /**
+     * my cards on this board: the hand being played.
+     */
+    private BlackJackHand myHand;
+
+    /**
+      * dealer's cards on this board.
     */
-   private Card[] dealerCards;
-   int dealerCardNumber = 0;
+   private BlackJackHand dealerHand;
 
     /**
-     * The deck of cards being used to play the current game.
+     * The shoe of cards being used to play the current game.
     */
-    private Deck deck;
+    private Shoe shoe;
+
+    /**
+     * The positions of my hand that have changed since the display
+     * last asked for them.
+     */
+    private SlotChanges myChanges;
+
+    /**
+     * The positions of the dealer's hand that have changed since the
+     * display last asked for them.
+     */
+    private SlotChanges dealerChanges;
+
+    /**
+     * Scratch space that receives the four cards dealt
+     * at the start of a game.
+     */
+    private int[] openingCards = new int[4];
 
     /**
      * Creates a new <code>ElevensBoard</code> instance.
@@ -55,6 +125,31 @@ public class BlackJackBoard {
         this(cardSize, RANKS, SUITS, POINT_VALUES);
      }
 
+    /**
+     * Creates a new <code>BlackJackBoard</code> instance whose deck
+     * shuffles are reproducible from the given seed.
+     * @param cardSize the number of cards each hand can hold
+     * @param seed the seed for the deck's random number generator
+     */
+     public BlackJackBoard (int cardSize, long seed)  {
+        this(cardSize, 1, DEFAULT_PENETRATION, false, seed);
+     }
+
+    /**
+     * Creates a new <code>BlackJackBoard</code> instance dealt from
+     * a multi-deck shoe whose shuffles are reproducible from the given seed.
+     * @param cardSize the number of cards each hand can hold
+     * @param decks the number of decks in the shoe, from 1 to 8
+     * @param penetration the fraction of the shoe dealt before it is reshuffled
+     * @param continuousShuffle true to reshuffle the shoe before every game
+     * @param seed the seed for the shoe's random number generator
+     */
+     public BlackJackBoard (int cardSize, int decks, double penetration,
+             boolean continuousShuffle, long seed)  {
+        this(cardSize, new Shoe(RANKS, SUITS, POINT_VALUES, decks, penetration,
+            continuousShuffle, new XoroshiroRandom(seed)));
+     }
+
     /**
      * Creates a new <code>Board</code> instance.
      * @param size the number of cards in the board
@@ -64,21 +159,65 @@ public class BlackJackBoard {
      *                    the deck
      */
     public BlackJackBoard(int size, String[] ranks, String[] suits, int[] pointValues) {
-        myCards = new Card[size];
-        dealerCards = new Card[size];
-        deck = new Deck(ranks, suits, pointValues);
+        this(size, new Shoe(ranks, suits, pointValues, 1, DEFAULT_PENETRATION,
+            false, new XoroshiroRandom()));
+    }
+
+    /**
+     * Creates a new <code>BlackJackBoard</code> instance that plays with
+     * the given shoe.
+     * @param size the number of cards each hand can hold
+     * @param gameShoe the shoe of cards used to play
+     */
+    private BlackJackBoard(int size, Shoe gameShoe) {
+        if (size < 2) {
+            throw new IllegalArgumentException("A hand must hold at least 2 cards");
+        }
+        myHands = new BlackJackHand[MAX_HANDS];
+        for (int h = 0; h < MAX_HANDS; h++) {
+            myHands[h] = new BlackJackHand(size);
+        }
+        stakes = new int[MAX_HANDS];
+        handCount = 1;
+        myHand = myHands[0];
+        dealerHand = new BlackJackHand(size);
+        myChanges = new SlotChanges(size);
+        dealerChanges = new SlotChanges(size);
+        shoe = gameShoe;
         if (I_AM_DEBUGGING) {
-            System.out.println(deck);
+            try {
+                shoe.appendTo(System.out);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
             System.out.println("----------");
         }
         dealMyCards();
     }
 
     /**
-     * Start a new game by shuffling the deck and
-     * dealing some cards to this board.
+     * Start a new game by dealing some cards to this board.
+     * The shoe is reshuffled first if the cut card has been reached
+     * (or before every game in continuous-shuffle mode).
      */
     public void newGame() {
+       startRound();
+       dealHands();
+    }
+
+    /**
+     * Starts a new round without dealing it, reshuffling the shoe if it
+     * is due, so that the count can be read as it stands when bets are
+     * placed.  <code>dealHands</code> deals the round.
+     */
+    public void startRound() {
+       shoe.startRound();
+    }
+
+    /**
+     * Deals the opening cards of a round begun by <code>startRound</code>.
+     */
+    public void dealHands() {
        dealMyCards();
     }
 
@@ -90,11 +229,242 @@ public class BlackJackBoard {
      */
     
     public int getMyCardSize(){
-        return myCardNumber;
+        return myHand.size();
     }
 
     public int getDealerCardSize(){
-        return dealerCardNumber;
+        return dealerHand.size();
+    }
+
+    /**
+     * Accesses my hand being played, e.g. to read its hard total or
+     * number of aces.
+     * @return my hand being played.
+     */
+    public BlackJackHand getMyHand(){
+        return myHand;
+    }
+
+    /**
+     * Accesses the number of hands I am playing: 1, or more after splitting.
+     * @return the number of my hands.
+     */
+    public int getHandCount(){
+        return handCount;
+    }
+
+    /**
+     * Accesses the index of the hand being played.
+     * @return the index of the hand, from 0.
+     */
+    public int getCurrentHand(){
+        return current;
+    }
+
+    /**
+     * Accesses one of my hands.
+     * @param h the index of the hand, from 0.
+     * @return the hand.
+     */
+    public BlackJackHand getHand(int h){
+        if (h < 0 || h >= handCount) {
+            throw new IndexOutOfBoundsException("Hand " + h + " of " + handCount);
+        }
+        return myHands[h];
+    }
+
+    /**
+     * Accesses the bet on one of my hands.
+     * @param h the index of the hand, from 0.
+     * @return the bet, in bets: 1, or 2 if the hand was doubled.
+     */
+    public int getStake(int h){
+        if (h < 0 || h >= handCount) {
+            throw new IndexOutOfBoundsException("Hand " + h + " of " + handCount);
+        }
+        return stakes[h];
+    }
+
+    /**
+     * Determines if the hand being played can take another card: it is
+     * worth less than 21, was not doubled, and is not a split ace, and
+     * neither the dealer nor I have a blackjack (see
+     * <code>BlackJackRules</code>).
+     * @return true if the hand can be hit; false otherwise.
+     */
+    public boolean canHit(){
+        return BlackJackRules.canHit(isLive(), myHand.size(), myHand.capacity(),
+            myHand.value());
+    }
+
+    /**
+     * Determines if the hand being played can be doubled: it holds two
+     * cards, and is not a split ace.  Doubling after a split is allowed.
+     * @return true if the hand can be doubled; false otherwise.
+     */
+    public boolean canDouble(){
+        return BlackJackRules.canDouble(isLive(), myHand.size(), myHand.capacity());
+    }
+
+    /**
+     * Doubles the bet on the hand being played and deals it one more
+     * card, its last.
+     */
+    public void doubleDown(){
+        if (!canDouble()) {
+            throw new IllegalStateException("The hand cannot be doubled");
+        }
+        stakes[current] = 2;
+        dealToMyCard();
+    }
+
+    /**
+     * Determines if the hand being played can be split: it holds two
+     * cards of the same point value, I have fewer than
+     * <code>MAX_HANDS</code> hands, and aces have not been split.
+     * @return true if the hand can be split; false otherwise.
+     */
+    public boolean canSplit(){
+        return myHand.size() == 2 && BlackJackRules.canSplit(isLive(), handCount,
+            myHand.size(), myHand.codeAt(0), myHand.codeAt(1));
+    }
+
+    /**
+     * Splits the hand being played into two hands with a bet each, and
+     * deals the hand being played its second card.  The new hand is played
+     * last, and is dealt its second card when <code>nextHand</code>
+     * reaches it.  Split aces take just one more card each.
+     */
+    public void split(){
+        if (!canSplit()) {
+            throw new IllegalStateException("The hand cannot be split");
+        }
+        int moved = myHand.removeLast();
+        myChanges.mark(1);
+        BlackJackHand added = myHands[handCount];
+        added.clear();
+        added.add(moved);
+        stakes[handCount] = 1;
+        handCount++;
+        if (CardCode.pointValue(moved) == 1) {
+            splitAces = true;
+        }
+        dealToMyCard();
+    }
+
+    /**
+     * Moves on to the next of my hands once the hand being played is
+     * finished, dealing it its second card if it was split off.
+     * @return true if there was another hand to play; false if every
+     *         hand has been played.
+     */
+    public boolean nextHand(){
+        if (current + 1 >= handCount) {
+            return false;
+        }
+        myChanges.markAll();
+        current++;
+        myHand = myHands[current];
+        if (myHand.size() == 1) {
+            dealToMyCard();
+        }
+        return true;
+    }
+
+    /**
+     * Determines if insurance can be taken: the dealer shows an ace and
+     * I have not yet done anything with my first two cards.
+     * @return true if insurance can be taken; false otherwise.
+     */
+    public boolean canInsure(){
+        return BlackJackRules.canInsure(insured, surrendered, handCount,
+            myHand.size(), getDealerUpCardValue());
+    }
+
+    /**
+     * Takes insurance: a side bet of half a bet that the dealer has a
+     * blackjack, which pays 2 to 1.
+     */
+    public void insure(){
+        if (!canInsure()) {
+            throw new IllegalStateException("Insurance is not offered");
+        }
+        insured = true;
+    }
+
+    /**
+     * Determines if I can surrender: I have not yet done anything
+     * with my first two cards (late surrender, once the dealer has
+     * peeked and found no blackjack).
+     * @return true if I can surrender; false otherwise.
+     */
+    public boolean canSurrender(){
+        return BlackJackRules.canSurrender(isLive(), handCount, myHand.size());
+    }
+
+    /**
+     * Gives up the hand for half the bet back.
+     */
+    public void surrender(){
+        if (!canSurrender()) {
+            throw new IllegalStateException("The hand cannot be surrendered");
+        }
+        surrendered = true;
+    }
+
+    /**
+     * Finishes the round: plays out the dealer's hand if any of my hands
+     * still stands, and works out what the round won or lost.
+     * A blackjack pays 3 to 2, unless the dealer has one too, and is
+     * only a blackjack on the hand as dealt, not after a split.  If the
+     * dealer has a blackjack, I lose my original bet.  Insurance pays
+     * 2 to 1 and surrender loses half the bet.
+     * @return the net result of the round in half bets: positive
+     *         if I won, negative if I lost.
+     */
+    public int settle(){
+        boolean dealerNatural = dealerHand.isBlackjack();
+        int net = BlackJackRules.insurance(insured, dealerNatural);
+        int opening = BlackJackRules.settleOpening(dealerNatural, isNatural(),
+            surrendered);
+        if (opening != BlackJackRules.NOT_SETTLED) {
+            return net + opening;
+        }
+        boolean standing = false;
+        for (int h = 0; h < handCount; h++) {
+            standing |= !myHands[h].isBust();
+        }
+        int dealer = standing ? playDealerHand() : dealerHand.value();
+        for (int h = 0; h < handCount; h++) {
+            net += BlackJackRules.settleHand(myHands[h].value(), stakes[h], dealer);
+        }
+        return net;
+    }
+
+    /**
+     * Determines if the hand being played can still be played at all
+     * (see <code>BlackJackRules.isLive</code>).
+     * @return true if the hand can be played; false otherwise.
+     */
+    private boolean isLive(){
+        return BlackJackRules.isLive(dealerHand.isBlackjack(), isNatural(),
+            surrendered, splitAces, stakes[current]);
+    }
+
+    /**
+     * Determines if I was dealt a blackjack: a natural in my only hand.
+     * @return true if I have a blackjack; false otherwise.
+     */
+    private boolean isNatural(){
+        return handCount == 1 && myHand.isBlackjack();
+    }
+
+    /**
+     * Accesses the dealer's hand.
+     * @return the dealer's hand.
+     */
+    public BlackJackHand getDealerHand(){
+        return dealerHand;
     }
 
     /**
@@ -103,25 +473,56 @@ public class BlackJackBoard {
      * @param k the index of the card to be dealt.
      */
     public void dealToMyCard() {
-        if (myCardNumber >= size())
+        if (myHand.isFull())
             return;
-        myCards[myCardNumber] = deck.deal();
-        myCardNumber++;
+        myHand.add(shoe.deal());
+        myChanges.mark(myHand.size() - 1);
     }
 
     public void dealToDealerCard (){
-        if (dealerCardNumber >= size())
+        if (dealerHand.isFull())
             return;
-        dealerCards[dealerCardNumber] = deck.deal();
-        dealerCardNumber++;
+        dealerHand.add(shoe.deal());
+        dealerChanges.mark(dealerHand.size() - 1);
+    }
+
+    /**
+     * Copies out the positions of my hand that have changed since the
+     * last call, so that a display can redraw just those positions.
+     * @param slots receives the changed positions; it must be at least
+     *        <code>size()</code> long.
+     * @return the number of positions stored in slots.
+     */
+    public int drainMyChanges(int[] slots) {
+        return myChanges.drain(slots);
+    }
+
+    /**
+     * Copies out the positions of the dealer's hand that have changed
+     * since the last call.
+     * @param slots receives the changed positions; it must be at least
+     *        <code>size()</code> long.
+     * @return the number of positions stored in slots.
+     */
+    public int drainDealerChanges(int[] slots) {
+        return dealerChanges.drain(slots);
+    }
+
+    /**
+     * Marks every position of both hands as changed, e.g. before a
+     * display draws the board for the first time.
+     */
+    public void markAllChanged() {
+        myChanges.markAll();
+        dealerChanges.markAll();
     }
     
     /**
-     * Accesses the deck's size.
-     * @return the number of undealt cards left in the deck.
+     * Accesses the shoe's size.
+     * @return the number of undealt cards left in the shoe.
      */
     public int deckSize() {
-        return deck.size();
+        return shoe.size();
     }
 
     /**
@@ -129,7 +530,7 @@ public class BlackJackBoard {
      * @return the size of the board
      */
     public int size() {
-        return myCards.length;
+        return myHand.capacity();
     }
     
     /**
@@ -138,54 +539,148 @@ public class BlackJackBoard {
      * @param k is the board position of the card to return.
      */
     public Card myCardAt(int k) {
-        return myCards[k];
+        return shoe.card(myHand.codeAt(k));
     }
     
     public Card dealerCardAt(int k){
-        return dealerCards[k];
+        return shoe.card(dealerHand.codeAt(k));
     }
     
     public int getMyHandSum(){
-        return getHandSum(myCards, myCardNumber);
+        return myHand.value();
     }
     
     public int getDealerHandSum(){
-        return getHandSum(dealerCards, dealerCardNumber);
+        return dealerHand.value();
     }
-    
-    private int getHandSum(Card[] cards, int size){
-        int handSum =0;
-        int cardNum;
-        int numAces = 0;
-        
-        for (int c = 0; c < size; c++){
-            cardNum = cards[c].pointValue();
-            if (cardNum == 1) { // Ace
-                numAces++;
-                handSum +=11;;
-            } else {
-                handSum += cardNum;
-            }
+
+    /**
+     * Determines if my hand is soft, i.e. it holds an ace
+     * that is counted as 11.
+     * @return true if my hand is soft; false otherwise.
+     */
+    public boolean isMyHandSoft(){
+        return myHand.isSoft();
+    }
+
+    /**
+     * Accesses the point value of the dealer's face-up card
+     * (the second dealer card; the first is dealt face down).
+     * @return the point value of the dealer's up card; 1 for an ace.
+     */
+    public int getDealerUpCardValue(){
+        return CardCode.pointValue(dealerHand.codeAt(1));
+    }
+
+    /**
+     * Writes my hand as the short forms of its cards separated by commas,
+     * e.g. <code>AS,10H</code> (see <code>Deck.appendCode</code>).
+     * @param out where to write the hand.
+     * @throws IOException if out cannot be written to.
+     */
+    public void appendMyCards(Appendable out) throws IOException {
+        appendHand(out, myHand, 0);
+    }
+
+    /**
+     * Writes the dealer's hand in the same form as <code>appendMyCards</code>.
+     * @param out where to write the hand.
+     * @param showHoleCard false to write the face-down first card as
+     *        <code>??</code>; true to write it as it is.
+     * @throws IOException if out cannot be written to.
+     */
+    public void appendDealerCards(Appendable out, boolean showHoleCard) throws IOException {
+        int from = 0;
+        if (!showHoleCard && dealerHand.size() > 0) {
+            out.append("??");
+            from = 1;
         }
-        
-        while (handSum > 21 && numAces > 0){
-            handSum -= 10;
-            numAces--;
+        appendHand(out, dealerHand, from);
+    }
+
+    /**
+     * Plays out the dealer's hand: the dealer draws cards
+     * while the hand is worth less than <code>DEALER_STANDS_AT</code>.
+     * @return the final value of the dealer's hand.
+     */
+    public int playDealerHand(){
+        long start = GameMetrics.start();
+        while (BlackJackRules.dealerDraws(dealerHand.value()) && !dealerHand.isFull()){
+            dealToDealerCard();
         }
-        return handSum;
+        GameMetrics.DEALER_PLAY.stop(start);
+        return getDealerHandSum();
+    }
+
+    /**
+     * Starts or stops counting the cards as they are dealt from the shoe.
+     * @param system the counting system to use, or null to stop counting.
+     */
+    public void setCountingSystem(CountingSystem system) {
+        shoe.setCountingSystem(system);
+    }
+
+    /**
+     * Accesses the counter that counts the cards dealt from the shoe.
+     * It has seen every card on the table, including the dealer's
+     * face-down card.
+     * @return the counter, or null if the cards are not being counted.
+     */
+    public CardCounter getCounter() {
+        return shoe.counter();
+    }
+
+    /**
+     * Shuffles every card, including those already dealt, back into the shoe.
+     * The hands on the table are left as they are until the next game.
+     */
+    public void shuffleDeck(){
+        shoe.shuffle();
     }
     
+    /**
+     * Writes the cards of a hand, from the given position on,
+     * separated by commas.
+     * @param out where to write the cards.
+     * @param hand the hand to write.
+     * @param from the position of the first card to write; a comma is
+     *        written before it unless it is the first card of the hand.
+     * @throws IOException if out cannot be written to.
+     */
+    private void appendHand(Appendable out, BlackJackHand hand, int from) throws IOException {
+        for (int k = from; k < hand.size(); k++) {
+            if (k > 0) {
+                out.append(',');
+            }
+            shoe.appendCode(out, hand.codeAt(k));
+        }
+    }
+
     /**
      * Deal cards to this board to start the game.
      */
     private void dealMyCards() {
-        if (myCardNumber >= size())
-            return;
-        myCards[0] = deck.deal();
-        dealerCards[0] = deck.deal();
-        myCards[1] = deck.deal();
-        dealerCards[1] = deck.deal();
-        myCardNumber = 2;
-        dealerCardNumber = 2;
+        for (int k = 0; k < myHand.size() || k < 2; k++) {
+            myChanges.mark(k);
+        }
+        for (int k = 0; k < dealerHand.size() || k < 2; k++) {
+            dealerChanges.mark(k);
+        }
+        for (int h = 0; h < handCount; h++) {
+            myHands[h].clear();
+        }
+        handCount = 1;
+        current = 0;
+        myHand = myHands[0];
+        stakes[0] = 1;
+        splitAces = false;
+        insured = false;
+        surrendered = false;
+        dealerHand.clear();
+        shoe.deal(openingCards, 0, openingCards.length);
+        myHand.add(openingCards[0]);
+        dealerHand.add(openingCards[1]);
+        myHand.add(openingCards[2]);
+        dealerHand.add(openingCards[3]);
     }
 }
\ No newline at end of file
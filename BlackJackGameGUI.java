@@ -13,7 +13,6 @@ import javax.swing.JPanel;
 import javax.swing.JButton;
 import javax.swing.JLabel;
 import javax.swing.ImageIcon;
-import java.net.URL;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -80,12 +79,14 @@ public class BlackJackGameGUI extends JFrame implements ActionListener {
     private Point[] myCardCoords;
     private Point[] dealerCardCoords;
     
-    /** The number of games won. */
-    private int totalWins;
-    /** The number of games played. */
-    private int totalGames;
+    /** The outcomes of the games played in every window of this game. */
+    private GameStatistics stats;
+    /** The number of moves made in the current game. */
+    private int moves;
     /** flag to show dealer's card **/
     private boolean gameOver = false;
+    /** Receives the hand positions that need redrawing. */
+    private int[] changedSlots;
 
 
     /**
@@ -94,8 +95,8 @@ public class BlackJackGameGUI extends JFrame implements ActionListener {
      */
     public BlackJackGameGUI(BlackJackBoard gameBoard) {
         board = gameBoard;
-        totalWins = 0;
-        totalGames = 0;
+        stats = GameStatistics.shared(board.getClass().getName());
+        moves = 0;
         // Initialize cardCoords 2 row with each row board size
         myCardCoords = new Point[board.size()];
         dealerCardCoords = new Point[board.size()];   
@@ -114,9 +115,13 @@ public class BlackJackGameGUI extends JFrame implements ActionListener {
             x += LAYOUT_WIDTH_INC;
         }
     
+        changedSlots = new int[board.size()];
+        CardImageCache.preload();
         initDisplay();
         setDefaultCloseOperation(EXIT_ON_CLOSE);
+        board.markAllChanged();
         repaint();
+        pack();
     }
 
     /**
@@ -132,50 +137,66 @@ public class BlackJackGameGUI extends JFrame implements ActionListener {
 
     /**
      * Draw the display (cards and messages).
+     * Only the cards the board reports as changed are redrawn.
      */
     public void repaint() {
-       // remove the previous cards
-       for (int k = 0; k < board.size(); k++){
-           displayMyCards[k].setVisible(false);
-           displayDealerCards[k].setVisible(false);
-       }
-       
-       for (int k = 0; k < board.getMyCardSize(); k++) {
-            String cardImageFileName =
-                imageFileName(board.myCardAt(k), false);
-            URL imageURL = getClass().getResource(cardImageFileName);
-            if (imageURL != null) {
-                ImageIcon icon = new ImageIcon(imageURL);
-                displayMyCards[k].setIcon(icon);
-                displayMyCards[k].setVisible(true);
-            } else {
-                throw new RuntimeException(
-                    "Card image not found: \"" + cardImageFileName + "\"");
-            }
-       }
-        
-       for (int k = 0; k < board.getDealerCardSize(); k++) {
-           String cardImageFileName =
-                imageFileName(board.dealerCardAt(k), k == 0);
-           URL imageURL = getClass().getResource(cardImageFileName);
-           if (imageURL != null) {
-                ImageIcon icon = new ImageIcon(imageURL);
-                displayDealerCards[k].setIcon(icon);
-                displayDealerCards[k].setVisible(true);
-           } else {
-                throw new RuntimeException(
-                   "Card image not found: \"" + cardImageFileName + "\"");
-               }
-       }
+        int n = board.drainMyChanges(changedSlots);
+        for (int i = 0; i < n; i++) {
+            showMyCard(changedSlots[i]);
+        }
+        n = board.drainDealerChanges(changedSlots);
+        for (int i = 0; i < n; i++) {
+            showDealerCard(changedSlots[i]);
+        }
 
-       statusMsg.setText(board.deckSize()
+        statusMsg.setText(board.deckSize()
             + " undealt cards remain.");
-            statusMsg.setVisible(true);
-            totalsMsg.setText("You've won " + totalWins
-            + " out of " + totalGames + " games.");
-            totalsMsg.setVisible(true);
-       pack();
-       panel.repaint();
+        statusMsg.setVisible(true);
+        totalsMsg.setText(totalsText());
+        totalsMsg.setVisible(true);
+    }
+
+    /**
+     * Show one of my cards, or hide its label if my hand is shorter.
+     * Setting a new icon repaints just that card's label.
+     * @param k the position of the card in my hand.
+     */
+    private void showMyCard(int k) {
+        if (k >= board.getMyCardSize()) {
+            displayMyCards[k].setVisible(false);
+            return;
+        }
+        showCard(displayMyCards[k], imageFileName(board.myCardAt(k), false));
+    }
+
+    /**
+     * Show one of the dealer's cards, or hide its label if the dealer's
+     * hand is shorter.  The first card stays face down until the game is over.
+     * @param k the position of the card in the dealer's hand.
+     */
+    private void showDealerCard(int k) {
+        if (k >= board.getDealerCardSize()) {
+            displayDealerCards[k].setVisible(false);
+            return;
+        }
+        showCard(displayDealerCards[k],
+            imageFileName(board.dealerCardAt(k), k == 0));
+    }
+
+    /**
+     * Show a card image on a label.
+     * @param label the label showing the card.
+     * @param cardImageFileName the name of the card's image.
+     */
+    private void showCard(JLabel label, String cardImageFileName) {
+        ImageIcon icon = CardImageCache.getIcon(cardImageFileName);
+        if (icon != null) {
+            label.setIcon(icon);
+            label.setVisible(true);
+        } else {
+            throw new RuntimeException(
+                "Card image not found: \"" + cardImageFileName + "\"");
+        }
     }
 
     /**
@@ -263,8 +284,7 @@ public class BlackJackGameGUI extends JFrame implements ActionListener {
         panel.add(winMsg);
         winMsg.setVisible(false);
 
-        totalsMsg = new JLabel("You've won " + totalWins
-            + " out of " + totalGames + " games.");
+        totalsMsg = new JLabel(totalsText());
         totalsMsg.setBounds(LABEL_LEFT, LABEL_TOP + 2 * LABEL_HEIGHT_INC,
                                   300, 30);
         panel.add(totalsMsg);
@@ -312,15 +332,14 @@ public class BlackJackGameGUI extends JFrame implements ActionListener {
     public void actionPerformed(ActionEvent e) {
         if (e.getSource().equals(hitButton)) {
             board.dealToMyCard();
+            moves++;
             if (board.getMyHandSum() > 21){
                 signalLoss();
             }   
             repaint();
         } else if (e.getSource().equals(stayButton)) {
             // dealer turn
-            while (board.getDealerHandSum() < 17){
-                board.dealToDealerCard();
-            }
+            board.playDealerHand();
             if (board.getDealerHandSum() > 21 || board.getDealerHandSum() < board.getMyHandSum())
                 signalWin();
             else
@@ -352,8 +371,8 @@ public class BlackJackGameGUI extends JFrame implements ActionListener {
         hitButton.setEnabled(false);
         stayButton.setEnabled(false);
         gameOver = true;
-        totalWins++;
-        totalGames++;
+        showDealerCard(0);
+        stats.recordWin(moves);
     }
 
     /**
@@ -365,13 +384,25 @@ public class BlackJackGameGUI extends JFrame implements ActionListener {
         hitButton.setEnabled(false);
         stayButton.setEnabled(false);
         gameOver = true;
-        totalGames++;
+        showDealerCard(0);
+        stats.recordLoss(moves);
+    }
+
+    /**
+     * Describes the games won and played in every window of this game.
+     * @return the totals message.
+     */
+    private String totalsText() {
+        GameStatistics.Snapshot totals = stats.snapshot();
+        return "You've won " + totals.wins()
+            + " out of " + totals.games() + " games.";
     }
     /**
      * Start a new game
      */
     private void signalNewGame(){
         board.newGame();
+        moves = 0;
         hitButton.setEnabled(true);
         stayButton.setEnabled(true);
         getRootPane().setDefaultButton(hitButton);
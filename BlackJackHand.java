@@ -0,0 +1,291 @@
+/**
+ * The BlackJackHand class represents one hand of blackjack.  It keeps the
+ * hand's hard total (every ace counted as 1) and its number of aces up to
+ * date as cards are added, and looks the hand's best value up in a table
+ * computed once, so scoring a hand takes constant time and never allocates.
+ * The cards are held as codes (see <code>CardCode</code>) in an array sized
+ * when the hand is created.
+ */
+public class BlackJackHand {
+
+	/**
+	 * The largest hand value that is not a bust.
+	 */
+	public static final int BLACKJACK = 21;
+
+	/**
+	 * The largest hard total held in the table.  Larger totals are busts
+	 * whatever the aces, and their value is the hard total itself.
+	 */
+	private static final int MAX_TABLE_TOTAL = 31;
+
+	/**
+	 * Mask for the best value in a table entry.
+	 */
+	private static final int VALUE_MASK = 0x1F;
+
+	/**
+	 * Table entry flag: an ace is counted as 11.
+	 */
+	private static final int SOFT = 0x20;
+
+	/**
+	 * Table entry flag: the hand is worth more than 21.
+	 */
+	private static final int BUST = 0x40;
+
+	/**
+	 * Table entry flag: two such cards make a natural blackjack.
+	 */
+	private static final int NATURAL = 0x80;
+
+	/**
+	 * The best value and flags of a hand, indexed by its hard total
+	 * and by whether it holds any aces.  Only one ace can ever count
+	 * as 11, so the number of aces beyond the first does not matter.
+	 */
+	private static final int[][] VALUES = new int[MAX_TABLE_TOTAL + 1][2];
+
+	static {
+		for (int hard = 0; hard <= MAX_TABLE_TOTAL; hard++) {
+			VALUES[hard][0] = hard > BLACKJACK ? hard | BUST : hard;
+			if (hard + 10 <= BLACKJACK) {
+				VALUES[hard][1] = (hard + 10) | SOFT;
+			} else {
+				VALUES[hard][1] = VALUES[hard][0];
+			}
+		}
+		VALUES[BLACKJACK - 10][1] |= NATURAL;
+	}
+
+	/**
+	 * The codes of the cards in this hand.
+	 */
+	private int[] cards;
+
+	/**
+	 * The number of cards in this hand.
+	 */
+	private int count;
+
+	/**
+	 * The total of the point values, with every ace counted as 1.
+	 */
+	private int hardTotal;
+
+	/**
+	 * The number of aces in this hand.
+	 */
+	private int aces;
+
+
+	/**
+	 * Creates a new, empty <code>BlackJackHand</code> instance.
+	 * @param capacity the most cards the hand can hold.
+	 */
+	public BlackJackHand(int capacity) {
+		cards = new int[capacity];
+		clear();
+	}
+
+	/**
+	 * Removes every card from this hand.
+	 */
+	public void clear() {
+		count = 0;
+		hardTotal = 0;
+		aces = 0;
+	}
+
+	/**
+	 * Adds a card to this hand.  A <code>CardCode.NONE</code> (no card
+	 * could be dealt) takes a place in the hand but adds nothing to it.
+	 * @param code the code of the card to add.
+	 * @return true if the card was added; false if the hand is full.
+	 */
+	public boolean add(int code) {
+		if (count >= cards.length) {
+			return false;
+		}
+		cards[count] = code;
+		count++;
+		if (code != CardCode.NONE) {
+			int value = CardCode.pointValue(code);
+			hardTotal += value;
+			if (value == 1) {
+				aces++;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Takes the last card out of this hand, e.g. to split a pair.
+	 * @return the code of the card taken out.
+	 */
+	public int removeLast() {
+		if (count == 0) {
+			throw new IllegalStateException("The hand is empty");
+		}
+		count--;
+		int code = cards[count];
+		if (code != CardCode.NONE) {
+			int value = CardCode.pointValue(code);
+			hardTotal -= value;
+			if (value == 1) {
+				aces--;
+			}
+		}
+		return code;
+	}
+
+	/**
+	 * Accesses the number of cards in this hand.
+	 * @return the number of cards in this hand.
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Accesses the most cards this hand can hold.
+	 * @return the capacity of this hand.
+	 */
+	public int capacity() {
+		return cards.length;
+	}
+
+	/**
+	 * Determines if this hand cannot take another card.
+	 * @return true if this hand is full; false otherwise.
+	 */
+	public boolean isFull() {
+		return count == cards.length;
+	}
+
+	/**
+	 * Accesses the code of a card in this hand.
+	 * @param k the position of the card, starting at 0.
+	 * @return the code (see <code>CardCode</code>) of the card.
+	 */
+	public int codeAt(int k) {
+		return cards[k];
+	}
+
+	/**
+	 * Accesses the total of the point values, with every ace counted as 1.
+	 * @return the hard total of this hand.
+	 */
+	public int hardTotal() {
+		return hardTotal;
+	}
+
+	/**
+	 * Accesses the number of aces in this hand.
+	 * @return the number of aces.
+	 */
+	public int aces() {
+		return aces;
+	}
+
+	/**
+	 * Computes the best value of this hand: an ace counts as 11 if that
+	 * does not take the hand over 21.
+	 * @return the best value of this hand.
+	 */
+	public int value() {
+		return valueOf(hardTotal, aces);
+	}
+
+	/**
+	 * Determines if this hand is soft, i.e. it holds an ace counted as 11.
+	 * @return true if this hand is soft; false otherwise.
+	 */
+	public boolean isSoft() {
+		return isSoftTotal(hardTotal, aces);
+	}
+
+	/**
+	 * Determines if this hand is worth more than 21.
+	 * @return true if this hand is bust; false otherwise.
+	 */
+	public boolean isBust() {
+		return hardTotal > BLACKJACK;
+	}
+
+	/**
+	 * Determines if this hand is a natural blackjack:
+	 * an ace and a ten-point card as the first two cards.
+	 * @return true if this hand is a blackjack; false otherwise.
+	 */
+	public boolean isBlackjack() {
+		return count == 2 && isNaturalTotal(hardTotal, aces);
+	}
+
+	/**
+	 * Replaces the cards in this hand with the given ones,
+	 * e.g. to view a hand kept elsewhere as a <code>BlackJackHand</code>.
+	 * @param codes holds the codes of the cards.
+	 * @param offset the position in codes of the first card.
+	 * @param n the number of cards.
+	 */
+	public void setCards(int[] codes, int offset, int n) {
+		if (n > cards.length) {
+			throw new IllegalArgumentException("Cannot hold " + n
+				+ " cards in a hand of " + cards.length);
+		}
+		clear();
+		for (int k = 0; k < n; k++) {
+			add(codes[offset + k]);
+		}
+	}
+
+	/**
+	 * Computes the best value of a hand from its hard total and aces,
+	 * without a <code>BlackJackHand</code>.
+	 * @param hardTotal the total with every ace counted as 1.
+	 * @param aces the number of aces.
+	 * @return the best value of the hand.
+	 */
+	public static int valueOf(int hardTotal, int aces) {
+		if (hardTotal > MAX_TABLE_TOTAL) {
+			return hardTotal;
+		}
+		return entry(hardTotal, aces) & VALUE_MASK;
+	}
+
+	/**
+	 * Determines from its hard total and aces if a hand is soft.
+	 * @param hardTotal the total with every ace counted as 1.
+	 * @param aces the number of aces.
+	 * @return true if an ace counts as 11; false otherwise.
+	 */
+	public static boolean isSoftTotal(int hardTotal, int aces) {
+		return (entry(hardTotal, aces) & SOFT) != 0;
+	}
+
+	/**
+	 * Determines from its hard total and aces if a two-card hand
+	 * is a natural blackjack.
+	 * @param hardTotal the total with every ace counted as 1.
+	 * @param aces the number of aces.
+	 * @return true if two such cards make a blackjack; false otherwise.
+	 */
+	public static boolean isNaturalTotal(int hardTotal, int aces) {
+		return (entry(hardTotal, aces) & NATURAL) != 0;
+	}
+
+	/**
+	 * Looks a hand up in the table of values.
+	 * @param hardTotal the total with every ace counted as 1.
+	 * @param aces the number of aces.
+	 * @return the table entry for the hard total and aces; just
+	 *         the bust flag if the hard total is too large for the table.
+	 */
+	private static int entry(int hardTotal, int aces) {
+		if (hardTotal > MAX_TABLE_TOTAL) {
+			return BUST;
+		}
+		return VALUES[hardTotal][aces > 0 ? 1 : 0];
+	}
+}
@@ -0,0 +1,267 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This is a class that puts load on a <code>BlackJackTableServer</code>
+ * running on this machine.  It opens many tables at once, each played by
+ * a client on a thread of its own that hits below a fixed hand value, and
+ * reports how many actions the server answered per second, per core, and
+ * how long the client waited for each answer.
+ * The client and the server share this machine's cores, so the rates it
+ * reports are a lower bound for the server alone.
+ */
+public class BlackJackLoadClient {
+
+	/**
+	 * The number of tables to open when none is given.
+	 */
+	private static final int TABLES = 1000;
+
+	/**
+	 * The number of hands to play at each table when none is given.
+	 */
+	private static final int HANDS_PER_TABLE = 100;
+
+	/**
+	 * The hand value each client stands at when none is given.
+	 */
+	private static final int STAND_AT = 17;
+
+	/**
+	 * The number of nanoseconds in a microsecond.
+	 */
+	private static final long NANOS_PER_MICRO = 1000;
+
+	/**
+	 * The time every action took, from sending the command
+	 * to reading the whole reply.
+	 */
+	private static final LatencyHistogram ACTIONS = new LatencyHistogram(
+		"table_action", "Time from sending a table command to reading its reply.");
+
+	/**
+	 * The number of hands won at all tables.
+	 */
+	private static final AtomicLong WINS = new AtomicLong();
+
+	/**
+	 * The number of hands pushed at all tables.
+	 */
+	private static final AtomicLong PUSHES = new AtomicLong();
+
+	/**
+	 * The number of hands lost at all tables.
+	 */
+	private static final AtomicLong LOSSES = new AtomicLong();
+
+	/**
+	 * The number of tables that could not be played to the end.
+	 */
+	private static final AtomicLong FAILED = new AtomicLong();
+
+	/**
+	 * This class cannot be instantiated.
+	 */
+	private BlackJackLoadClient() {
+	}
+
+	/**
+	 * Plays hands at many tables at once and prints the throughput
+	 * and action latency.
+	 * @param args are, in order and all optional: the number of tables,
+	 *             the number of hands to play at each, the server's port
+	 *             (0 to start a server in this JVM), and the hand value
+	 *             each client stands at.
+	 * @throws IOException if a server cannot be started in this JVM.
+	 * @throws InterruptedException if interrupted while the tables are played.
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int tables = TABLES;
+		int hands = HANDS_PER_TABLE;
+		int port = BlackJackTableServer.DEFAULT_PORT;
+		int standAt = STAND_AT;
+		if (args.length > 0) {
+			tables = Integer.parseInt(args[0]);
+		}
+		if (args.length > 1) {
+			hands = Integer.parseInt(args[1]);
+		}
+		if (args.length > 2) {
+			port = Integer.parseInt(args[2]);
+		}
+		if (args.length > 3) {
+			standAt = Integer.parseInt(args[3]);
+		}
+
+		BlackJackTableServer server = null;
+		if (port == 0) {
+			server = new BlackJackTableServer(0, System.nanoTime(), 1);
+			server.start();
+			port = server.port();
+		}
+
+		ExecutorService clients = BlackJackTableServer.newPerTaskExecutor();
+		long start = System.nanoTime();
+		for (int t = 0; t < tables; t++) {
+			clients.execute(new Client(port, hands, standAt));
+		}
+		clients.shutdown();
+		clients.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		long elapsed = System.nanoTime() - start;
+		if (server != null) {
+			server.close();
+		}
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		double seconds = elapsed / 1e9;
+		double perSecond = ACTIONS.count() / seconds;
+		System.out.println("Tables:       " + tables + " on localhost:" + port
+			+ " (" + FAILED.get() + " failed)");
+		System.out.println("Hands:        " + (WINS.get() + PUSHES.get() + LOSSES.get())
+			+ " (" + WINS.get() + " won, " + PUSHES.get() + " pushed, "
+			+ LOSSES.get() + " lost)");
+		System.out.println("Actions:      " + ACTIONS.count() + " in " + seconds + " s");
+		System.out.println("Throughput:   " + Math.round(perSecond) + " actions/s, "
+			+ Math.round(perSecond / cores) + " per core (" + cores + " cores)");
+		System.out.println("Latency (us): p50 " + micros(ACTIONS.valueAt(0.5))
+			+ ", p99 " + micros(ACTIONS.valueAt(0.99))
+			+ ", p99.9 " + micros(ACTIONS.valueAt(0.999))
+			+ ", max " + micros(ACTIONS.max()));
+	}
+
+	/**
+	 * Converts nanoseconds to whole microseconds.
+	 * @param nanos the number of nanoseconds.
+	 * @return the number of microseconds, rounded to the nearest.
+	 */
+	private static long micros(long nanos) {
+		return (nanos + NANOS_PER_MICRO / 2) / NANOS_PER_MICRO;
+	}
+
+	/**
+	 * A client that plays the given number of hands at a table of its own.
+	 */
+	private static class Client implements Runnable {
+
+		/**
+		 * The port the server listens on.
+		 */
+		private int port;
+
+		/**
+		 * The number of hands to play.
+		 */
+		private int handsToPlay;
+
+		/**
+		 * The hand value this client stands at.
+		 */
+		private int standAt;
+
+		/**
+		 * The reader for the server's replies, once connected.
+		 */
+		private BufferedReader in;
+
+		/**
+		 * The writer for this client's commands, once connected.
+		 */
+		private Writer out;
+
+		/**
+		 * Creates a new <code>Client</code> instance.
+		 * @param serverPort the port the server listens on.
+		 * @param hands the number of hands to play.
+		 * @param standValue the hand value to stand at.
+		 */
+		Client(int serverPort, int hands, int standValue) {
+			port = serverPort;
+			handsToPlay = hands;
+			standAt = standValue;
+		}
+
+		/**
+		 * Connects to the server, plays the hands, and quits.
+		 */
+		@Override
+		public void run() {
+			try {
+				Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+				try {
+					socket.setTcpNoDelay(true);
+					in = new BufferedReader(new InputStreamReader(
+						socket.getInputStream(), StandardCharsets.US_ASCII));
+					out = new BufferedWriter(new OutputStreamWriter(
+						socket.getOutputStream(), StandardCharsets.US_ASCII));
+					for (int k = 0; k < handsToPlay; k++) {
+						playHand();
+					}
+					send("quit");
+				} finally {
+					socket.close();
+				}
+			} catch (IOException e) {
+				if (FAILED.getAndIncrement() == 0) {
+					System.err.println("A table failed: " + e);
+				}
+			}
+		}
+
+		/**
+		 * Plays one hand, hitting until the hand is worth at least
+		 * <code>standAt</code>, and tallies its outcome.
+		 * @throws IOException if the server cannot be reached
+		 *         or sends an error.
+		 */
+		private void playHand() throws IOException {
+			String reply = send("new");
+			while (reply.startsWith("DEAL ") || reply.startsWith("CARD ")) {
+				int value = Integer.parseInt(reply.substring(5, reply.indexOf(' ', 5)));
+				reply = send(value < standAt ? "hit" : "stay");
+			}
+			if (reply.startsWith("WIN ")) {
+				WINS.incrementAndGet();
+			} else if (reply.startsWith("PUSH ")) {
+				PUSHES.incrementAndGet();
+			} else if (reply.startsWith("LOSE ")) {
+				LOSSES.incrementAndGet();
+			} else {
+				throw new IOException("Unexpected reply: " + reply);
+			}
+		}
+
+		/**
+		 * Sends a command and waits for its reply, timing the round trip.
+		 * @param command the command to send.
+		 * @return the reply.
+		 * @throws IOException if the server cannot be reached, hangs up,
+		 *         or sends an error.
+		 */
+		private String send(String command) throws IOException {
+			long start = System.nanoTime();
+			out.write(command);
+			out.write('\n');
+			out.flush();
+			String reply = in.readLine();
+			ACTIONS.record(System.nanoTime() - start);
+			if (reply == null) {
+				throw new EOFException("The server hung up");
+			}
+			if (reply.startsWith("ERR ")) {
+				throw new IOException(reply);
+			}
+			return reply;
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/**
+ * The BlackJackRules class holds the rules of a round of blackjack, as
+ * played at a <code>BlackJackBoard</code> or a <code>BlackJackTable</code>:
+ * which plays a hand may make, and what a round wins or loses.  The rules
+ * are given a hand's state as plain values rather than as an object, so
+ * that the board's <code>BlackJackHand</code>s and the table's arrays of
+ * hand slots are both played by the one set of rules.
+ * <p>
+ * The dealer peeks for blackjack as soon as the cards are dealt.  If the
+ * dealer has one, insurance is settled and no other play can be made: every
+ * player loses the original bet, except one with a blackjack, who pushes.
+ * Otherwise the player may double any two cards, also after splitting;
+ * split pairs up to <code>BlackJackBoard.MAX_HANDS</code> hands, aces once
+ * and for one card each; and surrender late, before any other play.
+ * All amounts are in half bets, so a 3 to 2 blackjack payout stays whole.
+ */
+public final class BlackJackRules {
+
+	/**
+	 * Returned by <code>settleOpening</code> when the round is not settled
+	 * by the opening cards, and every hand has to be compared with the
+	 * dealer's.
+	 */
+	public static final int NOT_SETTLED = Integer.MIN_VALUE;
+
+	/**
+	 * The rules are never instantiated.
+	 */
+	private BlackJackRules() {
+	}
+
+	/**
+	 * Determines if a hand can still be played at all: neither the dealer
+	 * nor the player has a blackjack, the player has not surrendered, the
+	 * hand is not a split ace and has not been doubled.
+	 * @param dealerNatural true if the dealer has a blackjack.
+	 * @param playerNatural true if the player was dealt a blackjack.
+	 * @param surrendered true if the player has surrendered.
+	 * @param splitAces true if the player has split aces.
+	 * @param stake the bet on the hand: 1, or 2 once doubled.
+	 * @return true if the hand can be played; false otherwise.
+	 */
+	public static boolean isLive(boolean dealerNatural, boolean playerNatural,
+			boolean surrendered, boolean splitAces, int stake) {
+		return !dealerNatural && !playerNatural && !surrendered && !splitAces
+			&& stake == 1;
+	}
+
+	/**
+	 * Determines if a live hand can take another card:
+	 * it has room and is worth less than 21.
+	 * @param live true if the hand can be played (see <code>isLive</code>).
+	 * @param cards the number of cards in the hand.
+	 * @param capacity the most cards the hand can hold.
+	 * @param value the best value of the hand.
+	 * @return true if the hand can be hit; false otherwise.
+	 */
+	public static boolean canHit(boolean live, int cards, int capacity, int value) {
+		return live && cards < capacity && value < BlackJackHand.BLACKJACK;
+	}
+
+	/**
+	 * Determines if a live hand can be doubled: it holds two cards and
+	 * has room for a third.  Doubling after a split is allowed.
+	 * @param live true if the hand can be played (see <code>isLive</code>).
+	 * @param cards the number of cards in the hand.
+	 * @param capacity the most cards the hand can hold.
+	 * @return true if the hand can be doubled; false otherwise.
+	 */
+	public static boolean canDouble(boolean live, int cards, int capacity) {
+		return live && cards == 2 && cards < capacity;
+	}
+
+	/**
+	 * Determines if a live hand can be split: it holds two cards of the
+	 * same point value, and the player has fewer than
+	 * <code>BlackJackBoard.MAX_HANDS</code> hands.
+	 * @param live true if the hand can be played (see <code>isLive</code>).
+	 * @param hands the number of hands the player has.
+	 * @param cards the number of cards in the hand.
+	 * @param first the code of the hand's first card.
+	 * @param second the code of the hand's second card.
+	 * @return true if the hand can be split; false otherwise.
+	 */
+	public static boolean canSplit(boolean live, int hands, int cards, int first,
+			int second) {
+		return live && hands < BlackJackBoard.MAX_HANDS && cards == 2
+			&& CardCode.pointValue(first) == CardCode.pointValue(second);
+	}
+
+	/**
+	 * Determines if the player can surrender: the hand is live and
+	 * nothing has been done with the first two cards.
+	 * @param live true if the hand can be played (see <code>isLive</code>).
+	 * @param hands the number of hands the player has.
+	 * @param cards the number of cards in the hand.
+	 * @return true if the player can surrender; false otherwise.
+	 */
+	public static boolean canSurrender(boolean live, int hands, int cards) {
+		return live && hands == 1 && cards == 2;
+	}
+
+	/**
+	 * Determines if the player can take insurance: the dealer shows an
+	 * ace and nothing has been done with the first two cards.  It is
+	 * offered before the dealer peeks, so whatever the hole card.
+	 * @param insured true if the player has already taken insurance.
+	 * @param surrendered true if the player has surrendered.
+	 * @param hands the number of hands the player has.
+	 * @param cards the number of cards in the hand.
+	 * @param upCardValue the point value of the dealer's face-up card.
+	 * @return true if insurance can be taken; false otherwise.
+	 */
+	public static boolean canInsure(boolean insured, boolean surrendered, int hands,
+			int cards, int upCardValue) {
+		return !insured && !surrendered && hands == 1 && cards == 2 && upCardValue == 1;
+	}
+
+	/**
+	 * Determines if the dealer draws another card.
+	 * @param dealerValue the best value of the dealer's hand.
+	 * @return true while the hand is worth less than
+	 *         <code>BlackJackBoard.DEALER_STANDS_AT</code>.
+	 */
+	public static boolean dealerDraws(int dealerValue) {
+		return dealerValue < BlackJackBoard.DEALER_STANDS_AT;
+	}
+
+	/**
+	 * Works out what an insurance bet won or lost: it pays 2 to 1 on half
+	 * a bet if the dealer has a blackjack.
+	 * @param insured true if the player took insurance.
+	 * @param dealerNatural true if the dealer has a blackjack.
+	 * @return the result of the insurance bet in half bets.
+	 */
+	public static int insurance(boolean insured, boolean dealerNatural) {
+		if (!insured) {
+			return 0;
+		}
+		return dealerNatural ? 2 : -1;
+	}
+
+	/**
+	 * Works out what a round won or lost if it is settled by the opening
+	 * cards alone: a dealer blackjack takes the original bet (a player
+	 * blackjack pushes), a player blackjack pays 3 to 2, and surrender
+	 * loses half the bet.  Insurance is not included.
+	 * @param dealerNatural true if the dealer has a blackjack.
+	 * @param playerNatural true if the player was dealt a blackjack.
+	 * @param surrendered true if the player surrendered.
+	 * @return the result in half bets, or <code>NOT_SETTLED</code> if the
+	 *         player's hands have to be compared with the dealer's.
+	 */
+	public static int settleOpening(boolean dealerNatural, boolean playerNatural,
+			boolean surrendered) {
+		if (dealerNatural) {
+			return playerNatural ? 0 : -2;
+		}
+		if (surrendered) {
+			return -1;
+		}
+		if (playerNatural) {
+			return 3;
+		}
+		return NOT_SETTLED;
+	}
+
+	/**
+	 * Works out what a hand won or lost against the dealer's, once the
+	 * round was not settled by the opening cards.
+	 * @param value the best value of the hand.
+	 * @param stake the bet on the hand: 1, or 2 if it was doubled.
+	 * @param dealerValue the final value of the dealer's hand.
+	 * @return the result in half bets.
+	 */
+	public static int settleHand(int value, int stake, int dealerValue) {
+		if (value > BlackJackHand.BLACKJACK) {
+			return -2 * stake;
+		} else if (dealerValue > BlackJackHand.BLACKJACK || value > dealerValue) {
+			return 2 * stake;
+		} else if (value < dealerValue) {
+			return -2 * stake;
+		}
+		return 0;
+	}
+}
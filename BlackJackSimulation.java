@@ -0,0 +1,627 @@
+/**
+ * This is a class that plays noninteractive hands of blackjack on several
+ * threads at once and reports the player's expected value, bust rates,
+ * and win/push/loss distribution for each starting hand.
+ * Every worker thread plays at its own <code>BlackJackTable</code> with
+ * its own seeded shoe, so workers share no mutable state.  Every seat at
+ * a table plays the same strategy, and each seat's hand is tallied as
+ * one hand.
+ * A player blackjack pays 3 to 2, ties push, and the dealer stands on 17
+ * and peeks for blackjack.  The player may double any two cards, also
+ * after splitting; split pairs up to four hands, aces once and for one
+ * card each; surrender late; and take insurance
+ * (see <code>BlackJackBoard.settle</code>).  A round counts as won,
+ * pushed or lost by its net result over every hand.
+ */
+public class BlackJackSimulation {
+
+	/**
+	 * The number of hands to play when none is given.
+	 */
+	private static final long HANDS_TO_PLAY = 1000000;
+
+	/**
+	 * The number of cards each hand can hold; enough for any hand
+	 * that can be played from an eight-deck shoe without busting.
+	 */
+	private static final int HAND_SIZE = 21;
+
+	/**
+	 * The number of decks in the shoe, unless another is given.
+	 */
+	private static final int DECKS = 1;
+
+	/**
+	 * The fraction of the shoe dealt before it is reshuffled.
+	 */
+	private static final double PENETRATION = 0.75;
+
+	/**
+	 * Starting hands are tallied at their two-card value, with soft hands
+	 * offset by this much so they are kept apart from hard ones.
+	 */
+	private static final int SOFT_OFFSET = 22;
+
+	/**
+	 * The number of starting hand tallies.
+	 */
+	private static final int START_HANDS = 2 * SOFT_OFFSET;
+
+	/**
+	 * The highest true count tallied apart; hands at higher counts are
+	 * tallied with it, and hands at lower counts than its negative are
+	 * tallied with that.
+	 */
+	private static final int MAX_TRUE_COUNT = 6;
+
+	/**
+	 * The number of true count tallies.
+	 */
+	private static final int TRUE_COUNTS = 2 * MAX_TRUE_COUNT + 1;
+
+	/**
+	 * The number of seats at each table, unless another is given.
+	 */
+	private static final int SEATS = 1;
+
+
+	/**
+	 * Plays hands of blackjack on every available processor
+	 * and prints the results.
+	 * @param args are, in order and all optional: the number of hands to
+	 *             play, the number of threads, the random seed, the
+	 *             strategy ("basic", or the hand value to stand at), the
+	 *             number of decks in the shoe, the counting system
+	 *             ("hilo", "ko", "omega2", or "none") used to tally the
+	 *             hands by true count, and the number of seats at each
+	 *             table.
+	 * @throws InterruptedException if interrupted while the hands are played.
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		long hands = HANDS_TO_PLAY;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long seed = System.nanoTime();
+		BlackJackStrategy strategy = new BasicStrategy();
+		int decks = DECKS;
+		if (args.length > 0) {
+			hands = Long.parseLong(args[0]);
+		}
+		if (args.length > 1) {
+			threads = Integer.parseInt(args[1]);
+		}
+		if (args.length > 2) {
+			seed = Long.parseLong(args[2]);
+		}
+		if (args.length > 3 && !args[3].equals("basic")) {
+			strategy = new StandThresholdStrategy(Integer.parseInt(args[3]));
+		}
+		if (args.length > 4) {
+			decks = Integer.parseInt(args[4]);
+		}
+		CountingSystem counting = null;
+		if (args.length > 5 && !args[5].equals("none")) {
+			counting = CountingSystem.forName(args[5]);
+			System.out.println("Counting:     " + counting);
+		}
+		int seats = SEATS;
+		if (args.length > 6) {
+			seats = Integer.parseInt(args[6]);
+		}
+		GameStatistics stats = new GameStatistics();
+		run(hands, threads, seed, strategy, decks, stats, counting, seats)
+			.printReport(strategy);
+		System.out.println("Outcomes:     " + stats.snapshot());
+	}
+
+	/**
+	 * Plays the given number of hands, split as evenly as possible
+	 * across the given number of threads.
+	 * @param hands the total number of hands to play.
+	 * @param threads the number of worker threads to use.
+	 * @param seed the run seed from which every worker's seed is derived.
+	 * @param strategy the way the player plays each hand.
+	 * @param decks the number of decks in each worker's shoe.
+	 * @return the merged tallies of all the workers.
+	 * @throws InterruptedException if interrupted while waiting
+	 *         for the workers to finish.
+	 */
+	public static Tally run(long hands, int threads, long seed,
+			BlackJackStrategy strategy, int decks) throws InterruptedException {
+		return run(hands, threads, seed, strategy, decks, new GameStatistics(), null);
+	}
+
+	/**
+	 * Plays the given number of hands, split as evenly as possible
+	 * across the given number of threads, and also records the outcome
+	 * of every hand in the given statistics as it is played.
+	 * @param hands the total number of hands to play.
+	 * @param threads the number of worker threads to use.
+	 * @param seed the run seed from which every worker's seed is derived.
+	 * @param strategy the way the player plays each hand.
+	 * @param decks the number of decks in each worker's shoe.
+	 * @param stats the statistics every worker records its hands in.
+	 * @return the merged tallies of all the workers.
+	 * @throws InterruptedException if interrupted while waiting
+	 *         for the workers to finish.
+	 */
+	public static Tally run(long hands, int threads, long seed,
+			BlackJackStrategy strategy, int decks, GameStatistics stats)
+			throws InterruptedException {
+		return run(hands, threads, seed, strategy, decks, stats, null);
+	}
+
+	/**
+	 * Plays the given number of hands, split as evenly as possible
+	 * across the given number of threads, recording the outcome of every
+	 * hand in the given statistics and, if a counting system is given,
+	 * tallying every hand by the true count when it was bet on.
+	 * @param hands the total number of hands to play.
+	 * @param threads the number of worker threads to use.
+	 * @param seed the run seed from which every worker's seed is derived.
+	 * @param strategy the way the player plays each hand.
+	 * @param decks the number of decks in each worker's shoe.
+	 * @param stats the statistics every worker records its hands in.
+	 * @param counting the counting system each worker counts its shoe
+	 *        with, or null not to count.
+	 * @return the merged tallies of all the workers.
+	 * @throws InterruptedException if interrupted while waiting
+	 *         for the workers to finish.
+	 */
+	public static Tally run(long hands, int threads, long seed,
+			BlackJackStrategy strategy, int decks, GameStatistics stats,
+			CountingSystem counting) throws InterruptedException {
+		return run(hands, threads, seed, strategy, decks, stats, counting, SEATS);
+	}
+
+	/**
+	 * Plays the given number of hands at tables of the given number of
+	 * seats, split as evenly as possible across the given number of
+	 * threads, recording the outcome of every hand in the given statistics
+	 * and, if a counting system is given, tallying every hand by the true
+	 * count when it was bet on.  Hands are dealt in whole rounds, so each
+	 * worker may play up to one round's worth of hands more than its share.
+	 * @param hands the total number of hands to play.
+	 * @param threads the number of worker threads to use.
+	 * @param seed the run seed from which every worker's seed is derived.
+	 * @param strategy the way every seat plays each hand.
+	 * @param decks the number of decks in each worker's shoe.
+	 * @param stats the statistics every worker records its hands in.
+	 * @param counting the counting system each worker counts its shoe
+	 *        with, or null not to count.
+	 * @param seats the number of seats at each worker's table.
+	 * @return the merged tallies of all the workers.
+	 * @throws InterruptedException if interrupted while waiting
+	 *         for the workers to finish.
+	 */
+	public static Tally run(long hands, int threads, long seed,
+			BlackJackStrategy strategy, int decks, GameStatistics stats,
+			CountingSystem counting, int seats) throws InterruptedException {
+		if (hands < 0) {
+			throw new IllegalArgumentException("hands must not be negative: " + hands);
+		}
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be positive: " + threads);
+		}
+		Worker[] workers = new Worker[threads];
+		for (int w = 0; w < threads; w++) {
+			long workerHands = hands / threads + (w < hands % threads ? 1 : 0);
+			workers[w] = new Worker(SimulationEngine.gameSeed(seed, w),
+				workerHands, strategy, decks, stats, counting, seats);
+			workers[w].setName("blackjack-" + w);
+			workers[w].start();
+		}
+		Tally total = new Tally();
+		for (Worker worker : workers) {
+			worker.join();
+			total.add(worker.tally);
+		}
+		return total;
+	}
+
+	/**
+	 * The counts of outcomes, per starting hand.
+	 * All amounts won or lost are kept in half bets,
+	 * so that a 3 to 2 blackjack payout stays whole.
+	 */
+	public static class Tally {
+
+		/**
+		 * The number of hands played, per starting hand.
+		 */
+		private long[] hands = new long[START_HANDS];
+
+		/**
+		 * The number of hands won, per starting hand.
+		 */
+		private long[] wins = new long[START_HANDS];
+
+		/**
+		 * The number of hands pushed, per starting hand.
+		 */
+		private long[] pushes = new long[START_HANDS];
+
+		/**
+		 * The number of hands in which the player busted, per starting hand.
+		 */
+		private long[] playerBusts = new long[START_HANDS];
+
+		/**
+		 * The number of hands in which the dealer busted, per starting hand.
+		 */
+		private long[] dealerBusts = new long[START_HANDS];
+
+		/**
+		 * The player's net result in half bets, per starting hand.
+		 */
+		private long[] netHalfBets = new long[START_HANDS];
+
+		/**
+		 * The number of hands played, per true count
+		 * (offset by <code>MAX_TRUE_COUNT</code>).
+		 */
+		private long[] countHands = new long[TRUE_COUNTS];
+
+		/**
+		 * The player's net result in half bets, per true count.
+		 */
+		private long[] countNetHalfBets = new long[TRUE_COUNTS];
+
+		/**
+		 * The number of hands doubled.
+		 */
+		private long doubled;
+
+		/**
+		 * The number of pairs split.
+		 */
+		private long split;
+
+		/**
+		 * The number of hands surrendered.
+		 */
+		private long surrendered;
+
+		/**
+		 * The number of times insurance was taken.
+		 */
+		private long insured;
+
+		/**
+		 * The number of rounds dealt.
+		 */
+		private long rounds;
+
+		/**
+		 * The number of cards dealt, to the seats and the dealer.
+		 */
+		private long cardsDealt;
+
+		/**
+		 * The number of seats the rounds were dealt to.
+		 */
+		private int seats;
+
+		/**
+		 * Adds another tally's counts to this one.
+		 * @param other the tally to add.
+		 */
+		public void add(Tally other) {
+			for (int i = 0; i < START_HANDS; i++) {
+				hands[i] += other.hands[i];
+				wins[i] += other.wins[i];
+				pushes[i] += other.pushes[i];
+				playerBusts[i] += other.playerBusts[i];
+				dealerBusts[i] += other.dealerBusts[i];
+				netHalfBets[i] += other.netHalfBets[i];
+			}
+			for (int c = 0; c < TRUE_COUNTS; c++) {
+				countHands[c] += other.countHands[c];
+				countNetHalfBets[c] += other.countNetHalfBets[c];
+			}
+			doubled += other.doubled;
+			split += other.split;
+			surrendered += other.surrendered;
+			insured += other.insured;
+			rounds += other.rounds;
+			cardsDealt += other.cardsDealt;
+			seats = Math.max(seats, other.seats);
+		}
+
+		/**
+		 * Accesses the total number of hands played.
+		 * @return the number of hands played.
+		 */
+		public long hands() {
+			return sum(hands);
+		}
+
+		/**
+		 * Computes the number of cards dealt per round.
+		 * @return the average number of cards per round, to every seat and
+		 *         the dealer, or 0 if no rounds were dealt.
+		 */
+		public double cardsPerRound() {
+			return rounds == 0 ? 0.0 : (double) cardsDealt / rounds;
+		}
+
+		/**
+		 * Computes the player's expected result per hand, in bets.
+		 * @return the average amount won (positive) or lost (negative)
+		 *         per hand, or 0 if no hands were played.
+		 */
+		public double expectedValue() {
+			return expectedValue(sum(netHalfBets), sum(hands));
+		}
+
+		/**
+		 * Prints the overall results followed by a line per starting hand.
+		 * @param strategy the strategy the hands were played with.
+		 */
+		public void printReport(BlackJackStrategy strategy) {
+			long played = sum(hands);
+			System.out.println("Strategy:     " + strategy);
+			System.out.println("Hands played: " + played);
+			System.out.println(String.format("Expected value: %+.4f bets per hand",
+				expectedValue()));
+			System.out.println("Player busts:  " + percent(sum(playerBusts), played));
+			System.out.println("Dealer busts:  " + percent(sum(dealerBusts), played));
+			System.out.println("Doubled:       " + percent(doubled, played)
+				+ "   Split: " + percent(split, played)
+				+ "   Surrendered: " + percent(surrendered, played)
+				+ "   Insured: " + percent(insured, played));
+			System.out.println(String.format("Cards/round:   %.2f at %d seat%s",
+				cardsPerRound(), seats, seats == 1 ? "" : "s"));
+			System.out.println(String.format("%-10s %12s %8s %8s %8s %8s %9s",
+				"Start", "Hands", "Win", "Push", "Loss", "Bust", "EV"));
+			for (int i = 0; i < START_HANDS; i++) {
+				if (hands[i] == 0) {
+					continue;
+				}
+				String start = (i >= SOFT_OFFSET ? "soft " + (i - SOFT_OFFSET)
+					: "hard " + i);
+				long losses = hands[i] - wins[i] - pushes[i];
+				System.out.println(String.format("%-10s %12d %8s %8s %8s %8s %+9.4f",
+					start, hands[i], percent(wins[i], hands[i]),
+					percent(pushes[i], hands[i]), percent(losses, hands[i]),
+					percent(playerBusts[i], hands[i]),
+					expectedValue(netHalfBets[i], hands[i])));
+			}
+			if (sum(countHands) == 0) {
+				return;
+			}
+			System.out.println(String.format("%-10s %12s %9s", "True count", "Hands", "EV"));
+			for (int c = 0; c < TRUE_COUNTS; c++) {
+				if (countHands[c] == 0) {
+					continue;
+				}
+				String count = String.format("%+d", c - MAX_TRUE_COUNT);
+				if (c == 0) {
+					count += " or less";
+				} else if (c == TRUE_COUNTS - 1) {
+					count += " or more";
+				}
+				System.out.println(String.format("%-10s %12d %+9.4f",
+					count, countHands[c],
+					expectedValue(countNetHalfBets[c], countHands[c])));
+			}
+		}
+
+		/**
+		 * Adds up an array of counts.
+		 * @param counts the counts.
+		 * @return the total.
+		 */
+		private static long sum(long[] counts) {
+			long total = 0;
+			for (long c : counts) {
+				total += c;
+			}
+			return total;
+		}
+
+		/**
+		 * Converts a net result in half bets into bets per hand.
+		 * @param halfBets the net result in half bets.
+		 * @param played the number of hands played.
+		 * @return the average result per hand, or 0 if none were played.
+		 */
+		private static double expectedValue(long halfBets, long played) {
+			return played == 0 ? 0.0 : halfBets / 2.0 / played;
+		}
+
+		/**
+		 * Formats a count as a percentage of a total.
+		 * @param count the count.
+		 * @param total the total.
+		 * @return the percentage, to one decimal place.
+		 */
+		private static String percent(long count, long total) {
+			return String.format("%.1f%%", total == 0 ? 0.0 : 100.0 * count / total);
+		}
+	}
+
+	/**
+	 * A thread that plays its share of the hands at its own table.
+	 */
+	private static class Worker extends Thread {
+
+		/**
+		 * The table this worker plays at.
+		 */
+		private BlackJackTable table;
+
+		/**
+		 * The number of hands this worker has to play.
+		 */
+		private long handsToPlay;
+
+		/**
+		 * The way every seat plays each hand.
+		 */
+		private BlackJackStrategy strategy;
+
+		/**
+		 * This worker's counts.
+		 */
+		private Tally tally = new Tally();
+
+		/**
+		 * The statistics shared by all the workers.
+		 */
+		private GameStatistics stats;
+
+		/**
+		 * The true count tally of the round being played,
+		 * or -1 if the shoe is not being counted.
+		 */
+		private int count = -1;
+
+		/**
+		 * The starting hand tally of each seat in the round being played.
+		 */
+		private int[] starts;
+
+		/**
+		 * The number of plays each seat made in the round being played.
+		 */
+		private int[] moves;
+
+		/**
+		 * Creates a new <code>Worker</code> instance.
+		 * @param seed the seed for this worker's shoe.
+		 * @param hands the number of hands to play.
+		 * @param playerStrategy the way every seat plays each hand.
+		 * @param decks the number of decks in the shoe.
+		 * @param sharedStats the statistics to record the hands in.
+		 * @param counting the counting system to count the shoe with,
+		 *        or null not to count.
+		 * @param seats the number of seats at the table.
+		 */
+		Worker(long seed, long hands, BlackJackStrategy playerStrategy, int decks,
+				GameStatistics sharedStats, CountingSystem counting, int seats) {
+			table = new BlackJackTable(seats, HAND_SIZE, decks, PENETRATION, false, seed);
+			table.setCountingSystem(counting);
+			handsToPlay = hands;
+			strategy = playerStrategy;
+			stats = sharedStats;
+			starts = new int[seats];
+			moves = new int[seats];
+			tally.seats = seats;
+		}
+
+		/**
+		 * Plays the hands, a round at a time.
+		 */
+		@Override
+		public void run() {
+			for (long k = 0; k < handsToPlay; k += table.seats()) {
+				playRound();
+			}
+			tally.rounds = table.rounds();
+			tally.cardsDealt = table.cardsDealt();
+		}
+
+		/**
+		 * Deals and plays out one round, and tallies the outcome of
+		 * every seat's hand.
+		 */
+		private void playRound() {
+			int seats = table.seats();
+			table.startRound();
+			CardCounter counter = table.getCounter();
+			if (counter != null) {
+				long c = Math.round(counter.trueCount());
+				count = MAX_TRUE_COUNT + (int) Math.max(-MAX_TRUE_COUNT,
+					Math.min(MAX_TRUE_COUNT, c));
+				tally.countHands[count] += seats;
+			}
+			table.dealHands();
+			int upCard = table.getDealerUpCardValue();
+			for (int seat = 0; seat < seats; seat++) {
+				BlackJackHand hand = table.hand(seat);
+				int start = hand.value();
+				int i = hand.isSoft() ? SOFT_OFFSET + start : start;
+				starts[seat] = i;
+				tally.hands[i]++;
+
+				if (table.canInsure(seat) && strategy.takesInsurance(hand, counter)) {
+					table.insure(seat);
+					tally.insured++;
+				}
+				moves[seat] = playHands(seat, upCard);
+			}
+			int dealer = table.playDealerHand();
+			for (int seat = 0; seat < seats; seat++) {
+				settleSeat(seat, dealer);
+			}
+		}
+
+		/**
+		 * Plays each of a seat's hands in turn as the strategy says, for
+		 * as long as the table allows; not at all if the seat or the
+		 * dealer has a blackjack.
+		 * @param seat the index of the seat.
+		 * @param upCard the point value of the dealer's face-up card.
+		 * @return the number of plays made, not counting stands.
+		 */
+		private int playHands(int seat, int upCard) {
+			int plays = 0;
+			do {
+				while (table.canHit(seat)) {
+					int play = strategy.play(table.hand(seat), upCard,
+						table.canDouble(seat), table.canSplit(seat),
+						table.canSurrender(seat));
+					if (play == BlackJackStrategy.STAND) {
+						break;
+					} else if (play == BlackJackStrategy.DOUBLE) {
+						table.doubleDown(seat);
+						tally.doubled++;
+					} else if (play == BlackJackStrategy.SPLIT) {
+						table.split(seat);
+						tally.split++;
+					} else if (play == BlackJackStrategy.SURRENDER) {
+						table.surrender(seat);
+						tally.surrendered++;
+					} else {
+						table.hit(seat);
+					}
+					plays++;
+				}
+			} while (table.nextHand(seat));
+			return plays;
+		}
+
+		/**
+		 * Settles a seat once the dealer has played, and tallies
+		 * its outcome.
+		 * @param seat the index of the seat.
+		 * @param dealer the final value of the dealer's hand.
+		 */
+		private void settleSeat(int seat, int dealer) {
+			int i = starts[seat];
+			boolean allBust = true;
+			for (int h = 0; h < table.handCount(seat); h++) {
+				allBust &= table.isBust(seat, h);
+			}
+			int net = table.settle(seat);
+			tally.netHalfBets[i] += net;
+			if (count >= 0) {
+				tally.countNetHalfBets[count] += net;
+			}
+			if (allBust) {
+				tally.playerBusts[i]++;
+			} else if (dealer > BlackJackHand.BLACKJACK) {
+				tally.dealerBusts[i]++;
+			}
+			if (net > 0) {
+				tally.wins[i]++;
+				stats.recordWin(moves[seat]);
+			} else if (net == 0) {
+				tally.pushes[i]++;
+				stats.recordPush(moves[seat]);
+			} else {
+				stats.recordLoss(moves[seat]);
+			}
+		}
+	}
+}
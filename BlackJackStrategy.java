@@ -0,0 +1,55 @@
+/**
+ * A <code>BlackJackStrategy</code> decides how the player plays a hand
+ * in a simulated game of blackjack.
+ */
+public interface BlackJackStrategy {
+
+	/**
+	 * Take another card.
+	 */
+	int HIT = 0;
+
+	/**
+	 * Take no more cards.
+	 */
+	int STAND = 1;
+
+	/**
+	 * Double the bet and take exactly one more card.
+	 */
+	int DOUBLE = 2;
+
+	/**
+	 * Split a pair into two hands.
+	 */
+	int SPLIT = 3;
+
+	/**
+	 * Give up the hand for half the bet back.
+	 */
+	int SURRENDER = 4;
+
+	/**
+	 * Decides what the player does next with a hand that can take
+	 * another card.
+	 * @param hand the hand being played.
+	 * @param dealerUpCard the point value of the dealer's face-up card;
+	 *                     1 for an ace.
+	 * @param canDouble true if the hand can be doubled.
+	 * @param canSplit true if the hand can be split.
+	 * @param canSurrender true if the player can surrender.
+	 * @return <code>HIT</code>, <code>STAND</code>, or one of
+	 *         <code>DOUBLE</code>, <code>SPLIT</code> and
+	 *         <code>SURRENDER</code> if it is allowed.
+	 */
+	int play(BlackJackHand hand, int dealerUpCard, boolean canDouble,
+		boolean canSplit, boolean canSurrender);
+
+	/**
+	 * Decides whether the player takes insurance when the dealer shows an ace.
+	 * @param hand the player's hand as dealt.
+	 * @param counter the count of the shoe, or null if it is not counted.
+	 * @return true to take insurance; false otherwise.
+	 */
+	boolean takesInsurance(BlackJackHand hand, CardCounter counter);
+}
@@ -0,0 +1,675 @@
+/**
+ * The BlackJackTable class models a blackjack table of up to seven seats,
+ * all dealt from one shared <code>Shoe</code> in the order a casino deals:
+ * one card to each seat from first base to third base, one to the dealer,
+ * then a second card around the table the same way.  Seats play their hands
+ * in turn, the dealer plays last, and only draws if some hand at the table
+ * still stands, so the cards used per round are those of a real table.
+ * As on <code>BlackJackBoard</code>, the dealer's first card is the
+ * face-down one, and the table plays by the same
+ * <code>BlackJackRules</code>.
+ * <p>
+ * The hands are kept as a structure of arrays rather than as objects:
+ * every seat has <code>BlackJackBoard.MAX_HANDS</code> hand slots, and a
+ * slot is an index into parallel arrays of cards, card counts, hard totals,
+ * aces and stakes, so a round reads and writes a few small arrays and
+ * allocates nothing.  <code>hand</code> views a seat's hand as a
+ * <code>BlackJackHand</code> for a <code>BlackJackStrategy</code>.
+ */
+public class BlackJackTable {
+
+	/**
+	 * The most seats a table can have.
+	 */
+	public static final int MAX_SEATS = 7;
+
+	/**
+	 * The number of hand slots each seat has.
+	 */
+	private static final int HANDS = BlackJackBoard.MAX_HANDS;
+
+	/**
+	 * The shoe every seat and the dealer are dealt from.
+	 */
+	private Shoe shoe;
+
+	/**
+	 * The number of seats at the table.
+	 */
+	private int seats;
+
+	/**
+	 * The most cards a hand can hold.
+	 */
+	private int capacity;
+
+	/**
+	 * The codes of the cards in every hand slot:
+	 * slot s holds its cards at <code>s * capacity</code> onwards.
+	 */
+	private int[] cards;
+
+	/**
+	 * The number of cards in each hand slot.
+	 */
+	private int[] cardCounts;
+
+	/**
+	 * The total of the point values in each hand slot,
+	 * with every ace counted as 1.
+	 */
+	private int[] hardTotals;
+
+	/**
+	 * The number of aces in each hand slot.
+	 */
+	private int[] aces;
+
+	/**
+	 * The bet on each hand slot, in bets: 1, or 2 once doubled.
+	 */
+	private int[] stakes;
+
+	/**
+	 * The number of hands each seat is playing.
+	 */
+	private int[] handCounts;
+
+	/**
+	 * The index of the hand each seat is playing.
+	 */
+	private int[] currentHands;
+
+	/**
+	 * Whether each seat split a pair of aces this round.
+	 */
+	private boolean[] splitAces;
+
+	/**
+	 * Whether each seat took insurance this round.
+	 */
+	private boolean[] insured;
+
+	/**
+	 * Whether each seat surrendered this round.
+	 */
+	private boolean[] surrendered;
+
+	/**
+	 * The dealer's cards.
+	 */
+	private BlackJackHand dealerHand;
+
+	/**
+	 * The hand handed out by <code>hand</code>, reused for every seat.
+	 */
+	private BlackJackHand view;
+
+	/**
+	 * Scratch space that receives the opening cards of a round.
+	 */
+	private int[] opening;
+
+	/**
+	 * The number of rounds dealt.
+	 */
+	private long rounds;
+
+	/**
+	 * The number of cards dealt.
+	 */
+	private long cardsDealt;
+
+	/**
+	 * Creates a new <code>BlackJackTable</code> instance dealt from a
+	 * multi-deck shoe whose shuffles are reproducible from the given seed.
+	 * @param seatCount the number of seats, from 1 to <code>MAX_SEATS</code>.
+	 * @param handSize the number of cards each hand can hold.
+	 * @param decks the number of decks in the shoe, from 1 to 8.
+	 * @param penetration the fraction of the shoe dealt before it is reshuffled.
+	 * @param continuousShuffle true to reshuffle the shoe before every round.
+	 * @param seed the seed for the shoe's random number generator.
+	 */
+	public BlackJackTable(int seatCount, int handSize, int decks, double penetration,
+			boolean continuousShuffle, long seed) {
+		if (seatCount < 1 || seatCount > MAX_SEATS) {
+			throw new IllegalArgumentException("A table has 1 to " + MAX_SEATS
+				+ " seats, not " + seatCount);
+		}
+		if (handSize < 2) {
+			throw new IllegalArgumentException("A hand must hold at least 2 cards");
+		}
+		shoe = new Shoe(BlackJackBoard.RANKS, BlackJackBoard.SUITS,
+			BlackJackBoard.POINT_VALUES, decks, penetration, continuousShuffle,
+			new XoroshiroRandom(seed));
+		seats = seatCount;
+		capacity = handSize;
+		int slots = seats * HANDS;
+		cards = new int[slots * capacity];
+		cardCounts = new int[slots];
+		hardTotals = new int[slots];
+		aces = new int[slots];
+		stakes = new int[slots];
+		handCounts = new int[seats];
+		currentHands = new int[seats];
+		splitAces = new boolean[seats];
+		insured = new boolean[seats];
+		surrendered = new boolean[seats];
+		dealerHand = new BlackJackHand(capacity);
+		view = new BlackJackHand(capacity);
+		opening = new int[2 * (seats + 1)];
+	}
+
+	/**
+	 * Starts a new round by dealing two cards to every seat
+	 * and to the dealer.
+	 */
+	public void newGame() {
+		startRound();
+		dealHands();
+	}
+
+	/**
+	 * Starts a new round without dealing it, reshuffling the shoe if it
+	 * is due, so that the count can be read as it stands when bets are
+	 * placed.  <code>dealHands</code> deals the round.
+	 */
+	public void startRound() {
+		shoe.startRound();
+	}
+
+	/**
+	 * Deals the opening cards of a round begun by <code>startRound</code>,
+	 * in casino order.
+	 */
+	public void dealHands() {
+		for (int s = 0; s < seats; s++) {
+			for (int h = 0; h < handCounts[s]; h++) {
+				clearSlot(s * HANDS + h);
+			}
+			handCounts[s] = 1;
+			currentHands[s] = 0;
+			stakes[s * HANDS] = 1;
+			splitAces[s] = false;
+			insured[s] = false;
+			surrendered[s] = false;
+		}
+		dealerHand.clear();
+		shoe.deal(opening, 0, opening.length);
+		cardsDealt += opening.length;
+		rounds++;
+		int k = 0;
+		for (int pass = 0; pass < 2; pass++) {
+			for (int s = 0; s < seats; s++) {
+				addCard(s * HANDS, opening[k]);
+				k++;
+			}
+			dealerHand.add(opening[k]);
+			k++;
+		}
+	}
+
+	/**
+	 * Starts or stops counting the cards as they are dealt from the shoe.
+	 * @param system the counting system to use, or null to stop counting.
+	 */
+	public void setCountingSystem(CountingSystem system) {
+		shoe.setCountingSystem(system);
+	}
+
+	/**
+	 * Accesses the counter that counts the cards dealt from the shoe.
+	 * @return the counter, or null if the cards are not being counted.
+	 */
+	public CardCounter getCounter() {
+		return shoe.counter();
+	}
+
+	/**
+	 * Accesses the number of seats at the table.
+	 * @return the number of seats.
+	 */
+	public int seats() {
+		return seats;
+	}
+
+	/**
+	 * Accesses the shoe's size.
+	 * @return the number of undealt cards left in the shoe.
+	 */
+	public int deckSize() {
+		return shoe.size();
+	}
+
+	/**
+	 * Accesses the number of rounds dealt at this table.
+	 * @return the number of rounds.
+	 */
+	public long rounds() {
+		return rounds;
+	}
+
+	/**
+	 * Accesses the number of cards dealt at this table.
+	 * @return the number of cards, to seats and dealer alike.
+	 */
+	public long cardsDealt() {
+		return cardsDealt;
+	}
+
+	/**
+	 * Accesses the dealer's hand.
+	 * @return the dealer's hand.
+	 */
+	public BlackJackHand getDealerHand() {
+		return dealerHand;
+	}
+
+	/**
+	 * Accesses the point value of the dealer's face-up card
+	 * (the second dealer card; the first is dealt face down).
+	 * @return the point value of the dealer's up card; 1 for an ace.
+	 */
+	public int getDealerUpCardValue() {
+		return CardCode.pointValue(dealerHand.codeAt(1));
+	}
+
+	/**
+	 * Accesses the number of hands a seat is playing.
+	 * @param seat the index of the seat, from 0 at first base.
+	 * @return 1, or more after splitting.
+	 */
+	public int handCount(int seat) {
+		return handCounts[seat];
+	}
+
+	/**
+	 * Accesses the index of the hand a seat is playing.
+	 * @param seat the index of the seat.
+	 * @return the index of the hand, from 0.
+	 */
+	public int currentHand(int seat) {
+		return currentHands[seat];
+	}
+
+	/**
+	 * Accesses the number of cards in one of a seat's hands.
+	 * @param seat the index of the seat.
+	 * @param h the index of the hand.
+	 * @return the number of cards.
+	 */
+	public int cardCount(int seat, int h) {
+		return cardCounts[slot(seat, h)];
+	}
+
+	/**
+	 * Accesses the code of a card in one of a seat's hands.
+	 * @param seat the index of the seat.
+	 * @param h the index of the hand.
+	 * @param k the position of the card, starting at 0.
+	 * @return the code (see <code>CardCode</code>) of the card.
+	 */
+	public int codeAt(int seat, int h, int k) {
+		int s = slot(seat, h);
+		if (k < 0 || k >= cardCounts[s]) {
+			throw new IndexOutOfBoundsException("Card " + k + " of " + cardCounts[s]);
+		}
+		return cards[s * capacity + k];
+	}
+
+	/**
+	 * Converts a card code from this table's shoe into a <code>Card</code>.
+	 * @param code the code of a card from the shoe.
+	 * @return the corresponding card, or null if code is
+	 *         <code>CardCode.NONE</code>.
+	 */
+	public Card card(int code) {
+		return shoe.card(code);
+	}
+
+	/**
+	 * Computes the best value of one of a seat's hands.
+	 * @param seat the index of the seat.
+	 * @param h the index of the hand.
+	 * @return the best value of the hand.
+	 */
+	public int value(int seat, int h) {
+		int s = slot(seat, h);
+		return BlackJackHand.valueOf(hardTotals[s], aces[s]);
+	}
+
+	/**
+	 * Determines if one of a seat's hands is worth more than 21.
+	 * @param seat the index of the seat.
+	 * @param h the index of the hand.
+	 * @return true if the hand is bust; false otherwise.
+	 */
+	public boolean isBust(int seat, int h) {
+		return hardTotals[slot(seat, h)] > BlackJackHand.BLACKJACK;
+	}
+
+	/**
+	 * Accesses the bet on one of a seat's hands.
+	 * @param seat the index of the seat.
+	 * @param h the index of the hand.
+	 * @return the bet, in bets: 1, or 2 if the hand was doubled.
+	 */
+	public int stake(int seat, int h) {
+		return stakes[slot(seat, h)];
+	}
+
+	/**
+	 * Determines if a seat was dealt a blackjack: a natural in its only hand.
+	 * @param seat the index of the seat.
+	 * @return true if the seat has a blackjack; false otherwise.
+	 */
+	public boolean isBlackjack(int seat) {
+		int s = seat * HANDS;
+		return handCounts[seat] == 1 && cardCounts[s] == 2
+			&& BlackJackHand.isNaturalTotal(hardTotals[s], aces[s]);
+	}
+
+	/**
+	 * Views the hand a seat is playing as a <code>BlackJackHand</code>,
+	 * e.g. to ask a strategy how to play it.  The same hand object is
+	 * returned for every seat, and is only valid until the next call.
+	 * @param seat the index of the seat.
+	 * @return a copy of the seat's hand.
+	 */
+	public BlackJackHand hand(int seat) {
+		int s = currentSlot(seat);
+		view.setCards(cards, s * capacity, cardCounts[s]);
+		return view;
+	}
+
+	/**
+	 * Determines if the hand a seat is playing can take another card.
+	 * @param seat the index of the seat.
+	 * @return true if the hand can be hit; false otherwise.
+	 */
+	public boolean canHit(int seat) {
+		int s = currentSlot(seat);
+		return BlackJackRules.canHit(isLive(seat), cardCounts[s], capacity,
+			BlackJackHand.valueOf(hardTotals[s], aces[s]));
+	}
+
+	/**
+	 * Deals another card to the hand a seat is playing.
+	 * @param seat the index of the seat.
+	 */
+	public void hit(int seat) {
+		if (!canHit(seat)) {
+			throw new IllegalStateException("The hand cannot be hit");
+		}
+		addCard(currentSlot(seat), draw());
+	}
+
+	/**
+	 * Determines if the hand a seat is playing can be doubled.
+	 * @param seat the index of the seat.
+	 * @return true if the hand can be doubled; false otherwise.
+	 */
+	public boolean canDouble(int seat) {
+		return BlackJackRules.canDouble(isLive(seat), cardCounts[currentSlot(seat)],
+			capacity);
+	}
+
+	/**
+	 * Doubles the bet on the hand a seat is playing and deals it one
+	 * more card, its last.
+	 * @param seat the index of the seat.
+	 */
+	public void doubleDown(int seat) {
+		if (!canDouble(seat)) {
+			throw new IllegalStateException("The hand cannot be doubled");
+		}
+		int s = currentSlot(seat);
+		stakes[s] = 2;
+		addCard(s, draw());
+	}
+
+	/**
+	 * Determines if the hand a seat is playing can be split.
+	 * @param seat the index of the seat.
+	 * @return true if the hand can be split; false otherwise.
+	 */
+	public boolean canSplit(int seat) {
+		int s = currentSlot(seat);
+		return BlackJackRules.canSplit(isLive(seat), handCounts[seat], cardCounts[s],
+			cards[s * capacity], cards[s * capacity + 1]);
+	}
+
+	/**
+	 * Splits the hand a seat is playing into two hands with a bet each,
+	 * and deals the hand being played its second card.  The new hand is
+	 * played last, and is dealt its second card when <code>nextHand</code>
+	 * reaches it.  Split aces take just one more card each.
+	 * @param seat the index of the seat.
+	 */
+	public void split(int seat) {
+		if (!canSplit(seat)) {
+			throw new IllegalStateException("The hand cannot be split");
+		}
+		int s = currentSlot(seat);
+		int moved = cards[s * capacity + 1];
+		int value = CardCode.pointValue(moved);
+		cardCounts[s] = 1;
+		hardTotals[s] -= value;
+		if (value == 1) {
+			aces[s]--;
+			splitAces[seat] = true;
+		}
+		int added = seat * HANDS + handCounts[seat];
+		clearSlot(added);
+		addCard(added, moved);
+		stakes[added] = 1;
+		handCounts[seat]++;
+		addCard(s, draw());
+	}
+
+	/**
+	 * Moves a seat on to its next hand once the hand it is playing is
+	 * finished, dealing it its second card if it was split off.
+	 * @param seat the index of the seat.
+	 * @return true if the seat had another hand to play; false if every
+	 *         hand has been played.
+	 */
+	public boolean nextHand(int seat) {
+		if (currentHands[seat] + 1 >= handCounts[seat]) {
+			return false;
+		}
+		currentHands[seat]++;
+		int s = currentSlot(seat);
+		if (cardCounts[s] == 1) {
+			addCard(s, draw());
+		}
+		return true;
+	}
+
+	/**
+	 * Determines if a seat can take insurance: the dealer shows an ace and
+	 * the seat has not yet done anything with its first two cards.
+	 * @param seat the index of the seat.
+	 * @return true if insurance can be taken; false otherwise.
+	 */
+	public boolean canInsure(int seat) {
+		return BlackJackRules.canInsure(insured[seat], surrendered[seat],
+			handCounts[seat], cardCounts[seat * HANDS], getDealerUpCardValue());
+	}
+
+	/**
+	 * Takes insurance for a seat: a side bet of half a bet that the dealer
+	 * has a blackjack, which pays 2 to 1.
+	 * @param seat the index of the seat.
+	 */
+	public void insure(int seat) {
+		if (!canInsure(seat)) {
+			throw new IllegalStateException("Insurance is not offered");
+		}
+		insured[seat] = true;
+	}
+
+	/**
+	 * Determines if a seat can surrender: it has not yet done anything
+	 * with its first two cards (late surrender, once the dealer has
+	 * peeked and found no blackjack).
+	 * @param seat the index of the seat.
+	 * @return true if the seat can surrender; false otherwise.
+	 */
+	public boolean canSurrender(int seat) {
+		return BlackJackRules.canSurrender(isLive(seat), handCounts[seat],
+			cardCounts[seat * HANDS]);
+	}
+
+	/**
+	 * Gives up a seat's hand for half the bet back.
+	 * @param seat the index of the seat.
+	 */
+	public void surrender(int seat) {
+		if (!canSurrender(seat)) {
+			throw new IllegalStateException("The hand cannot be surrendered");
+		}
+		surrendered[seat] = true;
+	}
+
+	/**
+	 * Plays out the dealer's hand once every seat has played: the dealer
+	 * draws while <code>BlackJackRules.dealerDraws</code>, but only if some
+	 * hand at the table still stands against it.
+	 * @return the final value of the dealer's hand.
+	 */
+	public int playDealerHand() {
+		if (needsDealer()) {
+			long start = GameMetrics.start();
+			while (BlackJackRules.dealerDraws(dealerHand.value())
+					&& !dealerHand.isFull()) {
+				dealerHand.add(draw());
+			}
+			GameMetrics.DEALER_PLAY.stop(start);
+		}
+		return dealerHand.value();
+	}
+
+	/**
+	 * Works out what a seat won or lost this round, once the dealer's
+	 * hand has been played, by the <code>BlackJackRules</code>.
+	 * @param seat the index of the seat.
+	 * @return the seat's net result in half bets: positive if it won,
+	 *         negative if it lost.
+	 */
+	public int settle(int seat) {
+		int net = BlackJackRules.insurance(insured[seat], dealerHand.isBlackjack());
+		int opening = settleOpening(seat);
+		if (opening != BlackJackRules.NOT_SETTLED) {
+			return net + opening;
+		}
+		int dealer = dealerHand.value();
+		for (int h = 0; h < handCounts[seat]; h++) {
+			int s = slot(seat, h);
+			net += BlackJackRules.settleHand(BlackJackHand.valueOf(hardTotals[s], aces[s]),
+				stakes[s], dealer);
+		}
+		return net;
+	}
+
+	/**
+	 * Determines if the hand a seat is playing can still be played at all
+	 * (see <code>BlackJackRules.isLive</code>).
+	 * @param seat the index of the seat.
+	 * @return true if the hand can be played; false otherwise.
+	 */
+	private boolean isLive(int seat) {
+		return BlackJackRules.isLive(dealerHand.isBlackjack(), isBlackjack(seat),
+			surrendered[seat], splitAces[seat], stakes[currentSlot(seat)]);
+	}
+
+	/**
+	 * Works out what a seat won or lost if its round is settled by the
+	 * opening cards alone (see <code>BlackJackRules.settleOpening</code>).
+	 * @param seat the index of the seat.
+	 * @return the result in half bets, or
+	 *         <code>BlackJackRules.NOT_SETTLED</code>.
+	 */
+	private int settleOpening(int seat) {
+		return BlackJackRules.settleOpening(dealerHand.isBlackjack(),
+			isBlackjack(seat), surrendered[seat]);
+	}
+
+	/**
+	 * Determines if the dealer has to draw: some seat's round is not
+	 * settled by the opening cards and still has a hand that is not bust.
+	 * @return true if the dealer plays; false otherwise.
+	 */
+	private boolean needsDealer() {
+		for (int seat = 0; seat < seats; seat++) {
+			if (settleOpening(seat) != BlackJackRules.NOT_SETTLED) {
+				continue;
+			}
+			for (int h = 0; h < handCounts[seat]; h++) {
+				if (hardTotals[slot(seat, h)] <= BlackJackHand.BLACKJACK) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds the slot of one of a seat's hands.
+	 * @param seat the index of the seat.
+	 * @param h the index of the hand.
+	 * @return the index of the hand's slot.
+	 */
+	private int slot(int seat, int h) {
+		if (h < 0 || h >= handCounts[seat]) {
+			throw new IndexOutOfBoundsException("Hand " + h + " of " + handCounts[seat]);
+		}
+		return seat * HANDS + h;
+	}
+
+	/**
+	 * Finds the slot of the hand a seat is playing.
+	 * @param seat the index of the seat.
+	 * @return the index of the hand's slot.
+	 */
+	private int currentSlot(int seat) {
+		return seat * HANDS + currentHands[seat];
+	}
+
+	/**
+	 * Empties a hand slot.
+	 * @param s the index of the slot.
+	 */
+	private void clearSlot(int s) {
+		cardCounts[s] = 0;
+		hardTotals[s] = 0;
+		aces[s] = 0;
+	}
+
+	/**
+	 * Adds a card to a hand slot.  A <code>CardCode.NONE</code> takes a
+	 * place in the hand but adds nothing to it.
+	 * @param s the index of the slot.
+	 * @param code the code of the card.
+	 */
+	private void addCard(int s, int code) {
+		cards[s * capacity + cardCounts[s]] = code;
+		cardCounts[s]++;
+		if (code != CardCode.NONE) {
+			int value = CardCode.pointValue(code);
+			hardTotals[s] += value;
+			if (value == 1) {
+				aces[s]++;
+			}
+		}
+	}
+
+	/**
+	 * Deals a card from the shoe.
+	 * @return the code of the card.
+	 */
+	private int draw() {
+		cardsDealt++;
+		return shoe.deal();
+	}
+}
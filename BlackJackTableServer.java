@@ -0,0 +1,477 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The BlackJackTableServer class hosts blackjack tables without a display,
+ * for clients that connect over a local socket.  Every connection gets a
+ * table of its own: its own <code>BlackJackBoard</code> with its own seeded
+ * shoe, played on its own thread, so tables share no mutable game state.
+ * Where the JVM has virtual threads each table runs on one, so thousands
+ * of tables cost little more than their boards; otherwise each runs on a
+ * pooled platform thread.
+ * <p>
+ * A client sends one command per line and gets one reply line back:
+ * <pre>
+ *     new    DEAL value cards dealer-cards
+ *     hit    CARD value cards
+ *     stay   WIN|LOSE|PUSH value cards dealer-value dealer-cards
+ *     count  COUNT running-count true-count cards-left values-left
+ *     stats  STATS outcomes
+ *     quit   BYE
+ * </pre>
+ * Cards are written in their short form, separated by commas, e.g.
+ * <code>DEAL 14 AS,3D ??,7D</code>; the dealer's face-down card is
+ * written as <code>??</code> until the hand is settled.  A hand settles
+ * as soon as it is decided, so <code>new</code> answers with a
+ * <code>WIN</code>, <code>LOSE</code> or <code>PUSH</code> when either
+ * hand is a blackjack, and <code>hit</code> answers with a
+ * <code>LOSE</code> when the player busts.  Starting a new hand before the
+ * last one is settled forfeits it.  The count is that of the table's
+ * counting system (Hi-Lo unless another is given), with the number of
+ * cards left of each point value from ace to ten, e.g.
+ * <code>COUNT -3 -1.02 153 12,11,12,...</code>; it is only given between
+ * hands, since it includes the dealer's face-down card.  A table's shoe
+ * is full until its first hand is dealt.  Hands are settled by
+ * <code>BlackJackRules</code>, as they are on a <code>BlackJackBoard</code>.
+ * Any other
+ * command, or one that makes no sense in the table's state, gets an
+ * <code>ERR</code> reply.
+ */
+public class BlackJackTableServer {
+
+	/**
+	 * The port the server listens on when none is given.
+	 */
+	public static final int DEFAULT_PORT = 7021;
+
+	/**
+	 * The number of cards each hand can hold; enough for any hand
+	 * that can be played from an eight-deck shoe without busting.
+	 */
+	private static final int HAND_SIZE = 21;
+
+	/**
+	 * The fraction of the shoe dealt before it is reshuffled.
+	 */
+	private static final double PENETRATION = 0.75;
+
+	/**
+	 * The size of each table's line buffers, in characters;
+	 * a command or reply is much shorter than this.
+	 */
+	private static final int LINE_BUFFER = 256;
+
+	/**
+	 * The socket tables are accepted on.
+	 */
+	private ServerSocket serverSocket;
+
+	/**
+	 * Runs every table on a thread of its own.
+	 */
+	private ExecutorService tables;
+
+	/**
+	 * The seed from which every table's shoe seed is derived.
+	 */
+	private long seed;
+
+	/**
+	 * The number of decks in each table's shoe.
+	 */
+	private int decks;
+
+	/**
+	 * The counting system each table's shoe is counted with.
+	 */
+	private volatile CountingSystem counting = CountingSystem.HI_LO;
+
+	/**
+	 * The number of tables opened so far.
+	 */
+	private AtomicLong tablesOpened = new AtomicLong();
+
+	/**
+	 * The outcome of every hand played at any table.
+	 */
+	private GameStatistics stats = new GameStatistics();
+
+	/**
+	 * The thread that accepts connections, once started.
+	 */
+	private Thread acceptor;
+
+	/**
+	 * Starts a server on the given port of the loopback address, with
+	 * tables dealt from a shoe of the given size.  Tables are not accepted
+	 * until <code>start</code> is called.
+	 * @param port the port to listen on, or 0 for any free port.
+	 * @param runSeed the seed from which every table's shoe seed is derived.
+	 * @param shoeDecks the number of decks in each table's shoe, from 1 to 8.
+	 * @throws IOException if the port cannot be listened on.
+	 */
+	public BlackJackTableServer(int port, long runSeed, int shoeDecks) throws IOException {
+		if (shoeDecks < 1 || shoeDecks > 8) {
+			throw new IllegalArgumentException("decks must be from 1 to 8: " + shoeDecks);
+		}
+		serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+		seed = runSeed;
+		decks = shoeDecks;
+	}
+
+	/**
+	 * Hosts blackjack tables until the JVM is stopped.
+	 * @param args are, in order and all optional: the port to listen on,
+	 *             the random seed, the number of decks in each shoe, and
+	 *             the counting system ("hilo", "ko" or "omega2").
+	 * @throws IOException if the port cannot be listened on.
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = DEFAULT_PORT;
+		long seed = System.nanoTime();
+		int decks = 1;
+		if (args.length > 0) {
+			port = Integer.parseInt(args[0]);
+		}
+		if (args.length > 1) {
+			seed = Long.parseLong(args[1]);
+		}
+		if (args.length > 2) {
+			decks = Integer.parseInt(args[2]);
+		}
+		BlackJackTableServer server = new BlackJackTableServer(port, seed, decks);
+		if (args.length > 3) {
+			server.setCountingSystem(CountingSystem.forName(args[3]));
+		}
+		server.start();
+		System.out.println("Hosting blackjack tables on localhost:" + server.port());
+	}
+
+	/**
+	 * Creates an executor that runs every task on a new virtual thread
+	 * where the JVM has them, and otherwise on a pooled platform thread.
+	 * @return the executor.
+	 */
+	public static ExecutorService newPerTaskExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			// Virtual threads are missing, or still a preview feature.
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	/**
+	 * Starts accepting tables on a thread of its own.
+	 * A server can only be started once.
+	 */
+	public synchronized void start() {
+		if (acceptor != null) {
+			throw new IllegalStateException("The server has already been started");
+		}
+		tables = newPerTaskExecutor();
+		acceptor = new Thread("blackjack-tables") {
+			@Override
+			public void run() {
+				acceptTables();
+			}
+		};
+		acceptor.start();
+	}
+
+	/**
+	 * Stops accepting tables.  Tables already open are played until
+	 * their clients quit or disconnect.
+	 * @throws IOException if the server socket cannot be closed.
+	 */
+	public synchronized void close() throws IOException {
+		serverSocket.close();
+		if (tables != null) {
+			tables.shutdown();
+		}
+	}
+
+	/**
+	 * Sets the counting system used by the tables opened from now on.
+	 * @param system the counting system.
+	 */
+	public void setCountingSystem(CountingSystem system) {
+		if (system == null) {
+			throw new IllegalArgumentException("A counting system is needed");
+		}
+		counting = system;
+	}
+
+	/**
+	 * Accesses the port the server listens on.
+	 * @return the port.
+	 */
+	public int port() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Accesses the number of tables opened so far.
+	 * @return the number of connections accepted.
+	 */
+	public long tablesOpened() {
+		return tablesOpened.get();
+	}
+
+	/**
+	 * Accesses the outcomes of the hands played at every table.
+	 * @return the statistics the tables record their hands in.
+	 */
+	public GameStatistics statistics() {
+		return stats;
+	}
+
+	/**
+	 * Accepts connections until the server socket is closed,
+	 * opening a table for each.
+	 */
+	private void acceptTables() {
+		while (!serverSocket.isClosed()) {
+			Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (IOException e) {
+				// Closing the server socket ends the wait for a connection.
+				return;
+			}
+			long number = tablesOpened.getAndIncrement();
+			tables.execute(new Table(socket, SimulationEngine.gameSeed(seed, number),
+				counting));
+		}
+	}
+
+	/**
+	 * One table: a board and the client playing at it.
+	 * Only the table's own thread touches its board.
+	 */
+	private class Table implements Runnable {
+
+		/**
+		 * The connection to the client playing at this table.
+		 */
+		private Socket socket;
+
+		/**
+		 * The board this table is played on.
+		 */
+		private BlackJackBoard board;
+
+		/**
+		 * The reply being built, reused for every command.
+		 */
+		private StringBuilder reply = new StringBuilder(LINE_BUFFER);
+
+		/**
+		 * True while a hand has been dealt and not yet settled.
+		 */
+		private boolean inPlay;
+
+		/**
+		 * The number of cards the player has drawn in the hand in play.
+		 */
+		private int hits;
+
+		/**
+		 * Creates a new <code>Table</code> instance.
+		 * @param client the connection to the client playing at the table.
+		 * @param shoeSeed the seed for the table's shoe.
+		 * @param system the counting system the table's shoe is counted with.
+		 */
+		Table(Socket client, long shoeSeed, CountingSystem system) {
+			socket = client;
+			board = new BlackJackBoard(HAND_SIZE, decks, PENETRATION, false, shoeSeed);
+			board.setCountingSystem(system);
+			// The board deals a round when it is created; put it back, so
+			// that nothing is dealt, or counted, before the first hand.
+			board.shuffleDeck();
+		}
+
+		/**
+		 * Answers the client's commands until it quits or disconnects.
+		 */
+		@Override
+		public void run() {
+			try {
+				try {
+					socket.setTcpNoDelay(true);
+					BufferedReader in = new BufferedReader(new InputStreamReader(
+						socket.getInputStream(), StandardCharsets.US_ASCII), LINE_BUFFER);
+					Writer out = new BufferedWriter(new OutputStreamWriter(
+						socket.getOutputStream(), StandardCharsets.US_ASCII), LINE_BUFFER);
+					boolean open = true;
+					while (open) {
+						String line = in.readLine();
+						if (line == null) {
+							break;
+						}
+						reply.setLength(0);
+						open = answer(line.trim());
+						reply.append('\n');
+						out.append(reply);
+						out.flush();
+					}
+				} finally {
+					socket.close();
+				}
+			} catch (IOException e) {
+				// The client has gone away; the table closes with it.
+			}
+		}
+
+		/**
+		 * Carries out a command and builds its reply.
+		 * @param command the command sent by the client.
+		 * @return false if the client has quit; true otherwise.
+		 * @throws IOException if the reply cannot be built.
+		 */
+		private boolean answer(String command) throws IOException {
+			if (command.equalsIgnoreCase("new")) {
+				deal();
+			} else if (command.equalsIgnoreCase("hit")) {
+				hit();
+			} else if (command.equalsIgnoreCase("stay")) {
+				stay();
+			} else if (command.equalsIgnoreCase("count")) {
+				count();
+			} else if (command.equalsIgnoreCase("stats")) {
+				reply.append("STATS ").append(stats.snapshot());
+			} else if (command.equalsIgnoreCase("quit")) {
+				reply.append("BYE");
+				return false;
+			} else {
+				reply.append("ERR unknown command: ").append(command);
+			}
+			return true;
+		}
+
+		/**
+		 * Deals a new hand, settling it at once if either hand is a blackjack.
+		 * @throws IOException if the reply cannot be built.
+		 */
+		private void deal() throws IOException {
+			if (inPlay) {
+				stats.recordLoss(hits);
+			}
+			board.newGame();
+			inPlay = true;
+			hits = 0;
+			int opening = BlackJackRules.settleOpening(board.getDealerHand().isBlackjack(),
+				board.getMyHand().isBlackjack(), false);
+			if (opening != BlackJackRules.NOT_SETTLED) {
+				settle(opening);
+			} else {
+				reply.append("DEAL ");
+				appendMyHand();
+				reply.append(' ');
+				board.appendDealerCards(reply, false);
+			}
+		}
+
+		/**
+		 * Deals the player another card, settling the hand if it busts.
+		 * @throws IOException if the reply cannot be built.
+		 */
+		private void hit() throws IOException {
+			if (!inPlay) {
+				reply.append("ERR no hand in play");
+				return;
+			}
+			if (!board.canHit()) {
+				reply.append("ERR the hand cannot be hit");
+				return;
+			}
+			board.dealToMyCard();
+			hits++;
+			if (board.getMyHand().isBust()) {
+				settle(board.settle());
+			} else {
+				reply.append("CARD ");
+				appendMyHand();
+			}
+		}
+
+		/**
+		 * Plays out the dealer's hand and settles the hand in play.
+		 * @throws IOException if the reply cannot be built.
+		 */
+		private void stay() throws IOException {
+			if (!inPlay) {
+				reply.append("ERR no hand in play");
+				return;
+			}
+			settle(board.settle());
+		}
+
+		/**
+		 * Replies with the count of the table's shoe, if no hand is in play.
+		 */
+		private void count() {
+			if (inPlay) {
+				reply.append("ERR the count is given between hands");
+				return;
+			}
+			CardCounter counter = board.getCounter();
+			reply.append("COUNT ").append(counter.runningCount()).append(' ');
+			reply.append(String.format(Locale.ROOT, "%.2f", counter.trueCount()));
+			reply.append(' ').append(counter.cardsLeft()).append(' ');
+			for (int v = 1; v <= CountingSystem.MAX_VALUE; v++) {
+				if (v > 1) {
+					reply.append(',');
+				}
+				reply.append(counter.valueLeft(v));
+			}
+		}
+
+		/**
+		 * Ends the hand in play, records its outcome,
+		 * and replies with the outcome and both hands.
+		 * @param amount what the hand won or lost, in half bets
+		 *        (see <code>BlackJackRules</code>).
+		 * @throws IOException if the reply cannot be built.
+		 */
+		private void settle(int amount) throws IOException {
+			inPlay = false;
+			if (amount > 0) {
+				stats.recordWin(hits);
+				reply.append("WIN ");
+			} else if (amount == 0) {
+				stats.recordPush(hits);
+				reply.append("PUSH ");
+			} else {
+				stats.recordLoss(hits);
+				reply.append("LOSE ");
+			}
+			appendMyHand();
+			reply.append(' ').append(board.getDealerHandSum()).append(' ');
+			board.appendDealerCards(reply, true);
+		}
+
+		/**
+		 * Adds the value and cards of the player's hand to the reply.
+		 * @throws IOException if the reply cannot be built.
+		 */
+		private void appendMyHand() throws IOException {
+			reply.append(board.getMyHandSum()).append(' ');
+			board.appendMyCards(reply);
+		}
+	}
+}
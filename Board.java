@@ -1,5 +1,7 @@
+import java.io.IOException;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * This class represents a Board that can be used in a collection
@@ -9,15 +11,53 @@ import java.util.ArrayList;
 public abstract class Board {
 
 	/**
-	 * The cards on this board.
+	 * The codes (see <code>CardCode</code>) of the cards on this board.
+	 * Empty positions hold <code>CardCode.NONE</code>.
 	 */
-	private Card[] cards;
+	private int[] cards;
 
 	/**
 	 * The deck of cards being used to play the current game.
 	 */
 	private Deck deck;
 
+	/**
+	 * Scratch space used to pass a list of selected cards
+	 * on to the array forms of <code>isLegal</code> and
+	 * <code>replaceSelectedCards</code>.
+	 */
+	private int[] selection;
+
+	/**
+	 * Scratch space that receives the cards dealt by
+	 * <code>replaceSelectedCards</code>.
+	 */
+	private int[] dealt;
+
+	/**
+	 * The number of cards on the board with each point value,
+	 * kept up to date as cards are dealt.
+	 */
+	private int[] valueCounts;
+
+	/**
+	 * The number of cards on the board with each rank index,
+	 * kept up to date as cards are dealt.
+	 */
+	private int[] rankCounts;
+
+	/**
+	 * The positions whose cards have changed since the display last
+	 * asked for them.
+	 */
+	private SlotChanges changes;
+
+	/**
+	 * Records the deals and moves of every game, or null when
+	 * nothing is being recorded.
+	 */
+	private GameTraceWriter trace;
+
 	/**
 	 * Flag used to control debugging print statements.
 	 */
@@ -32,10 +72,43 @@ public abstract class Board {
 	 *                    the deck
 	 */
 	public Board(int size, String[] ranks, String[] suits, int[] pointValues) {
-		cards = new Card[size];
-		deck = new Deck(ranks, suits, pointValues);
+		this(size, new Deck(ranks, suits, pointValues));
+	}
+
+	/**
+	 * Creates a new <code>Board</code> instance whose deck shuffles
+	 * are reproducible from the given seed.
+	 * @param size the number of cards in the board
+	 * @param ranks the names of the card ranks needed to create the deck
+	 * @param suits the names of the card suits needed to create the deck
+	 * @param pointValues the integer values of the cards needed to create
+	 *                    the deck
+	 * @param seed the seed for the deck's random number generator
+	 */
+	public Board(int size, String[] ranks, String[] suits, int[] pointValues,
+			long seed) {
+		this(size, new Deck(ranks, suits, pointValues, seed));
+	}
+
+	/**
+	 * Creates a new <code>Board</code> instance that plays with the given deck.
+	 * @param size the number of cards in the board
+	 * @param gameDeck the deck of cards used to play
+	 */
+	private Board(int size, Deck gameDeck) {
+		cards = new int[size];
+		selection = new int[size];
+		dealt = new int[size];
+		valueCounts = new int[CardCode.MAX_FIELD + 1];
+		rankCounts = new int[CardCode.MAX_FIELD + 1];
+		changes = new SlotChanges(size);
+		deck = gameDeck;
 		if (I_AM_DEBUGGING) {
-			System.out.println(deck);
+			try {
+				deck.appendTo(System.out);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
 			System.out.println("----------");
 		}
 		dealMyCards();
@@ -47,9 +120,43 @@ public abstract class Board {
 	 */
 	public void newGame() {
 		deck.shuffle();
+		if (trace != null) {
+			trace.startGame(deck);
+		}
+		dealMyCards();
+	}
+
+	/**
+	 * Start a new game with the cards dealt in the given order instead of
+	 * shuffling, e.g. to replay a recorded game.
+	 * @param dealOrder the ordinals (see <code>Deck.ordinal</code>) of
+	 *        every card of the deck, in the order they are to be dealt.
+	 */
+	public void newGame(int[] dealOrder) {
+		deck.setOrder(dealOrder);
+		if (trace != null) {
+			trace.startGame(deck);
+		}
 		dealMyCards();
 	}
 
+	/**
+	 * Starts or stops recording the deal and moves of every game.
+	 * @param gameTrace where to record the games, or null to stop recording.
+	 */
+	public void setTrace(GameTraceWriter gameTrace) {
+		trace = gameTrace;
+	}
+
+	/**
+	 * Reseeds the deck, so that the deals of the games that
+	 * follow are determined by the seed.
+	 * @param seed the new seed.
+	 */
+	public void setSeed(long seed) {
+		deck.setSeed(seed);
+	}
+
 	/**
 	 * Accesses the size of the board.
 	 * Note that this is not the number of cards it contains,
@@ -66,20 +173,83 @@ public abstract class Board {
 	 */
 	public boolean isEmpty() {
 		for (int k = 0; k < cards.length; k++) {
-			if (cards[k] != null) {
+			if (cards[k] != CardCode.NONE) {
 				return false;
 			}
 		}
 		return true;
 	}
 
+	/**
+	 * Counts the cards on the board.
+	 * @return the number of non-empty positions.
+	 */
+	public int cardCount() {
+		int n = 0;
+		for (int k = 0; k < cards.length; k++) {
+			if (cards[k] != CardCode.NONE) {
+				n++;
+			}
+		}
+		return n;
+	}
+
 	/**
 	 * Deal a card to the kth position in this board.
 	 * If the deck is empty, the kth card is set to null.
 	 * @param k the index of the card to be dealt.
 	 */
 	public void deal(int k) {
-		cards[k] = deck.deal();
+		place(k, deck.dealCode());
+	}
+
+	/**
+	 * Copies out the positions whose cards have changed since the last
+	 * call, so that a display can redraw just those positions.
+	 * @param slots receives the changed positions; it must be at least
+	 *        <code>size()</code> long.
+	 * @return the number of positions stored in slots.
+	 */
+	public int drainChanges(int[] slots) {
+		return changes.drain(slots);
+	}
+
+	/**
+	 * Captures the cards on this board and the state of its deck, so
+	 * that a search can try moves and back out of them, or a game can
+	 * undo them.  This takes time proportional to the size of the board;
+	 * the deck's cards are shared with the snapshot, not copied
+	 * (see <code>Deck.snapshot</code>).
+	 * @return the state of this board.
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot(cards.clone(), deck.snapshot());
+	}
+
+	/**
+	 * Puts this board and its deck back the way they were when a
+	 * snapshot was taken, in time proportional to the size of the board.
+	 * Positions whose cards change are marked as changed.  Restoring is
+	 * not recorded in the game trace.
+	 * @param state a snapshot of this board, or of one of the same kind.
+	 */
+	public void restore(Snapshot state) {
+		if (state.cards.length != cards.length) {
+			throw new IllegalArgumentException("Expected a board of "
+				+ cards.length + " cards but got " + state.cards.length);
+		}
+		deck.restore(state.deck);
+		for (int k = 0; k < cards.length; k++) {
+			place(k, state.cards[k]);
+		}
+	}
+
+	/**
+	 * Marks every position as changed, e.g. before a display
+	 * draws the board for the first time.
+	 */
+	public void markAllChanged() {
+		changes.markAll();
 	}
 
 	/**
@@ -90,24 +260,136 @@ public abstract class Board {
 		return deck.size();
 	}
 
+	/**
+	 * Accesses the number of cards in the deck, dealt or not.
+	 * @return the number of cards in the deck.
+	 */
+	public int deckTotalSize() {
+		return deck.totalSize();
+	}
+
+	/**
+	 * Looks ahead at an undealt card in the deck without dealing it.
+	 * @param i how many cards will be dealt before it; 0 is the next card.
+	 * @return the code (see <code>CardCode</code>) of that card.
+	 */
+	public int deckCodeAt(int i) {
+		return deck.peekCode(i);
+	}
+
 	/**
 	 * Accesses a card on the board.
 	 * @return the card at position k on the board.
 	 * @param k is the board position of the card to return.
 	 */
 	public Card cardAt(int k) {
+		return deck.card(cards[k]);
+	}
+
+	/**
+	 * Accesses the code of a card on the board.
+	 * @return the code (see <code>CardCode</code>) of the card at position k
+	 *         on the board, or <code>CardCode.NONE</code> if it is empty.
+	 * @param k is the board position of the card.
+	 */
+	public int codeAt(int k) {
 		return cards[k];
 	}
 
+	/**
+	 * Accesses the point value of a card on the board.
+	 * @return the point value of the card at position k on the board.
+	 * @param k is the board position of a non-empty position.
+	 */
+	public int pointValueAt(int k) {
+		return CardCode.pointValue(cards[k]);
+	}
+
+	/**
+	 * Accesses the rank of a card on the board.
+	 * @return the index of the rank of the card at position k on the board,
+	 *         or -1 if the position is empty.
+	 * @param k is the board position of the card.
+	 */
+	public int rankAt(int k) {
+		if (cards[k] == CardCode.NONE) {
+			return -1;
+		}
+		return CardCode.rank(cards[k]);
+	}
+
+	/**
+	 * Counts the cards on the board with the given point value.
+	 * This takes constant time.
+	 * @param pointValue the point value to look for.
+	 * @return the number of cards on the board with that point value.
+	 */
+	public int countOfValue(int pointValue) {
+		return valueCounts[pointValue];
+	}
+
+	/**
+	 * Counts the cards on the board with the given rank.
+	 * This takes constant time.
+	 * @param rank the index of the rank to look for.
+	 * @return the number of cards on the board with that rank.
+	 */
+	public int countOfRank(int rank) {
+		return rankCounts[rank];
+	}
+
+	/**
+	 * Determines if the board holds two cards whose point values add up to
+	 * the given sum.  This only consults the point value counts, so it takes
+	 * time proportional to the sum, not to the size of the board.
+	 * @param sum the total the two point values must add up to.
+	 * @return true if such a pair is on the board; false otherwise.
+	 */
+	public boolean hasPairSum(int sum) {
+		for (int v = Math.max(0, sum - CardCode.MAX_FIELD); v + v <= sum; v++) {
+			int w = sum - v;
+			if (v == w) {
+				if (valueCounts[v] > 1) {
+					return true;
+				}
+			} else if (valueCounts[v] > 0 && valueCounts[w] > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Replaces selected cards on the board by dealing new cards.
 	 * @param selectedCards is a list of the indices of the
 	 *        cards to be replaced.
 	 */
 	public void replaceSelectedCards(List<Integer> selectedCards) {
-		for (Integer k : selectedCards) {
-			deal(k.intValue());
+		int count = selectedCards.size();
+		int[] selected = count <= selection.length ? selection : new int[count];
+		for (int i = 0; i < count; i++) {
+			selected[i] = selectedCards.get(i).intValue();
 		}
+		replaceSelectedCards(selected, count);
+	}
+
+	/**
+	 * Replaces selected cards on the board by dealing new cards.
+	 * @param selectedCards holds the indices of the cards to be replaced
+	 *        in its first count elements.
+	 * @param count the number of cards to be replaced.
+	 */
+	public void replaceSelectedCards(int[] selectedCards, int count) {
+		long start = GameMetrics.start();
+		if (trace != null) {
+			trace.move(selectedCards, count);
+		}
+		int[] codes = count <= dealt.length ? dealt : new int[count];
+		deck.dealCodes(codes, 0, count);
+		for (int i = 0; i < count; i++) {
+			place(selectedCards[i], codes[i]);
+		}
+		GameMetrics.BOARD_REPLACE.stop(start);
 	}
 
 	/**
@@ -119,23 +401,80 @@ public abstract class Board {
 	public List<Integer> cardIndexes() {
 		List<Integer> selected = new ArrayList<Integer>();
 		for (int k = 0; k < cards.length; k++) {
-			if (cards[k] != null) {
+			if (cards[k] != CardCode.NONE) {
 				selected.add(new Integer(k));
 			}
 		}
 		return selected;
 	}
 
+	/**
+	 * Gets the indexes of the actual (non-null) cards on the board
+	 * without allocating.
+	 * @param indexes receives the locations (indexes) of the non-null
+	 *        entries on the board; it must be at least <code>size()</code> long.
+	 * @return the number of indexes stored in indexes.
+	 */
+	public int cardIndexes(int[] indexes) {
+		int n = 0;
+		for (int k = 0; k < cards.length; k++) {
+			if (cards[k] != CardCode.NONE) {
+				indexes[n] = k;
+				n++;
+			}
+		}
+		return n;
+	}
+
 	/**
 	 * Generates and returns a string representation of this board.
 	 * @return the string version of this board.
 	 */
 	public String toString() {
-		String s = "";
+		StringBuilder s = new StringBuilder(40 * cards.length);
+		try {
+			appendTo(s);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return s.toString();
+	}
+
+	/**
+	 * Writes this board in the same format as <code>toString</code>,
+	 * without building an intermediate string.
+	 * @param out where to write the board.
+	 * @throws IOException if out cannot be written to.
+	 */
+	public void appendTo(Appendable out) throws IOException {
 		for (int k = 0; k < cards.length; k++) {
-			s = s + k + ": " + cards[k] + "\n";
+			Deck.appendInt(out, k);
+			out.append(": ");
+			if (cards[k] == CardCode.NONE) {
+				out.append("null");
+			} else {
+				deck.card(cards[k]).appendTo(out);
+			}
+			out.append('\n');
+		}
+	}
+
+	/**
+	 * Writes this board on a single line, for trace logs: the short form
+	 * of each position's card (see <code>Deck.appendCode</code>), then the
+	 * number of undealt cards, e.g. <code>QH 10S -- 7D / 40</code>.
+	 * @param out where to write the board.
+	 * @throws IOException if out cannot be written to.
+	 */
+	public void appendCompactTo(Appendable out) throws IOException {
+		for (int k = 0; k < cards.length; k++) {
+			if (k > 0) {
+				out.append(' ');
+			}
+			deck.appendCode(out, cards[k]);
 		}
-		return s;
+		out.append(" / ");
+		Deck.appendInt(out, deck.size());
 	}
 
 	/**
@@ -146,8 +485,8 @@ public abstract class Board {
 	 */
 	public boolean gameIsWon() {
 		if (deck.isEmpty()) {
-			for (Card c : cards) {
-				if (c != null) {
+			for (int c : cards) {
+				if (c != CardCode.NONE) {
 					return false;
 				}
 			}
@@ -156,14 +495,36 @@ public abstract class Board {
 		return false;
 	}
 
+	/**
+	 * Determines if the selected cards form a valid group for removal.
+	 * The selection is copied into an array and checked by
+	 * <code>isLegal(int[], int)</code>.
+	 * @param selectedCards the list of the indices of the selected cards.
+	 * @return true if the selected cards form a valid group for removal;
+	 *         false otherwise.
+	 */
+	public boolean isLegal(List<Integer> selectedCards) {
+		int count = selectedCards.size();
+		if (count > selection.length) {
+			return false;
+		}
+		for (int i = 0; i < count; i++) {
+			selection[i] = selectedCards.get(i).intValue();
+		}
+		return isLegal(selection, count);
+	}
+
 	/**
 	 * Method to be completed by the concrete class that determines
 	 * if the selected cards form a valid group for removal.
-	 * @param selectedCards the list of the indices of the selected cards.
+	 * Implementations must not allocate.
+	 * @param selectedCards holds the indices of the selected cards
+	 *        in its first count elements.
+	 * @param count the number of selected cards.
 	 * @return true if the selected cards form a valid group for removal;
 	 *         false otherwise.
 	 */
-	public abstract boolean isLegal(List<Integer> selectedCards);
+	public abstract boolean isLegal(int[] selectedCards, int count);
 
 	/**
 	 * Method to be completed by the concrete class that determines
@@ -173,12 +534,88 @@ public abstract class Board {
 	 */
 	public abstract boolean anotherPlayIsPossible();
 
+	/**
+	 * Method to be completed by the concrete class that looks for a
+	 * legal play on the board and, if one is found, plays it.
+	 * The simulations use this method.
+	 * @return true if a legal play was found (and made); false otherwise.
+	 */
+	public abstract boolean playIfPossible();
+
 	/**
 	 * Deal cards to this board to start the game.
 	 */
 	private void dealMyCards() {
+		Arrays.fill(valueCounts, 0);
+		Arrays.fill(rankCounts, 0);
+		changes.markAll();
+		deck.dealCodes(cards, 0, cards.length);
 		for (int k = 0; k < cards.length; k++) {
-			cards[k] = deck.deal();
+			int code = cards[k];
+			if (code != CardCode.NONE) {
+				valueCounts[CardCode.pointValue(code)]++;
+				rankCounts[CardCode.rank(code)]++;
+			}
+		}
+	}
+
+	/**
+	 * Puts a card at the kth position, in place of the card there,
+	 * keeping the value and rank counts and the changed positions
+	 * up to date.
+	 * @param k the index of the position.
+	 * @param code the code of the new card, or <code>CardCode.NONE</code>.
+	 */
+	private void place(int k, int code) {
+		int old = cards[k];
+		if (old != CardCode.NONE) {
+			valueCounts[CardCode.pointValue(old)]--;
+			rankCounts[CardCode.rank(old)]--;
+		}
+		cards[k] = code;
+		if (code != CardCode.NONE) {
+			valueCounts[CardCode.pointValue(code)]++;
+			rankCounts[CardCode.rank(code)]++;
+		}
+		if (code != old) {
+			changes.mark(k);
+		}
+	}
+
+	/**
+	 * The cards on a board and the state of its deck, as captured by
+	 * <code>snapshot</code>.  A snapshot never changes, so it can be
+	 * restored any number of times, and many search branches can start
+	 * from one.
+	 */
+	public static class Snapshot {
+
+		/**
+		 * The codes of the cards at each position.
+		 */
+		private int[] cards;
+
+		/**
+		 * The state of the board's deck.
+		 */
+		private Deck.Snapshot deck;
+
+		/**
+		 * Creates a new <code>Snapshot</code> instance.
+		 * @param boardCards a copy of the board's cards, owned by the snapshot.
+		 * @param deckState the state of the board's deck.
+		 */
+		private Snapshot(int[] boardCards, Deck.Snapshot deckState) {
+			cards = boardCards;
+			deck = deckState;
+		}
+
+		/**
+		 * Accesses the number of cards that were left in the deck.
+		 * @return the number of undealt cards.
+		 */
+		public int deckSize() {
+			return deck.size();
 		}
 	}
 }
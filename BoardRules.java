@@ -0,0 +1,156 @@
+/**
+ * The BoardRules class describes which groups of cards may be removed in a
+ * solitaire game like Elevens, so that a <code>RuleBoard</code> can play
+ * the game without any code of its own.  A game may allow:
+ * <ul>
+ * <li>pairs of cards whose point values add up to a given sum;</li>
+ * <li>groups of cards with given ranks, such as a jack, a queen and a
+ *     king, or a single king;</li>
+ * <li>groups of two or more cards that all have the same point value.</li>
+ * </ul>
+ * When several kinds of group are on the board, they are played in the
+ * order above, and rank groups in the order they were added.
+ * <p>
+ * Rules are immutable; each <code>with</code> method returns new rules.
+ * For example, the rules of Elevens are
+ * <code>new BoardRules().withPairSum(11).withRankGroup(JACK, QUEEN, KING)</code>.
+ */
+public class BoardRules {
+
+	/**
+	 * The total the point values of a removable pair add up to,
+	 * or <code>NO_PAIR_SUM</code> if pairs are not removed.
+	 */
+	private int pairSum;
+
+	/**
+	 * The groups of ranks that may be removed together.
+	 */
+	private int[][] rankGroups;
+
+	/**
+	 * Whether groups of same-valued cards may be removed.
+	 */
+	private boolean sameValueGroups;
+
+	/**
+	 * The value of <code>pairSum()</code> when pairs are not removed.
+	 */
+	public static final int NO_PAIR_SUM = -1;
+
+
+	/**
+	 * Creates rules that allow no removals at all.
+	 */
+	public BoardRules() {
+		this(NO_PAIR_SUM, new int[0][], false);
+	}
+
+	/**
+	 * Creates a new <code>BoardRules</code> instance.
+	 * @param sum the pair sum, or <code>NO_PAIR_SUM</code>.
+	 * @param groups the removable groups of ranks.
+	 * @param sameValue whether groups of same-valued cards may be removed.
+	 */
+	private BoardRules(int sum, int[][] groups, boolean sameValue) {
+		pairSum = sum;
+		rankGroups = groups;
+		sameValueGroups = sameValue;
+	}
+
+	/**
+	 * Allows pairs of cards whose point values add up to a sum.
+	 * @param sum the total the two point values must add up to.
+	 * @return these rules with the pair sum set (replacing any other).
+	 */
+	public BoardRules withPairSum(int sum) {
+		if (sum < 0 || sum > 2 * CardCode.MAX_FIELD) {
+			throw new IllegalArgumentException("Impossible pair sum: " + sum);
+		}
+		return new BoardRules(sum, rankGroups, sameValueGroups);
+	}
+
+	/**
+	 * Allows a group of cards with the given ranks to be removed together;
+	 * a group of one rank allows single cards of that rank to be removed.
+	 * A rank may be listed more than once.
+	 * @param ranks the indexes of the ranks (in the ranks the deck was
+	 *        created from) of the cards in the group.
+	 * @return these rules with the group added.
+	 */
+	public BoardRules withRankGroup(int... ranks) {
+		if (ranks.length == 0) {
+			throw new IllegalArgumentException("A rank group cannot be empty");
+		}
+		for (int r : ranks) {
+			if (r < 0 || r > CardCode.MAX_FIELD) {
+				throw new IllegalArgumentException("No such rank: " + r);
+			}
+		}
+		int[][] groups = new int[rankGroups.length + 1][];
+		System.arraycopy(rankGroups, 0, groups, 0, rankGroups.length);
+		groups[rankGroups.length] = ranks.clone();
+		return new BoardRules(pairSum, groups, sameValueGroups);
+	}
+
+	/**
+	 * Allows groups of two or more cards that all have the same point value.
+	 * @return these rules with same-value groups allowed.
+	 */
+	public BoardRules withSameValueGroups() {
+		return new BoardRules(pairSum, rankGroups, true);
+	}
+
+	/**
+	 * Accesses the pair sum.
+	 * @return the total the point values of a removable pair add up to,
+	 *         or <code>NO_PAIR_SUM</code> if pairs are not removed.
+	 */
+	public int pairSum() {
+		return pairSum;
+	}
+
+	/**
+	 * Accesses the number of removable groups of ranks.
+	 * @return the number of rank groups.
+	 */
+	public int rankGroupCount() {
+		return rankGroups.length;
+	}
+
+	/**
+	 * Accesses a removable group of ranks.
+	 * @param g the index of the group, in the order the groups were added.
+	 * @return a copy of the ranks of the group.
+	 */
+	public int[] rankGroup(int g) {
+		return rankGroups[g].clone();
+	}
+
+	/**
+	 * Determines if groups of same-valued cards may be removed.
+	 * @return true if they may; false otherwise.
+	 */
+	public boolean allowsSameValueGroups() {
+		return sameValueGroups;
+	}
+
+	/**
+	 * Builds the table of the point value that completes a pair with
+	 * each point value.
+	 * @return an array, indexed by point value, holding the value that
+	 *         adds up to the pair sum with it, or -1 if there is none.
+	 */
+	public int[] complementTable() {
+		int[] complement = new int[CardCode.MAX_FIELD + 1];
+		for (int v = 0; v < complement.length; v++) {
+			int w = pairSum - v;
+			if (pairSum == NO_PAIR_SUM || w < 0 || w > CardCode.MAX_FIELD) {
+				complement[v] = -1;
+			} else {
+				complement[v] = w;
+			}
+		}
+		return complement;
+	}
+}
@@ -1,3 +1,5 @@
+import java.io.IOException;
+
 /**
  * Card.java
  *
@@ -89,4 +91,17 @@ public class Card {
 	public String toString() {
 		return rank + " of " + suit + " (point value = " + pointValue + ")";
 	}
+
+	/**
+	 * Writes this card in the same format as <code>toString</code>,
+	 * without building an intermediate string.
+	 * @param out where to write the card.
+	 * @throws IOException if out cannot be written to.
+	 */
+	public void appendTo(Appendable out) throws IOException {
+		out.append(rank).append(" of ").append(suit)
+			.append(" (point value = ");
+		Deck.appendInt(out, pointValue);
+		out.append(')');
+	}
 }
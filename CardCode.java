@@ -0,0 +1,82 @@
+/**
+ * CardCode.java
+ *
+ * <code>CardCode</code> packs a playing card into a single <code>int</code>
+ * so that the game boards can compare and score cards without touching
+ * <code>String</code>s.  The suit index is held in bits 0-7, the rank index
+ * in bits 8-15 and the point value in bits 16-23.  The rank and suit
+ * indexes refer to the rank and suit arrays the <code>Deck</code> was
+ * created from.
+ */
+public final class CardCode {
+
+	/**
+	 * The code used for "no card", e.g. an empty board position.
+	 */
+	public static final int NONE = -1;
+
+	/**
+	 * The largest rank index, suit index or point value a code can hold.
+	 */
+	public static final int MAX_FIELD = 0xFF;
+
+	/**
+	 * Number of bits the rank index is shifted by.
+	 */
+	private static final int RANK_SHIFT = 8;
+
+	/**
+	 * Number of bits the point value is shifted by.
+	 */
+	private static final int VALUE_SHIFT = 16;
+
+
+	/**
+	 * No instances; all the methods are static.
+	 */
+	private CardCode() {
+	}
+
+	/**
+	 * Packs a card into a code.
+	 * @param rank the index of the card's rank.
+	 * @param suit the index of the card's suit.
+	 * @param pointValue the point value of the card.
+	 * @return the code for the card.
+	 */
+	public static int encode(int rank, int suit, int pointValue) {
+		if (rank < 0 || rank > MAX_FIELD || suit < 0 || suit > MAX_FIELD
+				|| pointValue < 0 || pointValue > MAX_FIELD) {
+			throw new IllegalArgumentException("Card out of range: rank " + rank
+				+ ", suit " + suit + ", point value " + pointValue);
+		}
+		return (pointValue << VALUE_SHIFT) | (rank << RANK_SHIFT) | suit;
+	}
+
+	/**
+	 * Accesses the rank index of a code.
+	 * @param code the code of a card.
+	 * @return the index of the card's rank.
+	 */
+	public static int rank(int code) {
+		return (code >>> RANK_SHIFT) & MAX_FIELD;
+	}
+
+	/**
+	 * Accesses the suit index of a code.
+	 * @param code the code of a card.
+	 * @return the index of the card's suit.
+	 */
+	public static int suit(int code) {
+		return code & MAX_FIELD;
+	}
+
+	/**
+	 * Accesses the point value of a code.
+	 * @param code the code of a card.
+	 * @return the point value of the card.
+	 */
+	public static int pointValue(int code) {
+		return (code >>> VALUE_SHIFT) & MAX_FIELD;
+	}
+}
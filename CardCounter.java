@@ -0,0 +1,236 @@
+import java.util.Arrays;
+
+/**
+ * The CardCounter class keeps count of the cards dealt from a shoe, as a
+ * card counter at the table would: the running count of a
+ * <code>CountingSystem</code>, and how many cards of each rank and point
+ * value are left.  It is told about every card as it is dealt and
+ * about every reshuffle, so all of its answers take constant time and
+ * the deck is never rescanned except to recount after a reshuffle.
+ * <p>
+ * A counter sees every card as it leaves the shoe, including the
+ * dealer's face-down card; a client that must not learn that card
+ * should only read the counter between hands.
+ */
+public class CardCounter {
+
+	/**
+	 * The counting system used.
+	 */
+	private CountingSystem system;
+
+	/**
+	 * The tag for each point value, indexed by point value;
+	 * 0 for values the system has no tag for.
+	 */
+	private int[] tags = new int[CardCode.MAX_FIELD + 1];
+
+	/**
+	 * The number of cards of each rank in the whole shoe,
+	 * indexed by rank index.
+	 */
+	private int[] rankTotals = new int[CardCode.MAX_FIELD + 1];
+
+	/**
+	 * The number of cards of each rank left to deal.
+	 */
+	private int[] ranksLeft = new int[CardCode.MAX_FIELD + 1];
+
+	/**
+	 * The number of cards of each point value in the whole shoe,
+	 * indexed by point value.
+	 */
+	private int[] valueTotals = new int[CardCode.MAX_FIELD + 1];
+
+	/**
+	 * The number of cards of each point value left to deal.
+	 */
+	private int[] valuesLeft = new int[CardCode.MAX_FIELD + 1];
+
+	/**
+	 * The number of cards in the whole shoe.
+	 */
+	private int total;
+
+	/**
+	 * The number of cards left to deal.
+	 */
+	private int left;
+
+	/**
+	 * The number of cards in one deck of the shoe.
+	 */
+	private int cardsPerDeck;
+
+	/**
+	 * The running count of a freshly shuffled shoe.
+	 */
+	private int initialCount;
+
+	/**
+	 * The running count.
+	 */
+	private int runningCount;
+
+	/**
+	 * Creates a counter for the given deck and counts
+	 * the cards already dealt from it.
+	 * @param countingSystem the counting system to use.
+	 * @param deck the cards being dealt.
+	 * @param decks the number of standard decks shuffled together in deck.
+	 */
+	public CardCounter(CountingSystem countingSystem, Deck deck, int decks) {
+		if (decks < 1) {
+			throw new IllegalArgumentException("decks must be positive: " + decks);
+		}
+		system = countingSystem;
+		for (int v = 1; v <= CountingSystem.MAX_VALUE; v++) {
+			tags[v] = system.tag(v);
+		}
+		int shoeCount = 0;
+		for (int i = 0; i < deck.size(); i++) {
+			shoeCount += addToTotals(deck.peekCode(i));
+		}
+		for (int i = 0; i < deck.dealtSize(); i++) {
+			shoeCount += addToTotals(deck.peekDealtCode(i));
+		}
+		total = deck.totalSize();
+		cardsPerDeck = total / decks;
+		initialCount = system.pivot() - shoeCount;
+		recount(deck);
+	}
+
+	/**
+	 * Counts a card that has just been dealt.
+	 * @param code the code of the card.
+	 */
+	public void cardDealt(int code) {
+		int value = CardCode.pointValue(code);
+		ranksLeft[CardCode.rank(code)]--;
+		valuesLeft[value]--;
+		left--;
+		runningCount += tags[value];
+	}
+
+	/**
+	 * Starts the count over after the deck has been reshuffled:
+	 * every card is back except the ones that are still dealt,
+	 * which are counted again.
+	 * @param deck the deck being counted.
+	 */
+	public void recount(Deck deck) {
+		System.arraycopy(rankTotals, 0, ranksLeft, 0, ranksLeft.length);
+		System.arraycopy(valueTotals, 0, valuesLeft, 0, valuesLeft.length);
+		left = total;
+		runningCount = initialCount;
+		for (int i = 0; i < deck.dealtSize(); i++) {
+			cardDealt(deck.peekDealtCode(i));
+		}
+	}
+
+	/**
+	 * Accesses the counting system used.
+	 * @return the counting system.
+	 */
+	public CountingSystem system() {
+		return system;
+	}
+
+	/**
+	 * Accesses the running count.
+	 * @return the system's count of every card dealt since the last
+	 *         reshuffle, starting from its initial count.
+	 */
+	public int runningCount() {
+		return runningCount;
+	}
+
+	/**
+	 * Computes the true count: the running count per deck left to deal.
+	 * It is meaningful for balanced systems only.
+	 * @return the true count, or 0 if no cards are left.
+	 */
+	public double trueCount() {
+		return left == 0 ? 0.0 : runningCount / decksLeft();
+	}
+
+	/**
+	 * Computes the number of decks left to deal.
+	 * @return the number of cards left, in decks.
+	 */
+	public double decksLeft() {
+		return (double) left / cardsPerDeck;
+	}
+
+	/**
+	 * Accesses the number of cards left to deal.
+	 * @return the number of cards left.
+	 */
+	public int cardsLeft() {
+		return left;
+	}
+
+	/**
+	 * Accesses the number of cards in the whole shoe.
+	 * @return the number of cards, dealt or not.
+	 */
+	public int totalSize() {
+		return total;
+	}
+
+	/**
+	 * Accesses the number of cards of a rank left to deal.
+	 * @param rank the index of the rank, as in <code>CardCode.rank</code>.
+	 * @return the number of cards of that rank left.
+	 */
+	public int rankLeft(int rank) {
+		return ranksLeft[rank];
+	}
+
+	/**
+	 * Accesses the number of cards of a point value left to deal.
+	 * @param pointValue the point value, as in <code>CardCode.pointValue</code>.
+	 * @return the number of cards of that value left.
+	 */
+	public int valueLeft(int pointValue) {
+		return valuesLeft[pointValue];
+	}
+
+	/**
+	 * Copies out the number of cards of each point value left to deal.
+	 * @param counts receives the number of cards left, indexed by
+	 *        point value, for every value below its length.
+	 */
+	public void copyValuesLeft(int[] counts) {
+		System.arraycopy(valuesLeft, 0, counts, 0, counts.length);
+	}
+
+	/**
+	 * Generates and returns a string representation of this counter.
+	 * @return the system, the running and true counts, and the number
+	 *         of cards left of each point value.
+	 */
+	@Override
+	public String toString() {
+		int highest = 0;
+		for (int v = 0; v < valueTotals.length; v++) {
+			if (valueTotals[v] > 0) {
+				highest = v;
+			}
+		}
+		return String.format("%s running %+d true %+.2f, %d cards left %s",
+			system, runningCount, trueCount(), left,
+			Arrays.toString(Arrays.copyOfRange(valuesLeft, 1, highest + 1)));
+	}
+
+	/**
+	 * Adds a card to the shoe's totals.
+	 * @param code the code of the card.
+	 * @return the card's tag.
+	 */
+	private int addToTotals(int code) {
+		rankTotals[CardCode.rank(code)]++;
+		valueTotals[CardCode.pointValue(code)]++;
+		return tags[CardCode.pointValue(code)];
+	}
+}
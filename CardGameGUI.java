@@ -13,7 +13,6 @@ import javax.swing.JPanel;
 import javax.swing.JButton;
 import javax.swing.JLabel;
 import javax.swing.ImageIcon;
-import java.net.URL;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -78,10 +77,12 @@ public class CardGameGUI extends JFrame implements ActionListener {
 
 	/** kth element is true iff the user has selected card #k. */
 	private boolean[] selections;
-	/** The number of games won. */
-	private int totalWins;
-	/** The number of games played. */
-	private int totalGames;
+	/** Receives the board positions that need redrawing. */
+	private int[] changedSlots;
+	/** The outcomes of the games played in every window of this game. */
+	private GameStatistics stats;
+	/** The number of moves made in the current game. */
+	private int moves;
 
 
 	/**
@@ -90,8 +91,8 @@ public class CardGameGUI extends JFrame implements ActionListener {
 	 */
 	public CardGameGUI(Board gameBoard) {
 		board = gameBoard;
-		totalWins = 0;
-		totalGames = 0;
+		stats = GameStatistics.shared(board.getClass().getName());
+		moves = 0;
 
 		// Initialize cardCoords using 5 cards per row
 		cardCoords = new Point[board.size()];
@@ -108,9 +109,13 @@ public class CardGameGUI extends JFrame implements ActionListener {
 		}
 
 		selections = new boolean[board.size()];
+		changedSlots = new int[board.size()];
+		CardImageCache.preload();
 		initDisplay();
 		setDefaultCloseOperation(EXIT_ON_CLOSE);
+		board.markAllChanged();
 		repaint();
+		pack();
 	}
 
 	/**
@@ -126,29 +131,36 @@ public class CardGameGUI extends JFrame implements ActionListener {
 
 	/**
 	 * Draw the display (cards and messages).
+	 * Only the cards the board reports as changed are redrawn.
 	 */
 	public void repaint() {
-		for (int k = 0; k < board.size(); k++) {
-			String cardImageFileName =
-				imageFileName(board.cardAt(k), selections[k]);
-			URL imageURL = getClass().getResource(cardImageFileName);
-			if (imageURL != null) {
-				ImageIcon icon = new ImageIcon(imageURL);
-				displayCards[k].setIcon(icon);
-				displayCards[k].setVisible(true);
-			} else {
-				throw new RuntimeException(
-					"Card image not found: \"" + cardImageFileName + "\"");
-			}
+		int n = board.drainChanges(changedSlots);
+		for (int i = 0; i < n; i++) {
+			showCard(changedSlots[i]);
 		}
 		statusMsg.setText(board.deckSize()
 			+ " undealt cards remain.");
 		statusMsg.setVisible(true);
-		totalsMsg.setText("You've won " + totalWins
-			 + " out of " + totalGames + " games.");
+		totalsMsg.setText(totalsText());
 		totalsMsg.setVisible(true);
-		pack();
-		panel.repaint();
+	}
+
+	/**
+	 * Show the current image of one card.  Setting a new icon repaints
+	 * just that card's label.
+	 * @param k the board position of the card.
+	 */
+	private void showCard(int k) {
+		String cardImageFileName =
+			imageFileName(board.cardAt(k), selections[k]);
+		ImageIcon icon = CardImageCache.getIcon(cardImageFileName);
+		if (icon != null) {
+			displayCards[k].setIcon(icon);
+			displayCards[k].setVisible(true);
+		} else {
+			throw new RuntimeException(
+				"Card image not found: \"" + cardImageFileName + "\"");
+		}
 	}
 
 	/**
@@ -227,8 +239,7 @@ public class CardGameGUI extends JFrame implements ActionListener {
 		panel.add(lossMsg);
 		lossMsg.setVisible(false);
 
-		totalsMsg = new JLabel("You've won " + totalWins
-			+ " out of " + totalGames + " games.");
+		totalsMsg = new JLabel(totalsText());
 		totalsMsg.setBounds(LABEL_LEFT, LABEL_TOP + 2 * LABEL_HEIGHT_INC,
 								  250, 30);
 		panel.add(totalsMsg);
@@ -298,6 +309,7 @@ public class CardGameGUI extends JFrame implements ActionListener {
 			}
 			// Do the replace.
 			board.replaceSelectedCards(selection);
+			moves++;
 			if (board.isEmpty()) {
 				signalWin();
 			} else if (!board.anotherPlayIsPossible()) {
@@ -306,6 +318,7 @@ public class CardGameGUI extends JFrame implements ActionListener {
 			repaint();
 		} else if (e.getSource().equals(restartButton)) {
 			board.newGame();
+			moves = 0;
 			getRootPane().setDefaultButton(replaceButton);
 			winMsg.setVisible(false);
 			lossMsg.setVisible(false);
@@ -329,8 +342,7 @@ public class CardGameGUI extends JFrame implements ActionListener {
 	private void signalWin() {
 		getRootPane().setDefaultButton(restartButton);
 		winMsg.setVisible(true);
-		totalWins++;
-		totalGames++;
+		stats.recordWin(moves);
 	}
 
 	/**
@@ -339,7 +351,17 @@ public class CardGameGUI extends JFrame implements ActionListener {
 	private void signalLoss() {
 		getRootPane().setDefaultButton(restartButton);
 		lossMsg.setVisible(true);
-		totalGames++;
+		stats.recordLoss(moves, board.cardCount() + board.deckSize());
+	}
+
+	/**
+	 * Describes the games won and played in every window of this game.
+	 * @return the totals message.
+	 */
+	private String totalsText() {
+		GameStatistics.Snapshot totals = stats.snapshot();
+		return "You've won " + totals.wins()
+			+ " out of " + totals.games() + " games.";
 	}
 
 	/**
@@ -357,7 +379,7 @@ public class CardGameGUI extends JFrame implements ActionListener {
 				if (e.getSource().equals(displayCards[k])
 						&& board.cardAt(k) != null) {
 					selections[k] = !selections[k];
-					repaint();
+					showCard(k);
 					return;
 				}
 			}
@@ -0,0 +1,247 @@
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+
+/**
+ * The CardImageCache class holds the decoded card images shared by every
+ * game window, so a card's GIF is read and decoded only once rather than on
+ * every repaint.  The images are drawn into the cells of one sprite atlas,
+ * and each cached icon shows a sub-image of it.
+ * <p>
+ * The cache is bounded by the number of atlas cells.  When it is full the
+ * least recently used icon is evicted; the evicted icon is given its own
+ * copy of its image first, so any label still showing it is not disturbed
+ * when its cell is reused.
+ * All the methods are static and thread-safe.
+ */
+public final class CardImageCache {
+
+	/**
+	 * Width of a card image.
+	 */
+	public static final int CARD_WIDTH = 73;
+
+	/**
+	 * Height of a card image.
+	 */
+	public static final int CARD_HEIGHT = 97;
+
+	/**
+	 * The number of atlas cells in a row.
+	 */
+	private static final int COLUMNS = 16;
+
+	/**
+	 * The number of rows of atlas cells.
+	 */
+	private static final int ROWS = 8;
+
+	/**
+	 * The most images the cache holds: room for every card, plain and
+	 * selected, plus the card back.
+	 */
+	public static final int CAPACITY = COLUMNS * ROWS;
+
+	/**
+	 * The ranks of the card images loaded by <code>preload</code>.
+	 */
+	private static final String[] RANKS =
+		{"ace", "2", "3", "4", "5", "6", "7", "8", "9", "10", "jack", "queen", "king"};
+
+	/**
+	 * The suits of the card images loaded by <code>preload</code>.
+	 */
+	private static final String[] SUITS =
+		{"spades", "hearts", "diamonds", "clubs"};
+
+	/**
+	 * The image every cached icon is a part of.
+	 */
+	private static BufferedImage atlas =
+		new BufferedImage(COLUMNS * CARD_WIDTH, ROWS * CARD_HEIGHT,
+			BufferedImage.TYPE_INT_ARGB);
+
+	/**
+	 * The cached images, keyed by file name, least recently used first.
+	 */
+	private static LinkedHashMap<String, Sprite> sprites =
+		new LinkedHashMap<String, Sprite>(CAPACITY, 0.75f, true);
+
+	/**
+	 * The atlas cells not holding an image.
+	 */
+	private static ArrayDeque<Integer> freeCells = new ArrayDeque<Integer>();
+
+	static {
+		for (int cell = 0; cell < CAPACITY; cell++) {
+			freeCells.add(cell);
+		}
+	}
+
+	/**
+	 * The number of lookups answered from the cache.
+	 */
+	private static long hits = 0;
+
+	/**
+	 * The number of lookups that had to load an image.
+	 */
+	private static long misses = 0;
+
+	/**
+	 * Set once <code>preload</code> has run.
+	 */
+	private static boolean preloaded = false;
+
+
+	/**
+	 * No instances; all the methods are static.
+	 */
+	private CardImageCache() {
+	}
+
+	/**
+	 * Loads the image of every standard card, plain and selected, and the
+	 * card back, so that later lookups never touch the disk.  Images that
+	 * cannot be found are skipped.  Only the first call does anything.
+	 */
+	public static synchronized void preload() {
+		if (preloaded) {
+			return;
+		}
+		preloaded = true;
+		load("cards/back1.GIF");
+		for (String rank : RANKS) {
+			for (String suit : SUITS) {
+				load("cards/" + rank + suit + ".GIF");
+				load("cards/" + rank + suit + "S.GIF");
+			}
+		}
+	}
+
+	/**
+	 * Looks up the icon for a card image.
+	 * @param fileName the name of the image resource, e.g. "cards/aceclubs.GIF".
+	 * @return the icon, or null if there is no such image.
+	 */
+	public static synchronized ImageIcon getIcon(String fileName) {
+		Sprite sprite = sprites.get(fileName);
+		if (sprite != null) {
+			hits++;
+			return sprite.icon;
+		}
+		misses++;
+		sprite = load(fileName);
+		return sprite == null ? null : sprite.icon;
+	}
+
+	/**
+	 * Accesses the number of lookups answered from the cache.
+	 * @return the number of cache hits.
+	 */
+	public static synchronized long hits() {
+		return hits;
+	}
+
+	/**
+	 * Accesses the number of lookups that had to load an image.
+	 * @return the number of cache misses.
+	 */
+	public static synchronized long misses() {
+		return misses;
+	}
+
+	/**
+	 * Accesses the number of images in the cache.
+	 * @return the number of cached images.
+	 */
+	public static synchronized int size() {
+		return sprites.size();
+	}
+
+	/**
+	 * Reads an image and draws it into a free atlas cell,
+	 * evicting the least recently used image if there is none.
+	 * @param fileName the name of the image resource.
+	 * @return the cached image, or null if it could not be read.
+	 */
+	private static Sprite load(String fileName) {
+		URL imageURL = CardImageCache.class.getResource(fileName);
+		if (imageURL == null) {
+			return null;
+		}
+		BufferedImage image;
+		try {
+			image = ImageIO.read(imageURL);
+		} catch (IOException e) {
+			return null;
+		}
+		if (image == null) {
+			return null;
+		}
+		if (freeCells.isEmpty()) {
+			evictEldest();
+		}
+		int cell = freeCells.remove();
+		int x = (cell % COLUMNS) * CARD_WIDTH;
+		int y = (cell / COLUMNS) * CARD_HEIGHT;
+		Graphics2D g = atlas.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		g.drawImage(image, x, y, CARD_WIDTH, CARD_HEIGHT, null);
+		g.dispose();
+		Sprite sprite = new Sprite(cell,
+			new ImageIcon(atlas.getSubimage(x, y, CARD_WIDTH, CARD_HEIGHT)));
+		sprites.put(fileName, sprite);
+		return sprite;
+	}
+
+	/**
+	 * Evicts the least recently used image and frees its atlas cell.
+	 */
+	private static void evictEldest() {
+		Iterator<Map.Entry<String, Sprite>> it = sprites.entrySet().iterator();
+		Sprite eldest = it.next().getValue();
+		it.remove();
+		BufferedImage own = new BufferedImage(CARD_WIDTH, CARD_HEIGHT,
+			BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = own.createGraphics();
+		g.drawImage(eldest.icon.getImage(), 0, 0, null);
+		g.dispose();
+		eldest.icon.setImage(own);
+		freeCells.add(eldest.cell);
+	}
+
+	/**
+	 * A cached image: its atlas cell and the icon showing it.
+	 */
+	private static class Sprite {
+
+		/**
+		 * The atlas cell holding the image.
+		 */
+		private int cell;
+
+		/**
+		 * The icon showing the image.
+		 */
+		private ImageIcon icon;
+
+		/**
+		 * Creates a new <code>Sprite</code> instance.
+		 * @param atlasCell the atlas cell holding the image.
+		 * @param spriteIcon the icon showing the image.
+		 */
+		Sprite(int atlasCell, ImageIcon spriteIcon) {
+			cell = atlasCell;
+			icon = spriteIcon;
+		}
+	}
+}
@@ -0,0 +1,126 @@
+/**
+ * The CountingSystem class describes a blackjack card-counting system:
+ * the tag added to the running count for each card seen, by point value,
+ * and the count a shoe starts at.  A balanced system's tags add up to 0
+ * over a deck, so its running count starts at 0 and is divided by the
+ * number of decks left to give the true count.  An unbalanced system such
+ * as KO starts at a pivot chosen so that a count of 0 is reached when
+ * the player has about an even game, and is used without conversion.
+ * <p>
+ * Systems are immutable.  The common ones are provided as constants.
+ */
+public class CountingSystem {
+
+	/**
+	 * Hi-Lo: 2 to 6 count +1, 7 to 9 count 0, tens and aces count -1.
+	 */
+	public static final CountingSystem HI_LO = new CountingSystem("Hi-Lo",
+		new int[] {-1, 1, 1, 1, 1, 1, 0, 0, 0, -1}, 0);
+
+	/**
+	 * Knock-Out: 2 to 7 count +1, 8 and 9 count 0, tens and aces count -1.
+	 * It is unbalanced by +4 a deck, and starts at 4 less 4 per deck.
+	 */
+	public static final CountingSystem KO = new CountingSystem("KO",
+		new int[] {-1, 1, 1, 1, 1, 1, 1, 0, 0, -1}, 4);
+
+	/**
+	 * Omega II: 2, 3 and 7 count +1, 4 to 6 count +2, 8 and aces count 0,
+	 * 9 counts -1 and tens count -2.
+	 */
+	public static final CountingSystem OMEGA_II = new CountingSystem("Omega II",
+		new int[] {0, 1, 1, 2, 2, 2, 1, 0, -1, -2}, 0);
+
+	/**
+	 * The highest point value a card can have in blackjack.
+	 */
+	public static final int MAX_VALUE = 10;
+
+	/**
+	 * The name of the system.
+	 */
+	private String name;
+
+	/**
+	 * The tag for each point value, indexed by point value; index 0
+	 * is unused.
+	 */
+	private int[] tags;
+
+	/**
+	 * The running count at which an unbalanced system
+	 * is neutral, or 0 for a balanced system.
+	 */
+	private int pivot;
+
+	/**
+	 * Creates a new <code>CountingSystem</code> instance.
+	 * @param systemName the name of the system.
+	 * @param tagsByValue the tag for each point value from 1 (ace)
+	 *        to <code>MAX_VALUE</code>, in that order.
+	 * @param pivotCount the count at which an unbalanced system is neutral,
+	 *        i.e. what it adds to the count of a shoe's worth of cards
+	 *        to get the count the shoe starts at; 0 for a balanced system.
+	 */
+	public CountingSystem(String systemName, int[] tagsByValue, int pivotCount) {
+		if (tagsByValue.length != MAX_VALUE) {
+			throw new IllegalArgumentException("Expected " + MAX_VALUE
+				+ " tags but got " + tagsByValue.length);
+		}
+		name = systemName;
+		tags = new int[MAX_VALUE + 1];
+		System.arraycopy(tagsByValue, 0, tags, 1, MAX_VALUE);
+		pivot = pivotCount;
+	}
+
+	/**
+	 * Finds a standard system by a short name, as given on a command line.
+	 * @param shortName <code>hilo</code>, <code>ko</code> or <code>omega2</code>,
+	 *        in any case.
+	 * @return the system.
+	 */
+	public static CountingSystem forName(String shortName) {
+		if (shortName.equalsIgnoreCase("hilo")) {
+			return HI_LO;
+		} else if (shortName.equalsIgnoreCase("ko")) {
+			return KO;
+		} else if (shortName.equalsIgnoreCase("omega2")) {
+			return OMEGA_II;
+		}
+		throw new IllegalArgumentException("Unknown counting system: " + shortName);
+	}
+
+	/**
+	 * Accesses the name of the system.
+	 * @return the name.
+	 */
+	public String name() {
+		return name;
+	}
+
+	/**
+	 * Accesses the tag for a point value.
+	 * @param pointValue a point value from 1 (ace) to <code>MAX_VALUE</code>.
+	 * @return what a card of that value adds to the running count.
+	 */
+	public int tag(int pointValue) {
+		return tags[pointValue];
+	}
+
+	/**
+	 * Accesses the count at which an unbalanced system is neutral.
+	 * @return the pivot, or 0 for a balanced system.
+	 */
+	public int pivot() {
+		return pivot;
+	}
+
+	/**
+	 * Generates and returns a string representation of this system.
+	 * @return the name of the system.
+	 */
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,441 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The DealerOutcomeCalculator class works out exactly how likely the
+ * dealer is to finish on each total, given the dealer's up card and the
+ * cards left in the shoe.  The dealer plays as in
+ * <code>BlackJackBoard.playDealerHand</code>: drawing while the hand is
+ * worth less than <code>BlackJackBoard.DEALER_STANDS_AT</code>, and
+ * standing on a soft 17.  Every order in which the dealer could draw
+ * is followed, each weighted by its exact probability of being dealt
+ * from the remaining cards.
+ * <p>
+ * Every hand and shoe the calculation passes through is remembered, keyed
+ * on the dealer's hand and the number of cards of each point value left,
+ * so orders of drawing that reach the same state share its result, and
+ * asking again about a shoe costs a single lookup.  The memory is
+ * bounded; when it is full the least recently used result is forgotten.
+ * <p>
+ * A calculator is not thread-safe; like a board, each thread should
+ * have its own.
+ */
+public class DealerOutcomeCalculator {
+
+	/**
+	 * The number of results remembered when no capacity is given.
+	 */
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	/**
+	 * The index of the outcome in which the cards ran out
+	 * before the dealer reached 17.
+	 */
+	public static final int SHORT = 0;
+
+	/**
+	 * The index of the outcome in which the dealer busts.
+	 */
+	public static final int BUST = BlackJackHand.BLACKJACK - BlackJackBoard.DEALER_STANDS_AT + 2;
+
+	/**
+	 * The number of outcomes: running short, each total from 17 to 21,
+	 * and busting.
+	 */
+	public static final int OUTCOMES = BUST + 1;
+
+	/**
+	 * The number of bits each point value's count takes in a key;
+	 * tens, of which there are four times as many, take two more.
+	 */
+	private static final int COUNT_BITS = 6;
+
+	/**
+	 * The most cards of a point value other than ten a key can hold.
+	 */
+	private static final int MAX_COUNT = (1 << COUNT_BITS) - 1;
+
+	/**
+	 * The most tens a key can hold.
+	 */
+	private static final int MAX_TENS = (1 << (COUNT_BITS + 2)) - 1;
+
+	/**
+	 * The outcome of a hand the dealer stands on or busts with,
+	 * indexed by the hand's total.
+	 */
+	private static final Distribution[] FINISHED = new Distribution[32];
+
+	static {
+		for (int total = BlackJackBoard.DEALER_STANDS_AT; total < FINISHED.length; total++) {
+			double[] p = new double[OUTCOMES];
+			p[outcomeOf(total)] = 1.0;
+			FINISHED[total] = new Distribution(p);
+		}
+	}
+
+	/**
+	 * The remembered results, least recently used first.
+	 */
+	private LinkedHashMap<Key, Distribution> results;
+
+	/**
+	 * The key used to look results up, reused for every lookup.
+	 */
+	private Key probe = new Key();
+
+	/**
+	 * The number of cards of each point value left in the shoe
+	 * being worked on, indexed by point value.
+	 */
+	private int[] counts = new int[CountingSystem.MAX_VALUE + 1];
+
+	/**
+	 * The number of cards left in the shoe being worked on.
+	 */
+	private int remaining;
+
+	/**
+	 * The number of lookups that found a remembered result.
+	 */
+	private long hits;
+
+	/**
+	 * The number of lookups that had to work the result out.
+	 */
+	private long misses;
+
+	/**
+	 * Creates a calculator that remembers up to
+	 * <code>DEFAULT_CAPACITY</code> results.
+	 */
+	public DealerOutcomeCalculator() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a calculator that remembers up to the given number of results.
+	 * @param capacity the most results to remember.
+	 */
+	public DealerOutcomeCalculator(final int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		results = new LinkedHashMap<Key, Distribution>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Distribution> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Prints the dealer's outcomes for every up card,
+	 * dealt from a full shoe.
+	 * @param args is, optionally, the number of decks in the shoe.
+	 */
+	public static void main(String[] args) {
+		int decks = 1;
+		if (args.length > 0) {
+			decks = Integer.parseInt(args[0]);
+		}
+		DealerOutcomeCalculator calculator = new DealerOutcomeCalculator();
+		int[] shoe = new int[CountingSystem.MAX_VALUE + 1];
+		System.out.println(String.format("%-4s %7s %7s %7s %7s %7s %7s",
+			"Up", "17", "18", "19", "20", "21", "Bust"));
+		long start = System.nanoTime();
+		for (int up = 1; up <= CountingSystem.MAX_VALUE; up++) {
+			for (int v = 1; v <= CountingSystem.MAX_VALUE; v++) {
+				shoe[v] = (v == CountingSystem.MAX_VALUE ? 16 : 4) * decks;
+			}
+			shoe[up]--;
+			Distribution d = calculator.outcomes(up, shoe, false);
+			System.out.println(String.format("%-4s %7.4f %7.4f %7.4f %7.4f %7.4f %7.4f",
+				up == 1 ? "A" : String.valueOf(up), d.probability(17),
+				d.probability(18), d.probability(19), d.probability(20),
+				d.probability(21), d.bust()));
+		}
+		System.out.println("Worked out in " + (System.nanoTime() - start) / 1000
+			+ " us, " + calculator.size() + " results remembered");
+	}
+
+	/**
+	 * Works out the dealer's outcomes.
+	 * @param upCard the point value of the dealer's up card, from 1 (ace)
+	 *        to <code>CountingSystem.MAX_VALUE</code>.
+	 * @param cardsLeft the number of cards of each point value left in the
+	 *        shoe, indexed by point value, with the up card already taken
+	 *        out, e.g. as copied by <code>CardCounter.copyValuesLeft</code>
+	 *        with the face-down card put back.  Up to 63 of each value and
+	 *        255 tens.
+	 * @param peeked true if the dealer is known not to have a blackjack,
+	 *        as when the dealer has checked for one; false otherwise.
+	 * @return the probability of each outcome.
+	 */
+	public Distribution outcomes(int upCard, int[] cardsLeft, boolean peeked) {
+		if (upCard < 1 || upCard > CountingSystem.MAX_VALUE) {
+			throw new IllegalArgumentException("No up card is worth " + upCard);
+		}
+		remaining = 0;
+		for (int v = 1; v <= CountingSystem.MAX_VALUE; v++) {
+			int n = cardsLeft[v];
+			if (n < 0 || n > (v == CountingSystem.MAX_VALUE ? MAX_TENS : MAX_COUNT)) {
+				throw new IllegalArgumentException("Cannot have " + n
+					+ " cards worth " + v);
+			}
+			counts[v] = n;
+			remaining += n;
+		}
+		int excluded = 0;
+		if (peeked && upCard == 1) {
+			excluded = CountingSystem.MAX_VALUE;
+		} else if (peeked && upCard == CountingSystem.MAX_VALUE) {
+			excluded = 1;
+		}
+		return outcomes(upCard, upCard == 1, excluded);
+	}
+
+	/**
+	 * Accesses the number of queries, including the ones made along the
+	 * way, that found a remembered result.
+	 * @return the number of hits.
+	 */
+	public long hits() {
+		return hits;
+	}
+
+	/**
+	 * Accesses the number of queries, including the ones made along the
+	 * way, that had to be worked out.
+	 * @return the number of misses.
+	 */
+	public long misses() {
+		return misses;
+	}
+
+	/**
+	 * Accesses the number of results remembered.
+	 * @return the number of results.
+	 */
+	public int size() {
+		return results.size();
+	}
+
+	/**
+	 * Forgets every remembered result.
+	 */
+	public void clear() {
+		results.clear();
+	}
+
+	/**
+	 * Works out the outcomes of a dealer's hand drawing from the cards in
+	 * <code>counts</code>, or looks them up.
+	 * @param hard the hand's total, counting aces as 1.
+	 * @param ace true if the hand holds an ace.
+	 * @param excluded the point value the next card is known not to have,
+	 *        or 0 if it may have any.
+	 * @return the probability of each outcome.
+	 */
+	private Distribution outcomes(int hard, boolean ace, int excluded) {
+		int total = ace && hard + 10 <= BlackJackHand.BLACKJACK ? hard + 10 : hard;
+		if (total >= BlackJackBoard.DEALER_STANDS_AT) {
+			return FINISHED[total];
+		}
+		int drawable = remaining - (excluded == 0 ? 0 : counts[excluded]);
+		probe.set(composition(), (hard << 5) | (ace ? 1 << 4 : 0) | excluded);
+		Distribution known = results.get(probe);
+		if (known != null) {
+			hits++;
+			return known;
+		}
+		misses++;
+		// The probe is reused by the draws below, so keep a copy of it.
+		Key key = probe.copy();
+		double[] p = new double[OUTCOMES];
+		if (drawable == 0) {
+			p[SHORT] = 1.0;
+		}
+		for (int v = 1; v <= CountingSystem.MAX_VALUE && drawable > 0; v++) {
+			int n = counts[v];
+			if (n == 0 || v == excluded) {
+				continue;
+			}
+			double weight = (double) n / drawable;
+			counts[v]--;
+			remaining--;
+			Distribution next = outcomes(hard + v, ace || v == 1, 0);
+			counts[v]++;
+			remaining++;
+			for (int o = 0; o < OUTCOMES; o++) {
+				p[o] += weight * next.p[o];
+			}
+		}
+		Distribution result = new Distribution(p);
+		results.put(key, result);
+		return result;
+	}
+
+	/**
+	 * Packs the counts of the cards left into a single number.
+	 * @return the packed counts.
+	 */
+	private long composition() {
+		long packed = counts[CountingSystem.MAX_VALUE];
+		for (int v = 1; v < CountingSystem.MAX_VALUE; v++) {
+			packed = (packed << COUNT_BITS) | counts[v];
+		}
+		return packed;
+	}
+
+	/**
+	 * Finds the outcome a dealer's total falls into.
+	 * @param total a total of 17 or more.
+	 * @return the index of the outcome.
+	 */
+	private static int outcomeOf(int total) {
+		if (total > BlackJackHand.BLACKJACK) {
+			return BUST;
+		}
+		return total - BlackJackBoard.DEALER_STANDS_AT + 1;
+	}
+
+	/**
+	 * The probabilities of the dealer's outcomes.
+	 * A distribution never changes, so the calculator hands out
+	 * the ones it remembers without copying them.
+	 */
+	public static class Distribution {
+
+		/**
+		 * The probability of each outcome, indexed as the
+		 * <code>SHORT</code>, <code>BUST</code> and total outcomes.
+		 */
+		private double[] p;
+
+		/**
+		 * Creates a new <code>Distribution</code> instance.
+		 * @param probabilities the probability of each outcome,
+		 *        owned by the distribution.
+		 */
+		private Distribution(double[] probabilities) {
+			p = probabilities;
+		}
+
+		/**
+		 * Accesses the probability that the dealer stands on a total.
+		 * @param total a total from 17 to 21.
+		 * @return the probability of finishing on that total.
+		 */
+		public double probability(int total) {
+			if (total < BlackJackBoard.DEALER_STANDS_AT || total > BlackJackHand.BLACKJACK) {
+				throw new IllegalArgumentException("The dealer cannot stand on " + total);
+			}
+			return p[outcomeOf(total)];
+		}
+
+		/**
+		 * Accesses the probability that the dealer busts.
+		 * @return the probability of going over 21.
+		 */
+		public double bust() {
+			return p[BUST];
+		}
+
+		/**
+		 * Accesses the probability that the cards run out before the
+		 * dealer reaches 17, which only happens when very few are left.
+		 * @return the probability of running short.
+		 */
+		public double runsShort() {
+			return p[SHORT];
+		}
+
+		/**
+		 * Computes the probability that a standing player with the given
+		 * total beats the dealer, i.e. the dealer busts or finishes lower.
+		 * @param playerTotal the player's total, 21 or less.
+		 * @return the probability of the player winning.
+		 */
+		public double beatenBy(int playerTotal) {
+			double win = p[BUST];
+			for (int total = BlackJackBoard.DEALER_STANDS_AT;
+					total < playerTotal && total <= BlackJackHand.BLACKJACK; total++) {
+				win += p[outcomeOf(total)];
+			}
+			return win;
+		}
+
+		/**
+		 * Generates and returns a string representation of this distribution.
+		 * @return the probability of each total and of busting.
+		 */
+		@Override
+		public String toString() {
+			return String.format("17: %.4f, 18: %.4f, 19: %.4f, 20: %.4f, 21: %.4f, bust: %.4f",
+				p[1], p[2], p[3], p[4], p[5], p[BUST]);
+		}
+	}
+
+	/**
+	 * A remembered result's key: the counts of the cards left, packed
+	 * by <code>composition</code>, and the dealer's hand.
+	 */
+	private static final class Key {
+
+		/**
+		 * The packed counts of the cards left.
+		 */
+		private long cards;
+
+		/**
+		 * The dealer's hard total, whether it holds an ace,
+		 * and the point value the next card cannot have.
+		 */
+		private int hand;
+
+		/**
+		 * Changes this key.
+		 * @param packedCards the packed counts of the cards left.
+		 * @param packedHand the packed hand.
+		 */
+		void set(long packedCards, int packedHand) {
+			cards = packedCards;
+			hand = packedHand;
+		}
+
+		/**
+		 * Copies this key, to be stored in place of the reused probe.
+		 * @return a key equal to this one.
+		 */
+		Key copy() {
+			Key key = new Key();
+			key.set(cards, hand);
+			return key;
+		}
+
+		/**
+		 * Computes a hash code that mixes every bit of the key.
+		 * @return the hash code.
+		 */
+		@Override
+		public int hashCode() {
+			long h = (cards * 31 + hand) * 0x9E3779B97F4A7C15L;
+			return (int) (h ^ (h >>> 32));
+		}
+
+		/**
+		 * Compares this key with another.
+		 * @param other the object to compare with.
+		 * @return true if other is a key for the same cards and hand.
+		 */
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			return cards == key.cards && hand == key.hand;
+		}
+	}
+}
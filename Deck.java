@@ -1,5 +1,5 @@
-import java.util.List;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * The Deck class represents a shuffled deck of cards.
@@ -9,9 +9,10 @@ import java.util.ArrayList;
 public class Deck {
 
 	/**
-	 * cards contains all the cards in the deck.
+	 * cards contains the codes (see <code>CardCode</code>) of all
+	 * the cards in the deck.
 	 */
-	private List<Card> cards;
+	private int[] cards;
 
 	/**
 	 * size is the number of not-yet-dealt cards.
@@ -20,6 +21,42 @@ public class Deck {
 	 */
 	private int size;
 
+	/**
+	 * random is the source of randomness used to shuffle this deck.
+	 * Each deck owns its generator so that decks on different
+	 * threads never contend for one.
+	 */
+	private RandomSource random;
+
+	/**
+	 * The codes of all the cards in the order the deck was created in.
+	 * Reseeding restores this order, so a seed fully determines a shuffle.
+	 */
+	private int[] creationOrder;
+
+	/**
+	 * The names of the card ranks, indexed by a code's rank index.
+	 */
+	private String[] rankNames;
+
+	/**
+	 * The names of the card suits, indexed by a code's suit index.
+	 */
+	private String[] suitNames;
+
+	/**
+	 * The <code>Card</code> objects handed out for each rank and suit,
+	 * created the first time they are asked for.
+	 */
+	private Card[][] faces;
+
+	/**
+	 * True while the cards array may also be held by a
+	 * <code>Snapshot</code>, in which case it is copied before
+	 * the cards are next rearranged.
+	 */
+	private boolean shared;
+
 
 	/**
 	 * Creates a new <code>Deck</code> instance.<BR>
@@ -30,13 +67,63 @@ public class Deck {
 	 * @param values is an array containing all of the card point values.
 	 */
 	public Deck(String[] ranks, String[] suits, int[] values) {
-		cards = new ArrayList<Card>();
-		for (int j = 0; j < ranks.length; j++) {
-			for (String suitString : suits) {
-				cards.add(new Card(ranks[j], suitString, values[j]));
+		this(ranks, suits, values, new XoroshiroRandom());
+	}
+
+	/**
+	 * Creates a new <code>Deck</code> instance whose shuffles are
+	 * reproducible from the given seed.
+	 * @param ranks is an array containing all of the card ranks.
+	 * @param suits is an array containing all of the card suits.
+	 * @param values is an array containing all of the card point values.
+	 * @param seed is the seed for this deck's random number generator.
+	 */
+	public Deck(String[] ranks, String[] suits, int[] values, long seed) {
+		this(ranks, suits, values, new XoroshiroRandom(seed));
+	}
+
+	/**
+	 * Creates a new <code>Deck</code> instance that shuffles with
+	 * the given source of random numbers.
+	 * @param ranks is an array containing all of the card ranks.
+	 * @param suits is an array containing all of the card suits.
+	 * @param values is an array containing all of the card point values.
+	 * @param rng is the source of random numbers used to shuffle.
+	 */
+	public Deck(String[] ranks, String[] suits, int[] values, RandomSource rng) {
+		this(ranks, suits, values, 1, rng);
+	}
+
+	/**
+	 * Creates a new <code>Deck</code> instance made of several copies of
+	 * a standard set of cards, as in a blackjack shoe.
+	 * @param ranks is an array containing all of the card ranks.
+	 * @param suits is an array containing all of the card suits.
+	 * @param values is an array containing all of the card point values.
+	 * @param copies is the number of copies of each card.
+	 * @param rng is the source of random numbers used to shuffle.
+	 */
+	public Deck(String[] ranks, String[] suits, int[] values, int copies,
+			RandomSource rng) {
+		if (copies < 1) {
+			throw new IllegalArgumentException("copies must be positive: " + copies);
+		}
+		random = rng;
+		rankNames = ranks.clone();
+		suitNames = suits.clone();
+		faces = new Card[ranks.length][suits.length];
+		cards = new int[copies * ranks.length * suits.length];
+		int n = 0;
+		for (int c = 0; c < copies; c++) {
+			for (int j = 0; j < ranks.length; j++) {
+				for (int s = 0; s < suits.length; s++) {
+					cards[n] = CardCode.encode(j, s, values[j]);
+					n++;
+				}
 			}
 		}
-		size = cards.size();
+		creationOrder = cards.clone();
+		size = cards.length;
 		shuffle();
 	}
 
@@ -57,20 +144,207 @@ public class Deck {
 		return size;
 	}
 
+	/**
+	 * Accesses the number of cards in this deck, dealt or not.
+	 * @return the number of cards in this deck.
+	 */
+	public int totalSize() {
+		return cards.length;
+	}
+
+	/**
+	 * Looks ahead at an undealt card without dealing it.
+	 * @param i how many cards will be dealt before it; 0 is the next card.
+	 * @return the code (see <code>CardCode</code>) of that card.
+	 */
+	public int peekCode(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Undealt card " + i
+				+ " of " + size);
+		}
+		return cards[size - 1 - i];
+	}
+
+	/**
+	 * Accesses the number of cards dealt from this deck.
+	 * @return the number of dealt cards.
+	 */
+	public int dealtSize() {
+		return cards.length - size;
+	}
+
+	/**
+	 * Looks back at a dealt card.
+	 * @param i how many cards have been dealt since it; 0 is the card
+	 *        dealt last.
+	 * @return the code (see <code>CardCode</code>) of that card.
+	 */
+	public int peekDealtCode(int i) {
+		if (i < 0 || i >= cards.length - size) {
+			throw new IndexOutOfBoundsException("Dealt card " + i
+				+ " of " + (cards.length - size));
+		}
+		return cards[size + i];
+	}
+
+	/**
+	 * Reseeds this deck's source of random numbers and puts the cards back
+	 * in the order the deck was created in, so that the shuffles that follow
+	 * are determined by the seed alone.
+	 * @param seed the new seed.
+	 * @throws UnsupportedOperationException if the source cannot be seeded.
+	 */
+	public void setSeed(long seed) {
+		random.setSeed(seed);
+		ownCards();
+		System.arraycopy(creationOrder, 0, cards, 0, cards.length);
+		size = cards.length;
+	}
+
+	/**
+	 * Puts the cards in the given deal order, with every card undealt.
+	 * Cards are identified by their ordinal (see <code>ordinal</code>).
+	 * The order is not checked to be a permutation of the deck.
+	 * @param ordinals the ordinals of the cards, in the order
+	 *        they are to be dealt; one for every card in the deck.
+	 */
+	public void setOrder(int[] ordinals) {
+		if (ordinals.length != cards.length) {
+			throw new IllegalArgumentException("Expected " + cards.length
+				+ " cards but got " + ordinals.length);
+		}
+		int distinct = rankNames.length * suitNames.length;
+		ownCards();
+		for (int i = 0; i < ordinals.length; i++) {
+			if (ordinals[i] < 0 || ordinals[i] >= distinct) {
+				throw new IllegalArgumentException("No card with ordinal "
+					+ ordinals[i]);
+			}
+			cards[cards.length - 1 - i] = creationOrder[ordinals[i]];
+		}
+		size = cards.length;
+	}
+
+	/**
+	 * Captures the order of the cards and how many are dealt, so that
+	 * this deck can later be put back the way it is now.  This takes
+	 * constant time: the snapshot shares the cards with the deck, which
+	 * copies them only if it rearranges them later, e.g. to shuffle.
+	 * Dealing does not rearrange the cards.
+	 * @return the state of this deck.
+	 */
+	public Snapshot snapshot() {
+		shared = true;
+		return new Snapshot(cards, size);
+	}
+
+	/**
+	 * Puts this deck back the way it was when a snapshot was taken.
+	 * This takes constant time.  The source of random numbers is not
+	 * wound back, so later shuffles differ from the ones that followed
+	 * the snapshot.
+	 * @param state a snapshot of this deck, or of one made with the
+	 *        same ranks, suits, point values and number of copies.
+	 */
+	public void restore(Snapshot state) {
+		if (state.cards.length != cards.length) {
+			throw new IllegalArgumentException("Expected a deck of "
+				+ cards.length + " cards but got " + state.cards.length);
+		}
+		cards = state.cards;
+		size = state.size;
+		shared = true;
+	}
+
+	/**
+	 * Identifies a card by its position among the distinct cards of
+	 * this deck, in the order they were created: rank by rank, and
+	 * suit by suit within a rank.
+	 * @param code the code of a card from this deck.
+	 * @return the card's ordinal, from 0 to the number of ranks
+	 *         times the number of suits, less one.
+	 */
+	public int ordinal(int code) {
+		return CardCode.rank(code) * suitNames.length + CardCode.suit(code);
+	}
+
+	/**
+	 * Replaces the source of random numbers this deck shuffles with.
+	 * @param rng the new source of random numbers.
+	 */
+	public void setRandomSource(RandomSource rng) {
+		random = rng;
+	}
+
 	/**
 	 * Randomly permute the given collection of cards
 	 * and reset the size to represent the entire deck.
 	 */
 	public void shuffle() {
-		for (int k = cards.size() - 1; k > 0; k--) {
+		size = cards.length;
+		shuffleUndealt();
+	}
+
+	/**
+	 * Returns the dealt cards to the deck and shuffles them, except for the
+	 * most recently dealt ones, which are still in play and stay dealt.
+	 * The cards are rearranged in place; nothing is allocated.
+	 * @param inPlay the number of most recently dealt cards to leave out.
+	 */
+	public void reshuffle(int inPlay) {
+		if (inPlay < 0 || inPlay > cards.length - size) {
+			throw new IllegalArgumentException("Cannot keep " + inPlay
+				+ " of " + (cards.length - size) + " dealt cards in play");
+		}
+		ownCards();
+		// The cards in play are at [size, size + inPlay) and the earlier
+		// discards after them; rotate the cards in play to the very end.
+		reverse(size, size + inPlay);
+		reverse(size + inPlay, cards.length);
+		reverse(size, cards.length);
+		size = cards.length - inPlay;
+		shuffleUndealt();
+	}
+
+	/**
+	 * Randomly permute the undealt cards, leaving the dealt ones alone.
+	 */
+	private void shuffleUndealt() {
+		long startTime = GameMetrics.start();
+		ownCards();
+		for (int k = size - 1; k > 0; k--) {
 			int howMany = k + 1;
 			int start = 0;
-			int randPos = (int) (Math.random() * howMany) + start;
-			Card temp = cards.get(k);
-			cards.set(k, cards.get(randPos));
-			cards.set(randPos, temp);
+			int randPos = random.nextInt(howMany) + start;
+			int temp = cards[k];
+			cards[k] = cards[randPos];
+			cards[randPos] = temp;
+		}
+		GameMetrics.DECK_SHUFFLE.stop(startTime);
+	}
+
+	/**
+	 * Makes sure no snapshot shares the cards array,
+	 * so that it can be rearranged.
+	 */
+	private void ownCards() {
+		if (shared) {
+			cards = cards.clone();
+			shared = false;
+		}
+	}
+
+	/**
+	 * Reverses the order of a range of cards.
+	 * @param from the index of the first card in the range.
+	 * @param to the index just past the last card in the range.
+	 */
+	private void reverse(int from, int to) {
+		for (int i = from, j = to - 1; i < j; i++, j--) {
+			int temp = cards[i];
+			cards[i] = cards[j];
+			cards[j] = temp;
 		}
-		size = cards.size();
 	}
 
 	/**
@@ -79,11 +353,68 @@ public class Deck {
 	 *         previously dealt.
 	 */
 	public Card deal() {
+		return card(dealCode());
+	}
+
+	/**
+	 * Deals a card from this deck as a code.
+	 * @return the code (see <code>CardCode</code>) of the card just dealt,
+	 *         or <code>CardCode.NONE</code> if all the cards have been
+	 *         previously dealt.
+	 */
+	public int dealCode() {
 		if (isEmpty()) {
-			return null;
+			return CardCode.NONE;
 		}
 		size--;
-		Card c = cards.get(size);
+		return cards[size];
+	}
+
+	/**
+	 * Deals several cards from this deck as codes in one call, in the
+	 * order that repeated calls to <code>dealCode</code> would deal them.
+	 * If the deck runs out, the rest of the positions are set to
+	 * <code>CardCode.NONE</code>.
+	 * @param dest receives the codes of the cards dealt.
+	 * @param offset the position in dest of the first card.
+	 * @param count the number of cards to deal.
+	 * @return the number of cards actually dealt.
+	 */
+	public int dealCodes(int[] dest, int offset, int count) {
+		if (offset < 0 || count < 0 || count > dest.length - offset) {
+			throw new IllegalArgumentException("Cannot deal " + count
+				+ " cards at " + offset + " into " + dest.length + " positions");
+		}
+		int dealt = Math.min(count, size);
+		int top = size - 1;
+		for (int i = 0; i < dealt; i++) {
+			dest[offset + i] = cards[top - i];
+		}
+		size -= dealt;
+		Arrays.fill(dest, offset + dealt, offset + count, CardCode.NONE);
+		return dealt;
+	}
+
+	/**
+	 * Converts a card code from this deck into a <code>Card</code>.
+	 * The same <code>Card</code> object is returned every time
+	 * for a given code.
+	 * @param code the code of a card from this deck.
+	 * @return the corresponding card, or null if code is
+	 *         <code>CardCode.NONE</code>.
+	 */
+	public Card card(int code) {
+		if (code == CardCode.NONE) {
+			return null;
+		}
+		int rank = CardCode.rank(code);
+		int suit = CardCode.suit(code);
+		Card c = faces[rank][suit];
+		if (c == null) {
+			c = new Card(rankNames[rank], suitNames[suit],
+				CardCode.pointValue(code));
+			faces[rank][suit] = c;
+		}
 		return c;
 	}
 
@@ -93,32 +424,163 @@ public class Deck {
 	 */
 	@Override
 	public String toString() {
-		String rtn = "size = " + size + "\nUndealt cards: \n";
+		StringBuilder rtn = new StringBuilder(64 + 40 * cards.length);
+		try {
+			appendTo(rtn);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return rtn.toString();
+	}
+
+	/**
+	 * Writes this deck in the same format as <code>toString</code>,
+	 * one card at a time, so the time taken is linear in the size
+	 * of the deck.
+	 * @param out where to write the deck.
+	 * @throws IOException if out cannot be written to.
+	 */
+	public void appendTo(Appendable out) throws IOException {
+		out.append("size = ");
+		appendInt(out, size);
+		out.append("\nUndealt cards: \n");
 
 		for (int k = size - 1; k >= 0; k--) {
-			rtn = rtn + cards.get(k);
+			card(cards[k]).appendTo(out);
 			if (k != 0) {
-				rtn = rtn + ", ";
+				out.append(", ");
 			}
 			if ((size - k) % 2 == 0) {
 				// Insert carriage returns so entire deck is visible on console.
-				rtn = rtn + "\n";
+				out.append('\n');
 			}
 		}
 
-		rtn = rtn + "\nDealt cards: \n";
-		for (int k = cards.size() - 1; k >= size; k--) {
-			rtn = rtn + cards.get(k);
+		out.append("\nDealt cards: \n");
+		for (int k = cards.length - 1; k >= size; k--) {
+			card(cards[k]).appendTo(out);
 			if (k != size) {
-				rtn = rtn + ", ";
+				out.append(", ");
 			}
-			if ((k - cards.size()) % 2 == 0) {
+			if ((k - cards.length) % 2 == 0) {
 				// Insert carriage returns so entire deck is visible on console.
-				rtn = rtn + "\n";
+				out.append('\n');
+			}
+		}
+
+		out.append('\n');
+	}
+
+	/**
+	 * Writes this deck on a single line, for trace logs:
+	 * the number of undealt cards, then the undealt cards in the order
+	 * they will be dealt, a bar, and the dealt cards, most recent first.
+	 * Each card is written in its short form (see <code>appendCode</code>),
+	 * e.g. <code>3 QH 10S AC | 7D</code>.
+	 * @param out where to write the deck.
+	 * @throws IOException if out cannot be written to.
+	 */
+	public void appendCompactTo(Appendable out) throws IOException {
+		appendInt(out, size);
+		for (int k = size - 1; k >= 0; k--) {
+			out.append(' ');
+			appendCode(out, cards[k]);
+		}
+		out.append(" |");
+		for (int k = size; k < cards.length; k++) {
+			out.append(' ');
+			appendCode(out, cards[k]);
+		}
+	}
+
+	/**
+	 * Writes the short form of a card: its rank name if that is a number,
+	 * otherwise the rank name's first letter, followed by the first letter
+	 * of its suit name, both in upper case, e.g. <code>10S</code> or
+	 * <code>QH</code>.  An empty position is written as <code>--</code>.
+	 * @param out where to write the card.
+	 * @param code the code of a card from this deck, or
+	 *        <code>CardCode.NONE</code>.
+	 * @throws IOException if out cannot be written to.
+	 */
+	public void appendCode(Appendable out, int code) throws IOException {
+		if (code == CardCode.NONE) {
+			out.append("--");
+			return;
+		}
+		String rank = rankNames[CardCode.rank(code)];
+		if (rank.length() > 0 && Character.isDigit(rank.charAt(0))) {
+			out.append(rank);
+		} else if (rank.length() > 0) {
+			out.append(Character.toUpperCase(rank.charAt(0)));
+		}
+		String suit = suitNames[CardCode.suit(code)];
+		if (suit.length() > 0) {
+			out.append(Character.toUpperCase(suit.charAt(0)));
+		}
+	}
+
+	/**
+	 * Writes the decimal digits of a number without creating a string.
+	 * @param out where to write the number.
+	 * @param n the number to write.
+	 * @throws IOException if out cannot be written to.
+	 */
+	static void appendInt(Appendable out, int n) throws IOException {
+		if (n < 0) {
+			if (n == Integer.MIN_VALUE) {
+				out.append("-2147483648");
+				return;
 			}
+			out.append('-');
+			n = -n;
+		}
+		int div = 1;
+		while (div <= n / 10) {
+			div *= 10;
 		}
+		while (div > 0) {
+			out.append((char) ('0' + n / div % 10));
+			div /= 10;
+		}
+	}
+
+	/**
+	 * The order of a deck's cards and the number left to deal,
+	 * as captured by <code>snapshot</code>.  A snapshot never changes,
+	 * so one can be restored any number of times, to any number of
+	 * decks of the same kind.
+	 */
+	public static class Snapshot {
 
-		rtn = rtn + "\n";
-		return rtn;
+		/**
+		 * The codes of the cards, in the deck's order; shared with
+		 * decks, which never change an array they share.
+		 */
+		private int[] cards;
+
+		/**
+		 * The number of cards that were left to deal.
+		 */
+		private int size;
+
+		/**
+		 * Creates a new <code>Snapshot</code> instance.
+		 * @param deckCards the deck's cards, which must no longer be
+		 *        changed in place.
+		 * @param undealt the number of cards left to deal.
+		 */
+		private Snapshot(int[] deckCards, int undealt) {
+			cards = deckCards;
+			size = undealt;
+		}
+
+		/**
+		 * Accesses the number of cards that were left to deal.
+		 * @return the number of undealt cards.
+		 */
+		public int size() {
+			return size;
+		}
 	}
 }
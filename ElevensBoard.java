@@ -1,10 +1,9 @@
-import java.util.List;
-import java.util.ArrayList;
-
 /**
  * The ElevensBoard class represents the board in a game of Elevens.
+ * The game is played by <code>RuleBoard</code> from the rules
+ * in <code>RULES</code>.
  */
-public class ElevensBoard extends Board {
+public class ElevensBoard extends RuleBoard {
 
 	/**
 	 * The size (number of cards) on the board.
@@ -30,153 +29,42 @@ public class ElevensBoard extends Board {
 		{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 0, 0, 0};
 
 	/**
-	 * Flag used to control debugging print statements.
+	 * The index of the jack in RANKS.
 	 */
-	private static final boolean I_AM_DEBUGGING = true;
-
+	static final int JACK = 10;
 
 	/**
-	 * Creates a new <code>ElevensBoard</code> instance.
+	 * The index of the queen in RANKS.
 	 */
-	 public ElevensBoard() {
-	 	super(BOARD_SIZE, RANKS, SUITS, POINT_VALUES);
-	 }
+	static final int QUEEN = 11;
 
 	/**
-	 * Determines if the selected cards form a valid group for removal.
-	 * In Elevens, the legal groups are (1) a pair of non-face cards
-	 * whose values add to 11, and (2) a group of three cards consisting of
-	 * a jack, a queen, and a king in some order.
-	 * @param selectedCards the list of the indices of the selected cards.
-	 * @return true if the selected cards form a valid group for removal;
-	 *         false otherwise.
+	 * The index of the king in RANKS.
 	 */
-	@Override
-	public boolean isLegal(List<Integer> selectedCards) {
-		if (selectedCards.size() == 2) {
-			return findPairSum11(selectedCards).size() > 0;
-		} else if (selectedCards.size() == 3) {
-			return findJQK(selectedCards).size() > 0;
-		} else {
-			return false;
-		}
-	}
+	static final int KING = 12;
 
 	/**
-	 * Determine if there are any legal plays left on the board.
-	 * In Elevens, there is a legal play if the board contains
-	 * (1) a pair of non-face cards whose values add to 11, or (2) a group
-	 * of three cards consisting of a jack, a queen, and a king in some order.
-	 * @return true if there is a legal play left on the board;
-	 *         false otherwise.
-	 */
-	@Override
-	public boolean anotherPlayIsPossible() {
-		List<Integer> cIndexes = cardIndexes();
-		return findPairSum11(cIndexes).size() > 0
-			 || findJQK(cIndexes).size() > 0;
-	}
-
-	/**
-	 * Look for an 11-pair in the selected cards.
-	 * @param selectedCards selects a subset of this board.  It is list
-	 *                      of indexes into this board that are searched
-	 *                      to find an 11-pair.
-	 * @return a list of the indexes of an 11-pair, if an 11-pair was found;
-	 *         an empty list, if an 11-pair was not found.
-	 */
-	private List<Integer> findPairSum11(List<Integer> selectedCards) {
-		List<Integer> foundIndexes = new ArrayList<Integer>();
-		for (int sk1 = 0; sk1 < selectedCards.size(); sk1++) {
-			int k1 = selectedCards.get(sk1).intValue();
-			for (int sk2 = sk1 + 1; sk2 < selectedCards.size(); sk2++) {
-				int k2 = selectedCards.get(sk2).intValue();
-				if (cardAt(k1).pointValue() + cardAt(k2).pointValue() == 11) {
-					foundIndexes.add(new Integer(k1));
-					foundIndexes.add(new Integer(k2));
-					return foundIndexes;
-				}
-			}
-		}
-		return foundIndexes;
-	}
-
-	/**
-	 * Look for a JQK in the selected cards.
-	 * @param selectedCards selects a subset of this board.  It is list
-	 *                      of indexes into this board that are searched
-	 *                      to find a JQK group.
-	 * @return a list of the indexes of a JQK, if a JQK was found;
-	 *         an empty list, if a JQK was not found.
+	 * The removals allowed in Elevens: (1) a pair of non-face cards
+	 * whose values add to 11, and (2) a group of three cards consisting of
+	 * a jack, a queen, and a king in some order.
 	 */
-	private List<Integer> findJQK(List<Integer> selectedCards) {
-		List<Integer> foundIndexes = new ArrayList<Integer>();
-		int jackIndex = -1;
-		int queenIndex = -1;
-		int kingIndex = -1;
-		for (Integer kObj : selectedCards) {
-			int k = kObj.intValue();
-			if (cardAt(k).rank().equals("jack")) {
-				jackIndex = k;
-			} else if (cardAt(k).rank().equals("queen")) {
-				queenIndex = k;
-			} else if (cardAt(k).rank().equals("king")) {
-				kingIndex = k;
-			}
-		}
-		if (jackIndex != -1 && queenIndex != -1 && kingIndex != -1) {
-			foundIndexes.add(new Integer(jackIndex));
-			foundIndexes.add(new Integer(queenIndex));
-			foundIndexes.add(new Integer(kingIndex));
-		}
-		return foundIndexes;
-	}
+	static final BoardRules RULES =
+		new BoardRules().withPairSum(11).withRankGroup(JACK, QUEEN, KING);
 
-	/**
-	 * Looks for a legal play on the board.  If one is found, it plays it.
-	 * @return true if a legal play was found (and made); false othewise.
-	 */
-	public boolean playIfPossible() {
-		return playPairSum11IfPossible() || playJQKIfPossible();
-	}
 
 	/**
-	 * Looks for a pair of non-face cards whose values sum to 11.
-	 * If found, replace them with the next two cards in the deck.
-	 * The simulation of this game uses this method.
-	 * @return true if an 11-pair play was found (and made); false othewise.
+	 * Creates a new <code>ElevensBoard</code> instance.
 	 */
-	private boolean playPairSum11IfPossible() {
-		List<Integer> foundIndexes = cardIndexes();
-		List<Integer> cardsToReplace = findPairSum11(foundIndexes);
-		if (cardsToReplace.size() > 0) {
-			replaceSelectedCards(cardsToReplace);
-			if (I_AM_DEBUGGING) {
-				System.out.println("11-Pair removed.\n");
-			}
-			return true;
-		} else {
-			return false;
-		}
-	}
+	 public ElevensBoard() {
+	 	super(BOARD_SIZE, RANKS, SUITS, POINT_VALUES, RULES);
+	 }
 
 	/**
-	 * Looks for a group of three face cards JQK.
-	 * If found, replace them with the next three cards in the deck.
-	 * The simulation of this game uses this method.
-	 * @return true if a JQK play was found (and made); false othewise.
+	 * Creates a new <code>ElevensBoard</code> instance whose deals are
+	 * reproducible from the given seed.
+	 * @param seed the seed for the deck's random number generator
 	 */
-	private boolean playJQKIfPossible() {
-		List<Integer> foundIndexes = cardIndexes();
-		List<Integer> cardsToReplace = findJQK(foundIndexes);
-		if (cardsToReplace.size() > 0) {
-			replaceSelectedCards(cardsToReplace);
-						if (I_AM_DEBUGGING) {
-				System.out.println("JQK-Triplet removed.\n");
-			}
-			return true;
-		} else {
-			return false;
-		}
-	}
+	 public ElevensBoard(long seed) {
+	 	super(BOARD_SIZE, RANKS, SUITS, POINT_VALUES, RULES, seed);
+	 }
 }
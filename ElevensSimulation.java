@@ -5,41 +5,33 @@
 public class ElevensSimulation {
 
 	/**
-	 * The number of games of Elevens to play.
+	 * The number of games of Elevens to play when none is given.
 	 */
 	private static final int GAMES_TO_PLAY = 1;
 
 	/**
 	 * Flag used to control debugging print statements.
 	 */
-	private static final boolean I_AM_DEBUGGING = true;
+	private static final boolean I_AM_DEBUGGING = false;
 
 
 	/**
-	 * @param args is not used.
+	 * Plays games of Elevens on every available processor and prints
+	 * the results.
+	 * @param args are, in order and all optional: the number of games to
+	 *             play, the number of threads, the random seed, and a
+	 *             directory to record every game in (see
+	 *             <code>SimulationEngine.runFromCommandLine</code>).
+	 * @throws InterruptedException if interrupted while the games are played.
 	 */
-	public static void main(String[] args) {
-		ElevensBoard board = new ElevensBoard();
-		int wins = 0;
-
-		for (int k = 0; k < GAMES_TO_PLAY; k++) {
-			if (I_AM_DEBUGGING) {
-				System.out.println(board);
-			}
-			while (board.playIfPossible()) {
-				if (I_AM_DEBUGGING) {
-					System.out.println(board);
+	public static void main(String[] args) throws InterruptedException {
+		SimulationEngine engine = new SimulationEngine(
+			new SimulationEngine.BoardFactory() {
+				public Board newBoard(long seed) {
+					return new ElevensBoard(seed);
 				}
-			}
-			if (board.gameIsWon()) {
-				wins++;
-			}
-			board.newGame();
-		}
-
-		double percentWon = (int)(1000.0 * wins / GAMES_TO_PLAY + 0.5) / 10.0;
-		System.out.println("Games won:    " + wins);
-		System.out.println("Games played: " + GAMES_TO_PLAY);
-		System.out.println("Percent won:  " + percentWon + "%");
+			});
+		engine.setDebugging(I_AM_DEBUGGING);
+		engine.runFromCommandLine(args, GAMES_TO_PLAY);
 	}
 }
@@ -0,0 +1,357 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The GameMetrics class times the game operations worth watching under
+ * load: shuffling a deck, replacing cards on a board, checking for
+ * another play, and playing out the dealer's hand.  Each has a
+ * <code>LatencyHistogram</code>.
+ * <p>
+ * Timing is off until it is turned on, with <code>setEnabled</code>, over
+ * JMX, or by starting the JVM with <code>-Dgame.metrics=true</code>.
+ * While it is off an operation costs one extra read of a volatile flag.
+ * An operation is timed like this:
+ * <pre>
+ *     long start = GameMetrics.start();
+ *     ...
+ *     GameMetrics.DECK_SHUFFLE.stop(start);
+ * </pre>
+ * The histograms can be read through the JMX bean registered by
+ * <code>registerMBean</code>, and in the Prometheus text format through
+ * <code>appendPrometheus</code> or the local HTTP endpoint started by
+ * <code>startHttpServer</code>.  Starting the JVM with
+ * <code>-Dgame.metrics.port=</code><i>port</i> turns timing on and
+ * starts both.
+ */
+public final class GameMetrics {
+
+	/**
+	 * The start time returned by <code>start</code> while timing is off.
+	 */
+	public static final long OFF = Long.MIN_VALUE;
+
+	/**
+	 * The name the JMX bean is registered under.
+	 */
+	public static final String OBJECT_NAME = "BlackJack:type=GameMetrics";
+
+	/**
+	 * The times taken by <code>Deck.shuffle</code> and <code>Deck.reshuffle</code>.
+	 */
+	public static final LatencyHistogram DECK_SHUFFLE = new LatencyHistogram(
+		"deck_shuffle", "Time to shuffle a deck or shoe.");
+
+	/**
+	 * The times taken by <code>Board.replaceSelectedCards</code>.
+	 */
+	public static final LatencyHistogram BOARD_REPLACE = new LatencyHistogram(
+		"board_replace_selected_cards", "Time to replace the selected cards on a board.");
+
+	/**
+	 * The times taken by <code>anotherPlayIsPossible</code>.
+	 */
+	public static final LatencyHistogram BOARD_PLAY_CHECK = new LatencyHistogram(
+		"board_another_play_is_possible", "Time to check a board for another legal play.");
+
+	/**
+	 * The times taken by <code>BlackJackBoard.playDealerHand</code>.
+	 */
+	public static final LatencyHistogram DEALER_PLAY = new LatencyHistogram(
+		"blackjack_dealer_play", "Time to play out the dealer's hand.");
+
+	/**
+	 * Every histogram, in the order they are reported.
+	 */
+	private static final LatencyHistogram[] HISTOGRAMS =
+		{DECK_SHUFFLE, BOARD_REPLACE, BOARD_PLAY_CHECK, DEALER_PLAY};
+
+	/**
+	 * The quantiles reported in the Prometheus text.
+	 */
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+	/**
+	 * Whether the operations are being timed.
+	 */
+	private static volatile boolean enabled =
+		Boolean.getBoolean("game.metrics");
+
+	/**
+	 * The HTTP server publishing the metrics, or null if none was started.
+	 */
+	private static HttpServer httpServer;
+
+	static {
+		Integer port = Integer.getInteger("game.metrics.port");
+		if (port != null) {
+			enabled = true;
+			try {
+				registerMBean();
+				startHttpServer(port.intValue());
+			} catch (IOException e) {
+				System.err.println("Cannot publish game metrics: " + e);
+			}
+		}
+	}
+
+
+	/**
+	 * No instances; all the methods are static.
+	 */
+	private GameMetrics() {
+	}
+
+	/**
+	 * Starts timing an operation.
+	 * @return the current time in nanoseconds, or <code>OFF</code>
+	 *         if timing is off.
+	 */
+	public static long start() {
+		return enabled ? System.nanoTime() : OFF;
+	}
+
+	/**
+	 * Determines if the operations are being timed.
+	 * @return true if timing is on; false otherwise.
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Turns timing of the operations on or off.
+	 * @param on true to time the operations.
+	 */
+	public static void setEnabled(boolean on) {
+		enabled = on;
+	}
+
+	/**
+	 * Forgets every time recorded.
+	 */
+	public static void reset() {
+		for (LatencyHistogram h : HISTOGRAMS) {
+			h.reset();
+		}
+	}
+
+	/**
+	 * Writes every histogram in the Prometheus text format, as a summary
+	 * in seconds with its quantiles, sum and count.
+	 * @param out where to write the metrics.
+	 * @throws IOException if out cannot be written to.
+	 */
+	public static void appendPrometheus(Appendable out) throws IOException {
+		for (LatencyHistogram h : HISTOGRAMS) {
+			String metric = "game_" + h.name() + "_seconds";
+			out.append("# HELP ").append(metric).append(' ')
+				.append(h.help()).append('\n');
+			out.append("# TYPE ").append(metric).append(" summary\n");
+			for (double q : QUANTILES) {
+				out.append(metric).append("{quantile=\"")
+					.append(String.valueOf(q)).append("\"} ")
+					.append(seconds(h.valueAt(q))).append('\n');
+			}
+			out.append(metric).append("_sum ").append(seconds(h.sum())).append('\n');
+			out.append(metric).append("_count ")
+				.append(String.valueOf(h.count())).append('\n');
+		}
+		out.append("# HELP game_metrics_enabled Whether game operations are being timed.\n");
+		out.append("# TYPE game_metrics_enabled gauge\n");
+		out.append("game_metrics_enabled ").append(enabled ? "1" : "0").append('\n');
+	}
+
+	/**
+	 * Generates every histogram in the Prometheus text format.
+	 * @return the metrics text.
+	 */
+	public static String prometheusText() {
+		StringBuilder text = new StringBuilder(2048);
+		try {
+			appendPrometheus(text);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server, under
+	 * <code>OBJECT_NAME</code>.  Registering again does nothing.
+	 * @throws IOException if the bean cannot be registered.
+	 */
+	public static synchronized void registerMBean() throws IOException {
+		try {
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), name);
+			}
+		} catch (JMException e) {
+			throw new IOException("Cannot register " + OBJECT_NAME, e);
+		}
+	}
+
+	/**
+	 * Starts an HTTP server on the loopback address that answers
+	 * <code>/metrics</code> with the Prometheus text.  Only one server
+	 * is started; later calls return the port it listens on.
+	 * @param port the port to listen on, or 0 for any free port.
+	 * @return the port the server listens on.
+	 * @throws IOException if the server cannot be started.
+	 */
+	public static synchronized int startHttpServer(int port) throws IOException {
+		if (httpServer == null) {
+			HttpServer server = HttpServer.create(
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+			server.createContext("/metrics", new HttpHandler() {
+				public void handle(HttpExchange exchange) throws IOException {
+					byte[] body = prometheusText().getBytes(StandardCharsets.UTF_8);
+					exchange.getResponseHeaders().set("Content-Type",
+						"text/plain; version=0.0.4; charset=utf-8");
+					exchange.sendResponseHeaders(200, body.length);
+					OutputStream out = exchange.getResponseBody();
+					try {
+						out.write(body);
+					} finally {
+						out.close();
+					}
+				}
+			});
+			server.start();
+			httpServer = server;
+		}
+		return httpServer.getAddress().getPort();
+	}
+
+	/**
+	 * Stops the HTTP server, if one was started.
+	 */
+	public static synchronized void stopHttpServer() {
+		if (httpServer != null) {
+			httpServer.stop(0);
+			httpServer = null;
+		}
+	}
+
+	/**
+	 * Formats a number of nanoseconds as seconds.
+	 * @param nanos the number of nanoseconds.
+	 * @return the number of seconds.
+	 */
+	private static String seconds(long nanos) {
+		return String.valueOf(nanos / 1e9);
+	}
+
+	/**
+	 * The JMX view of the metrics.
+	 */
+	private static class Bean implements GameMetricsMXBean {
+
+		/**
+		 * Determines if the game operations are being timed.
+		 * @return true if timing is on; false otherwise.
+		 */
+		public boolean isEnabled() {
+			return GameMetrics.isEnabled();
+		}
+
+		/**
+		 * Turns timing of the game operations on or off.
+		 * @param on true to time the operations.
+		 */
+		public void setEnabled(boolean on) {
+			GameMetrics.setEnabled(on);
+		}
+
+		/**
+		 * Accesses the number of times each operation has been timed.
+		 * @return the counts, by operation name.
+		 */
+		public Map<String, Long> getCounts() {
+			Map<String, Long> values = new LinkedHashMap<String, Long>();
+			for (LatencyHistogram h : HISTOGRAMS) {
+				values.put(h.name(), h.count());
+			}
+			return values;
+		}
+
+		/**
+		 * Accesses the mean time each operation has taken.
+		 * @return the means in nanoseconds, by operation name.
+		 */
+		public Map<String, Double> getMeanNanos() {
+			Map<String, Double> values = new LinkedHashMap<String, Double>();
+			for (LatencyHistogram h : HISTOGRAMS) {
+				values.put(h.name(), h.mean());
+			}
+			return values;
+		}
+
+		/**
+		 * Accesses the median time each operation has taken.
+		 * @return the medians in nanoseconds, by operation name.
+		 */
+		public Map<String, Long> getP50Nanos() {
+			return quantiles(0.5);
+		}
+
+		/**
+		 * Accesses the 99th percentile of the time each operation has taken.
+		 * @return the 99th percentiles in nanoseconds, by operation name.
+		 */
+		public Map<String, Long> getP99Nanos() {
+			return quantiles(0.99);
+		}
+
+		/**
+		 * Accesses the longest time each operation has taken.
+		 * @return the maximums in nanoseconds, by operation name.
+		 */
+		public Map<String, Long> getMaxNanos() {
+			Map<String, Long> values = new LinkedHashMap<String, Long>();
+			for (LatencyHistogram h : HISTOGRAMS) {
+				values.put(h.name(), h.max());
+			}
+			return values;
+		}
+
+		/**
+		 * Generates the metrics in the Prometheus text format.
+		 * @return the metrics text.
+		 */
+		public String getPrometheusText() {
+			return prometheusText();
+		}
+
+		/**
+		 * Forgets every time recorded.
+		 */
+		public void reset() {
+			GameMetrics.reset();
+		}
+
+		/**
+		 * Finds a quantile of every operation's times.
+		 * @param q the quantile.
+		 * @return the quantiles in nanoseconds, by operation name.
+		 */
+		private Map<String, Long> quantiles(double q) {
+			Map<String, Long> values = new LinkedHashMap<String, Long>();
+			for (LatencyHistogram h : HISTOGRAMS) {
+				values.put(h.name(), h.valueAt(q));
+			}
+			return values;
+		}
+	}
+}
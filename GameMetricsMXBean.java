@@ -0,0 +1,61 @@
+import java.util.Map;
+
+/**
+ * The management interface through which JMX clients, such as
+ * JConsole, read and control <code>GameMetrics</code>.
+ */
+public interface GameMetricsMXBean {
+
+	/**
+	 * Determines if the game operations are being timed.
+	 * @return true if timing is on; false otherwise.
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Turns timing of the game operations on or off.
+	 * @param on true to time the operations.
+	 */
+	void setEnabled(boolean on);
+
+	/**
+	 * Accesses the number of times each operation has been timed.
+	 * @return the counts, by operation name.
+	 */
+	Map<String, Long> getCounts();
+
+	/**
+	 * Accesses the mean time each operation has taken.
+	 * @return the means in nanoseconds, by operation name.
+	 */
+	Map<String, Double> getMeanNanos();
+
+	/**
+	 * Accesses the median time each operation has taken.
+	 * @return the medians in nanoseconds, by operation name.
+	 */
+	Map<String, Long> getP50Nanos();
+
+	/**
+	 * Accesses the 99th percentile of the time each operation has taken.
+	 * @return the 99th percentiles in nanoseconds, by operation name.
+	 */
+	Map<String, Long> getP99Nanos();
+
+	/**
+	 * Accesses the longest time each operation has taken.
+	 * @return the maximums in nanoseconds, by operation name.
+	 */
+	Map<String, Long> getMaxNanos();
+
+	/**
+	 * Generates the metrics in the Prometheus text format.
+	 * @return the metrics text.
+	 */
+	String getPrometheusText();
+
+	/**
+	 * Forgets every time recorded.
+	 */
+	void reset();
+}
@@ -0,0 +1,284 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The GameStatistics class gathers the outcomes of games played by any
+ * number of threads or game windows at once: wins, losses, pushes, the
+ * moves made per game, and the cards left when a game is lost.
+ * <p>
+ * Each count is a <code>LongAdder</code>, which spreads its updates over
+ * cells of its own, adding cells and moving a thread to another when two
+ * threads collide, so threads recording at the same time rarely touch the
+ * same memory and no thread ever waits for another.  A snapshot adds up
+ * the cells of one count after another, so it is not taken at a single
+ * instant: a game recorded while a snapshot is being taken can be torn
+ * across the counts, e.g. counted as won without its moves, or its moves
+ * counted without its outcome.  A snapshot taken once no thread is
+ * recording, e.g. after a simulation's workers have been joined, is exact.
+ * <p>
+ * The cards left at a loss are only counted for solitaire games; a game
+ * such as blackjack records its losses without them.
+ */
+public class GameStatistics {
+
+	/**
+	 * The statistics shared by every window of each game, by game name.
+	 */
+	private static final ConcurrentHashMap<String, GameStatistics> SHARED =
+		new ConcurrentHashMap<String, GameStatistics>();
+
+	/**
+	 * The number of games won.
+	 */
+	private LongAdder wins = new LongAdder();
+
+	/**
+	 * The number of games lost.
+	 */
+	private LongAdder losses = new LongAdder();
+
+	/**
+	 * The number of games pushed (tied).
+	 */
+	private LongAdder pushes = new LongAdder();
+
+	/**
+	 * The total number of moves made.
+	 */
+	private LongAdder moves = new LongAdder();
+
+	/**
+	 * The total number of cards left in lost games.
+	 */
+	private LongAdder cardsLeft = new LongAdder();
+
+	/**
+	 * Accesses the statistics shared by every window of a game,
+	 * creating them the first time they are asked for.
+	 * @param game the name of the game.
+	 * @return the shared statistics of that game.
+	 */
+	public static GameStatistics shared(String game) {
+		GameStatistics stats = SHARED.get(game);
+		if (stats == null) {
+			GameStatistics created = new GameStatistics();
+			stats = SHARED.putIfAbsent(game, created);
+			if (stats == null) {
+				stats = created;
+			}
+		}
+		return stats;
+	}
+
+	/**
+	 * Records a game that was won.
+	 * @param moves the number of moves made in the game.
+	 */
+	public void recordWin(int moves) {
+		record(wins, moves, 0);
+	}
+
+	/**
+	 * Records a game that was lost.
+	 * @param moves the number of moves made in the game.
+	 * @param cardsLeft the number of cards not yet played when it was lost.
+	 */
+	public void recordLoss(int moves, int cardsLeft) {
+		record(losses, moves, cardsLeft);
+	}
+
+	/**
+	 * Records a game that was lost, in a game without cards left to
+	 * count at a loss, such as blackjack.
+	 * @param moves the number of moves made in the game.
+	 */
+	public void recordLoss(int moves) {
+		record(losses, moves, 0);
+	}
+
+	/**
+	 * Records a game that was neither won nor lost.
+	 * @param moves the number of moves made in the game.
+	 */
+	public void recordPush(int moves) {
+		record(pushes, moves, 0);
+	}
+
+	/**
+	 * Takes a snapshot of the counts.  Games being recorded meanwhile may
+	 * be torn across the counts (see the class description).
+	 * @return the counts of every game recorded so far.
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot(wins.sum(), losses.sum(), pushes.sum(),
+			moves.sum(), cardsLeft.sum());
+	}
+
+	/**
+	 * Records one game.
+	 * @param outcome the count of the game's outcome.
+	 * @param gameMoves the number of moves made in the game.
+	 * @param gameCardsLeft the number of cards left, for a lost game.
+	 */
+	private void record(LongAdder outcome, int gameMoves, int gameCardsLeft) {
+		outcome.increment();
+		moves.add(gameMoves);
+		if (gameCardsLeft != 0) {
+			cardsLeft.add(gameCardsLeft);
+		}
+	}
+
+	/**
+	 * The counts of the games recorded up to some moment.
+	 */
+	public static class Snapshot {
+
+		/**
+		 * The number of games won.
+		 */
+		private long wins;
+
+		/**
+		 * The number of games lost.
+		 */
+		private long losses;
+
+		/**
+		 * The number of games pushed.
+		 */
+		private long pushes;
+
+		/**
+		 * The total number of moves made.
+		 */
+		private long moves;
+
+		/**
+		 * The total number of cards left in lost games.
+		 */
+		private long cardsLeft;
+
+		/**
+		 * Creates a new <code>Snapshot</code> instance.
+		 * @param gamesWon the number of games won.
+		 * @param gamesLost the number of games lost.
+		 * @param gamesPushed the number of games pushed.
+		 * @param movesMade the total number of moves made.
+		 * @param cardsLeftAtLoss the total number of cards left in lost games.
+		 */
+		public Snapshot(long gamesWon, long gamesLost, long gamesPushed,
+				long movesMade, long cardsLeftAtLoss) {
+			wins = gamesWon;
+			losses = gamesLost;
+			pushes = gamesPushed;
+			moves = movesMade;
+			cardsLeft = cardsLeftAtLoss;
+		}
+
+		/**
+		 * Accesses the number of games played.
+		 * @return the number of games won, lost or pushed.
+		 */
+		public long games() {
+			return wins + losses + pushes;
+		}
+
+		/**
+		 * Accesses the number of games won.
+		 * @return the number of games won.
+		 */
+		public long wins() {
+			return wins;
+		}
+
+		/**
+		 * Accesses the number of games lost.
+		 * @return the number of games lost.
+		 */
+		public long losses() {
+			return losses;
+		}
+
+		/**
+		 * Accesses the number of games pushed.
+		 * @return the number of games pushed.
+		 */
+		public long pushes() {
+			return pushes;
+		}
+
+		/**
+		 * Accesses the total number of moves made.
+		 * @return the total number of moves.
+		 */
+		public long moves() {
+			return moves;
+		}
+
+		/**
+		 * Accesses the total number of cards left in lost games.
+		 * @return the total number of cards left.
+		 */
+		public long cardsLeftAtLoss() {
+			return cardsLeft;
+		}
+
+		/**
+		 * Computes the average number of moves per game.
+		 * @return the average moves per game, or 0 if none were played.
+		 */
+		public double movesPerGame() {
+			long games = games();
+			return games == 0 ? 0.0 : (double) moves / games;
+		}
+
+		/**
+		 * Computes the average number of cards left in a lost game.
+		 * @return the average cards left, or 0 if no game was lost.
+		 */
+		public double cardsLeftPerLoss() {
+			return losses == 0 ? 0.0 : (double) cardsLeft / losses;
+		}
+
+		/**
+		 * Computes the percentage of games won, rounded to one decimal place.
+		 * @return the percentage of games won, or 0 if no games were played.
+		 */
+		public double percentWon() {
+			long games = games();
+			if (games == 0) {
+				return 0.0;
+			}
+			return (int) (1000.0 * wins / games + 0.5) / 10.0;
+		}
+
+		/**
+		 * Computes the counts of the games recorded between an earlier
+		 * snapshot and this one.
+		 * @param earlier a snapshot of the same statistics taken before this one.
+		 * @return the difference of the counts.
+		 */
+		public Snapshot minus(Snapshot earlier) {
+			return new Snapshot(wins - earlier.wins, losses - earlier.losses,
+				pushes - earlier.pushes, moves - earlier.moves,
+				cardsLeft - earlier.cardsLeft);
+		}
+
+		/**
+		 * Generates and returns a one-line summary of the counts.
+		 * The cards left per loss are left out if no cards were counted,
+		 * as in blackjack.
+		 * @return the summary.
+		 */
+		@Override
+		public String toString() {
+			String summary = String.format("%d games: %d won, %d lost, %d pushed;"
+				+ " %.2f moves per game", games(), wins, losses, pushes, movesPerGame());
+			if (cardsLeft == 0) {
+				return summary;
+			}
+			return summary + String.format(", %.2f cards left per loss",
+				cardsLeftPerLoss());
+		}
+	}
+}
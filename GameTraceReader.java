@@ -0,0 +1,347 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The GameTraceReader class replays the games recorded by a
+ * <code>GameTraceWriter</code> on a board of the same variant, so that
+ * any position of any recorded game can be rebuilt and examined.
+ * The trace is read sequentially through a buffered file channel.
+ */
+public class GameTraceReader implements Closeable {
+
+	/**
+	 * The size of the read buffer in bytes.
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * The size of the file header in bytes.
+	 */
+	private static final int HEADER_SIZE = 17;
+
+	/**
+	 * The file being read.
+	 */
+	private FileChannel channel;
+
+	/**
+	 * The bytes read from the file but not yet consumed.
+	 */
+	private ByteBuffer buffer;
+
+	/**
+	 * The size of the board the games were played on.
+	 */
+	private int boardSize;
+
+	/**
+	 * The number of cards in the deck the games were played with.
+	 */
+	private int deckSize;
+
+	/**
+	 * The number of the first game in the trace.
+	 */
+	private long firstGame;
+
+	/**
+	 * The number of the game being replayed; one less than
+	 * <code>firstGame</code> before the first game.
+	 */
+	private long game;
+
+	/**
+	 * The deal order of the game being read.
+	 */
+	private int[] dealOrder;
+
+	/**
+	 * The board positions of the move being read.
+	 */
+	private int[] selection;
+
+	/**
+	 * Opens a trace file and reads its header.
+	 * @param file the file to read.
+	 * @throws IOException if the file cannot be read or is not a trace.
+	 */
+	public GameTraceReader(Path file) throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		buffer.flip();
+		readHeader();
+	}
+
+	/**
+	 * Accesses the size of the board the games were played on.
+	 * @return the board size.
+	 */
+	public int boardSize() {
+		return boardSize;
+	}
+
+	/**
+	 * Accesses the number of the first game in the trace.
+	 * @return the number of the first game.
+	 */
+	public long firstGame() {
+		return firstGame;
+	}
+
+	/**
+	 * Accesses the number of the game being replayed.
+	 * @return the number of the game last started by <code>nextGame</code>.
+	 */
+	public long game() {
+		return game;
+	}
+
+	/**
+	 * Deals the next game of the trace on a board, skipping whatever
+	 * moves of the current game have not been replayed.
+	 * @param board the board to deal on; it must be of the variant
+	 *        the trace was recorded from.
+	 * @return true if a game was dealt; false at the end of the trace.
+	 * @throws IOException if the trace cannot be read or is damaged.
+	 */
+	public boolean nextGame(Board board) throws IOException {
+		checkBoard(board);
+		int tag = read();
+		while (tag != GameTraceWriter.GAME) {
+			if (tag < 0) {
+				return false;
+			}
+			skip(tag);
+			tag = read();
+		}
+		for (int i = 0; i < deckSize; i++) {
+			dealOrder[i] = readRequired();
+		}
+		board.newGame(dealOrder);
+		game++;
+		return true;
+	}
+
+	/**
+	 * Replays the next move of the current game on a board.
+	 * @param board the board the current game was dealt on.
+	 * @return true if a move was replayed; false if the game has no
+	 *         more moves.
+	 * @throws IOException if the trace cannot be read or is damaged.
+	 */
+	public boolean nextMove(Board board) throws IOException {
+		int count = peek();
+		if (count < 0 || count == GameTraceWriter.GAME) {
+			return false;
+		}
+		read();
+		for (int i = 0; i < count; i++) {
+			selection[i] = readRequired();
+		}
+		board.replaceSelectedCards(selection, count);
+		return true;
+	}
+
+	/**
+	 * Rebuilds a position of a recorded game on a board.  Reading starts
+	 * again from the beginning of the trace if the game has already gone by.
+	 * @param board the board to rebuild the position on.
+	 * @param gameNumber the number of the game.
+	 * @param moves the number of moves of the game to replay; a number
+	 *        larger than the game's moves replays the whole game.
+	 * @return the number of moves replayed.
+	 * @throws IOException if the trace cannot be read or is damaged.
+	 * @throws IllegalArgumentException if the game is not in the trace.
+	 */
+	public int replay(Board board, long gameNumber, int moves)
+			throws IOException {
+		if (gameNumber < firstGame) {
+			throw new IllegalArgumentException("Game " + gameNumber
+				+ " is not in the trace");
+		}
+		if (gameNumber <= game) {
+			rewind();
+		}
+		while (game < gameNumber) {
+			if (!nextGame(board)) {
+				throw new IllegalArgumentException("Game " + gameNumber
+					+ " is not in the trace");
+			}
+		}
+		int played = 0;
+		while (played < moves && nextMove(board)) {
+			played++;
+		}
+		return played;
+	}
+
+	/**
+	 * Closes the file.
+	 * @throws IOException if the file cannot be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * Prints a position of a recorded game.  The arguments are, in order:
+	 * the variant ("elevens", "thirteens" or "pairs"), the trace file,
+	 * the number of the game, and optionally the number of moves to
+	 * replay (default: the whole game).
+	 * @param args the command line arguments.
+	 * @throws IOException if the trace cannot be read.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.out.println(
+				"Usage: GameTraceReader elevens|thirteens|pairs file game [moves]");
+			return;
+		}
+		Board board;
+		if (args[0].equals("elevens")) {
+			board = new ElevensBoard();
+		} else if (args[0].equals("thirteens")) {
+			board = new ThirteensBoard();
+		} else if (args[0].equals("pairs")) {
+			board = new PairsBoard();
+		} else {
+			throw new IllegalArgumentException("Unknown variant: " + args[0]);
+		}
+		long gameNumber = Long.parseLong(args[2]);
+		int moves = Integer.MAX_VALUE;
+		if (args.length > 3) {
+			moves = Integer.parseInt(args[3]);
+		}
+		GameTraceReader reader = new GameTraceReader(Paths.get(args[1]));
+		try {
+			int played = reader.replay(board, gameNumber, moves);
+			System.out.println("Game " + gameNumber + " after " + played
+				+ " moves:");
+			board.appendTo(System.out);
+			System.out.println(board.deckSize() + " undealt cards remain.");
+			if (board.gameIsWon()) {
+				System.out.println("The game is won.");
+			} else if (!board.anotherPlayIsPossible()) {
+				System.out.println("No play is possible.");
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Reads and checks the file header.
+	 * @throws IOException if the file is not a trace.
+	 */
+	private void readHeader() throws IOException {
+		fill(HEADER_SIZE);
+		if (buffer.remaining() < HEADER_SIZE
+				|| buffer.getInt() != GameTraceWriter.MAGIC) {
+			throw new IOException("Not a game trace");
+		}
+		int version = buffer.get() & 0xFF;
+		if (version != GameTraceWriter.VERSION) {
+			throw new IOException("Unsupported game trace version " + version);
+		}
+		boardSize = buffer.getShort() & 0xFFFF;
+		deckSize = buffer.getShort() & 0xFFFF;
+		firstGame = buffer.getLong();
+		game = firstGame - 1;
+		dealOrder = new int[deckSize];
+		selection = new int[GameTraceWriter.GAME];
+	}
+
+	/**
+	 * Goes back to the first game of the trace.
+	 * @throws IOException if the file cannot be read.
+	 */
+	private void rewind() throws IOException {
+		channel.position(0);
+		buffer.clear();
+		buffer.flip();
+		readHeader();
+	}
+
+	/**
+	 * Checks that a board matches the games of the trace.
+	 * @param board the board to check.
+	 */
+	private void checkBoard(Board board) {
+		if (board.size() != boardSize || board.deckTotalSize() != deckSize) {
+			throw new IllegalArgumentException("The trace was recorded on a board of "
+				+ boardSize + " with a deck of " + deckSize);
+		}
+	}
+
+	/**
+	 * Makes sure at least n bytes are buffered, unless the file ends first.
+	 * @param n the number of bytes wanted.
+	 * @throws IOException if the file cannot be read.
+	 */
+	private void fill(int n) throws IOException {
+		if (buffer.remaining() >= n) {
+			return;
+		}
+		buffer.compact();
+		while (buffer.position() < n && channel.read(buffer) >= 0) {
+			// keep reading until enough bytes arrive or the file ends
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * Looks at the next byte without consuming it.
+	 * @return the next byte, or -1 at the end of the file.
+	 * @throws IOException if the file cannot be read.
+	 */
+	private int peek() throws IOException {
+		fill(1);
+		if (!buffer.hasRemaining()) {
+			return -1;
+		}
+		return buffer.get(buffer.position()) & 0xFF;
+	}
+
+	/**
+	 * Reads the next byte.
+	 * @return the next byte, or -1 at the end of the file.
+	 * @throws IOException if the file cannot be read.
+	 */
+	private int read() throws IOException {
+		fill(1);
+		if (!buffer.hasRemaining()) {
+			return -1;
+		}
+		return buffer.get() & 0xFF;
+	}
+
+	/**
+	 * Reads the next byte, which must be there.
+	 * @return the next byte.
+	 * @throws IOException if the file cannot be read or ends early.
+	 */
+	private int readRequired() throws IOException {
+		int b = read();
+		if (b < 0) {
+			throw new IOException("Game trace ends in the middle of a record");
+		}
+		return b;
+	}
+
+	/**
+	 * Skips the board positions of a move.
+	 * @param count the number of positions to skip.
+	 * @throws IOException if the file cannot be read or ends early.
+	 */
+	private void skip(int count) throws IOException {
+		for (int i = 0; i < count; i++) {
+			readRequired();
+		}
+	}
+}
@@ -0,0 +1,214 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The GameTraceWriter class records every game played on a solitaire
+ * <code>Board</code> in a compact binary file, so that any game can be
+ * rebuilt afterwards with a <code>GameTraceReader</code>.
+ * <p>
+ * The file starts with a header: the magic number <code>GTRC</code>,
+ * a version byte, the board size and the deck size (two bytes each), and
+ * the number of the first game recorded (eight bytes).  Each game follows
+ * as a <code>GAME</code> byte and the deal order of the deck, one byte per
+ * card holding its ordinal (see <code>Deck.ordinal</code>).  Each move of
+ * the game follows as the number of cards replaced and their board
+ * positions, one byte each, so an Elevens move takes at most four bytes.
+ * <p>
+ * The records are gathered in a direct buffer and written to a file
+ * channel when it fills.  A writer is not thread-safe; give each thread
+ * its own.  Write errors are thrown as <code>UncheckedIOException</code>s,
+ * since the board methods that record games cannot throw checked exceptions.
+ */
+public class GameTraceWriter implements Closeable {
+
+	/**
+	 * The first four bytes of a trace file: "GTRC".
+	 */
+	public static final int MAGIC = 0x47545243;
+
+	/**
+	 * The version of the file format.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * The byte that starts a game record.  Any other record is a move.
+	 */
+	public static final int GAME = 0xFF;
+
+	/**
+	 * The largest board or deck a trace can describe, since a board
+	 * position or card ordinal has to fit in a byte.
+	 */
+	public static final int MAX_SIZE = 255;
+
+	/**
+	 * The size of the write buffer in bytes.
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * The file being written.
+	 */
+	private FileChannel channel;
+
+	/**
+	 * The records not yet written to the file.
+	 */
+	private ByteBuffer buffer;
+
+	/**
+	 * The number of cards in the deck of the games recorded.
+	 */
+	private int deckSize;
+
+	/**
+	 * The number of games recorded.
+	 */
+	private long games;
+
+	/**
+	 * The number of moves recorded.
+	 */
+	private long moves;
+
+	/**
+	 * The number of bytes recorded, including the header.
+	 */
+	private long bytes;
+
+	/**
+	 * Creates a new trace file, replacing any existing one, for the
+	 * games of a board.
+	 * @param file the file to write.
+	 * @param board the board whose games will be recorded.
+	 * @param firstGame the number of the first game to be recorded,
+	 *        e.g. its number within a simulation run.
+	 * @throws IOException if the file cannot be created.
+	 */
+	public GameTraceWriter(Path file, Board board, long firstGame)
+			throws IOException {
+		deckSize = board.deckTotalSize();
+		if (board.size() > MAX_SIZE || deckSize > MAX_SIZE) {
+			throw new IllegalArgumentException("Board of " + board.size()
+				+ " with a deck of " + deckSize + " is too large to trace");
+		}
+		channel = FileChannel.open(file, StandardOpenOption.CREATE,
+			StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		buffer.putInt(MAGIC);
+		buffer.put((byte) VERSION);
+		buffer.putShort((short) board.size());
+		buffer.putShort((short) deckSize);
+		buffer.putLong(firstGame);
+		bytes = buffer.position();
+	}
+
+	/**
+	 * Records the start of a game.  Called by the board once its deck
+	 * has been shuffled, before any card is dealt.
+	 * @param deck the deck, with every card undealt.
+	 */
+	public void startGame(Deck deck) {
+		int n = deck.size();
+		if (n != deckSize) {
+			throw new IllegalStateException("Expected " + deckSize
+				+ " undealt cards but the deck has " + n);
+		}
+		ensureRoom(1 + n);
+		buffer.put((byte) GAME);
+		for (int i = 0; i < n; i++) {
+			buffer.put((byte) deck.ordinal(deck.peekCode(i)));
+		}
+		games++;
+		bytes += 1 + n;
+	}
+
+	/**
+	 * Records a move: the replacement of the selected cards.
+	 * Called by the board before it replaces them.
+	 * @param selectedCards holds the board positions of the cards in the
+	 *        order they are replaced, in its first count elements.
+	 * @param count the number of cards replaced.
+	 */
+	public void move(int[] selectedCards, int count) {
+		if (count >= GAME) {
+			throw new IllegalArgumentException("Too many cards in a move: " + count);
+		}
+		ensureRoom(1 + count);
+		buffer.put((byte) count);
+		for (int i = 0; i < count; i++) {
+			buffer.put((byte) selectedCards[i]);
+		}
+		moves++;
+		bytes += 1 + count;
+	}
+
+	/**
+	 * Accesses the number of games recorded.
+	 * @return the number of games recorded.
+	 */
+	public long games() {
+		return games;
+	}
+
+	/**
+	 * Accesses the number of moves recorded.
+	 * @return the number of moves recorded.
+	 */
+	public long moves() {
+		return moves;
+	}
+
+	/**
+	 * Accesses the size of the trace, including anything not yet
+	 * written to the file.
+	 * @return the number of bytes recorded.
+	 */
+	public long bytes() {
+		return bytes;
+	}
+
+	/**
+	 * Writes any buffered records to the file.
+	 */
+	public void flush() {
+		buffer.flip();
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Writes any buffered records and closes the file.
+	 * @throws IOException if the file cannot be written or closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Makes sure the buffer has room for a record, writing it out if not.
+	 * @param n the size of the record in bytes.
+	 */
+	private void ensureRoom(int n) {
+		if (buffer.remaining() < n) {
+			flush();
+		}
+	}
+}
@@ -0,0 +1,237 @@
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * The LatencyHistogram class counts how long an operation takes, in
+ * nanoseconds, in the log-linear buckets an HDR histogram uses: values
+ * below 32 each have a bucket, and every power-of-two range above that
+ * is split into 16 equal buckets, so any value is reported within about
+ * 6% of its true size.
+ * <p>
+ * Every bucket, the sum and the maximum are <code>LongAdder</code>s (or a
+ * <code>LongAccumulator</code>), which spread updates from threads that
+ * collide over cells of their own, so the threads of a simulation timing
+ * the same operation do not fight over one cache line, and recording never
+ * waits or allocates once the adders have grown to fit the contention.
+ * Reading adds up the cells; the percentiles read while threads are
+ * recording are approximate in the same way.
+ */
+public class LatencyHistogram {
+
+	/**
+	 * The number of bits of a value kept exactly.
+	 */
+	private static final int SUB_BITS = 5;
+
+	/**
+	 * The number of values below which every value has its own bucket.
+	 */
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+
+	/**
+	 * The number of buckets each power-of-two range is split into.
+	 */
+	private static final int HALF_COUNT = SUB_COUNT / 2;
+
+	/**
+	 * The number of buckets, enough for any non-negative long.
+	 */
+	private static final int BUCKETS =
+		SUB_COUNT + (Long.SIZE - SUB_BITS) * HALF_COUNT;
+
+	/**
+	 * Keeps the larger of two values, for the maximum.
+	 */
+	private static final LongBinaryOperator LARGER = new LongBinaryOperator() {
+		public long applyAsLong(long a, long b) {
+			return Math.max(a, b);
+		}
+	};
+
+	/**
+	 * The name of the operation timed.
+	 */
+	private String name;
+
+	/**
+	 * A description of the operation timed.
+	 */
+	private String help;
+
+	/**
+	 * The number of values recorded in each bucket.
+	 */
+	private LongAdder[] counts;
+
+	/**
+	 * The sum of the values recorded.
+	 */
+	private LongAdder sum;
+
+	/**
+	 * The largest value recorded.
+	 */
+	private LongAccumulator max;
+
+
+	/**
+	 * Creates a new, empty <code>LatencyHistogram</code> instance.
+	 * @param operation the name of the operation timed, e.g. "deck_shuffle".
+	 * @param description a description of the operation timed.
+	 */
+	public LatencyHistogram(String operation, String description) {
+		name = operation;
+		help = description;
+		counts = new LongAdder[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = new LongAdder();
+		}
+		sum = new LongAdder();
+		max = new LongAccumulator(LARGER, 0);
+	}
+
+	/**
+	 * Accesses the name of the operation timed.
+	 * @return the name of the operation.
+	 */
+	public String name() {
+		return name;
+	}
+
+	/**
+	 * Accesses the description of the operation timed.
+	 * @return the description of the operation.
+	 */
+	public String help() {
+		return help;
+	}
+
+	/**
+	 * Records one value.
+	 * @param nanos how long the operation took; negative values count as 0.
+	 */
+	public void record(long nanos) {
+		long v = Math.max(0, nanos);
+		counts[bucketOf(v)].increment();
+		sum.add(v);
+		max.accumulate(v);
+	}
+
+	/**
+	 * Records how long an operation took, if it was timed.
+	 * @param start the time the operation started, as returned by
+	 *        <code>GameMetrics.start</code>.
+	 */
+	public void stop(long start) {
+		if (start != GameMetrics.OFF) {
+			record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Accesses the number of values recorded.
+	 * @return the number of values recorded.
+	 */
+	public long count() {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += counts[i].sum();
+		}
+		return total;
+	}
+
+	/**
+	 * Accesses the sum of the values recorded.
+	 * @return the sum of the values, in nanoseconds.
+	 */
+	public long sum() {
+		return sum.sum();
+	}
+
+	/**
+	 * Accesses the largest value recorded.
+	 * @return the largest value, in nanoseconds, or 0 if there is none.
+	 */
+	public long max() {
+		return max.get();
+	}
+
+	/**
+	 * Computes the mean of the values recorded.
+	 * @return the mean, in nanoseconds, or 0 if there are none.
+	 */
+	public double mean() {
+		long n = count();
+		return n == 0 ? 0.0 : (double) sum.sum() / n;
+	}
+
+	/**
+	 * Finds the value a given fraction of the values are at or below.
+	 * @param quantile the fraction, from 0 to 1.
+	 * @return the largest value in the bucket holding that value,
+	 *         but no more than the largest value recorded;
+	 *         0 if there are no values.
+	 */
+	public long valueAt(double quantile) {
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts[i].sum();
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(quantile * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return Math.min(highestValueIn(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	/**
+	 * Forgets every value recorded.  Values recorded at the same time
+	 * may be partly forgotten.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i].reset();
+		}
+		sum.reset();
+		max.reset();
+	}
+
+	/**
+	 * Finds the bucket a value is counted in.
+	 * @param v a non-negative value.
+	 * @return the index of its bucket.
+	 */
+	static int bucketOf(long v) {
+		if (v < SUB_COUNT) {
+			return (int) v;
+		}
+		int shift = Long.SIZE - Long.numberOfLeadingZeros(v) - SUB_BITS;
+		int mantissa = (int) (v >>> shift);
+		return SUB_COUNT + (shift - 1) * HALF_COUNT + mantissa - HALF_COUNT;
+	}
+
+	/**
+	 * Finds the largest value counted in a bucket.
+	 * @param bucket the index of the bucket.
+	 * @return the largest value counted in it.
+	 */
+	static long highestValueIn(int bucket) {
+		if (bucket < SUB_COUNT) {
+			return bucket;
+		}
+		int shift = (bucket - SUB_COUNT) / HALF_COUNT + 1;
+		long mantissa = (bucket - SUB_COUNT) % HALF_COUNT + HALF_COUNT;
+		long next = (mantissa + 1) << shift;
+		return next <= 0 ? Long.MAX_VALUE : next - 1;
+	}
+}
@@ -0,0 +1,148 @@
+/**
+ * A set of <code>long</code> values that stores them unboxed in an
+ * open-addressing hash table.  It is meant for search code that records
+ * millions of packed states: adding never allocates once the table has
+ * grown large enough, and <code>clear</code> takes constant time.
+ */
+public class LongHashSet {
+
+	/**
+	 * The default initial capacity (a power of two).
+	 */
+	private static final int DEFAULT_CAPACITY = 1 << 12;
+
+	/**
+	 * The values in the table.
+	 */
+	private long[] keys;
+
+	/**
+	 * The generation in which each slot was last filled.  A slot is
+	 * occupied only if its stamp equals the current generation.
+	 */
+	private int[] stamps;
+
+	/**
+	 * The current generation; bumped by <code>clear</code>.
+	 */
+	private int generation;
+
+	/**
+	 * The number of values in the set.
+	 */
+	private int size;
+
+
+	/**
+	 * Creates a new, empty <code>LongHashSet</code> instance.
+	 */
+	public LongHashSet() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new, empty <code>LongHashSet</code> instance.
+	 * @param expected the number of values the set should hold
+	 *                 before it has to grow.
+	 */
+	public LongHashSet(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(expected, 2) * 2 - 1) << 1;
+		keys = new long[capacity];
+		stamps = new int[capacity];
+		generation = 1;
+		size = 0;
+	}
+
+	/**
+	 * Accesses the number of values in the set.
+	 * @return the number of values in the set.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Determines if the set holds a value.
+	 * @param key the value to look for.
+	 * @return true if the set holds the value; false otherwise.
+	 */
+	public boolean contains(long key) {
+		int mask = keys.length - 1;
+		for (int i = hash(key) & mask; stamps[i] == generation; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds a value to the set.
+	 * @param key the value to add.
+	 * @return true if the value was added; false if it was already present.
+	 */
+	public boolean add(long key) {
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while (stamps[i] == generation) {
+			if (keys[i] == key) {
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		stamps[i] = generation;
+		size++;
+		if (size * 2 > keys.length) {
+			grow();
+		}
+		return true;
+	}
+
+	/**
+	 * Removes every value from the set, keeping the table for reuse.
+	 */
+	public void clear() {
+		generation++;
+		if (generation == 0) {
+			// The stamps have wrapped around; start them over.
+			java.util.Arrays.fill(stamps, 0);
+			generation = 1;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Doubles the table and re-inserts every value.
+	 */
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldStamps = stamps;
+		int oldGeneration = generation;
+		keys = new long[oldKeys.length * 2];
+		stamps = new int[oldKeys.length * 2];
+		generation = 1;
+		int mask = keys.length - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldStamps[j] == oldGeneration) {
+				int i = hash(oldKeys[j]) & mask;
+				while (stamps[i] == generation) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				stamps[i] = generation;
+			}
+		}
+	}
+
+	/**
+	 * Spreads the bits of a value so that packed states with
+	 * similar low bits do not collide.
+	 * @param key the value.
+	 * @return the hash of the value.
+	 */
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
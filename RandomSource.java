@@ -0,0 +1,64 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A <code>RandomSource</code> supplies the random numbers a
+ * <code>Deck</code> shuffles with.  Each deck is given its own source,
+ * so decks on different threads never contend for one, and a seeded
+ * source makes every shuffle reproducible.
+ */
+public interface RandomSource {
+
+	/**
+	 * Returns a uniformly distributed random number.
+	 * @param bound the upper bound (exclusive); must be positive.
+	 * @return a random number between 0 (inclusive) and bound (exclusive).
+	 */
+	int nextInt(int bound);
+
+	/**
+	 * Restarts this source so that it produces the sequence
+	 * determined by the given seed.
+	 * @param seed the new seed.
+	 * @throws UnsupportedOperationException if this source cannot be seeded.
+	 */
+	void setSeed(long seed);
+
+	/**
+	 * Creates a source backed by a <code>SplittableRandom</code>.
+	 * @param seed the initial seed.
+	 * @return a new seeded source.
+	 */
+	static RandomSource splittable(long seed) {
+		return new RandomSource() {
+			private SplittableRandom random = new SplittableRandom(seed);
+
+			public int nextInt(int bound) {
+				return random.nextInt(bound);
+			}
+
+			public void setSeed(long newSeed) {
+				random = new SplittableRandom(newSeed);
+			}
+		};
+	}
+
+	/**
+	 * Creates a source backed by the calling thread's
+	 * <code>ThreadLocalRandom</code>.  It cannot be seeded, so it only
+	 * suits runs that never need to be replayed.
+	 * @return a new unseeded source.
+	 */
+	static RandomSource threadLocal() {
+		return new RandomSource() {
+			public int nextInt(int bound) {
+				return ThreadLocalRandom.current().nextInt(bound);
+			}
+
+			public void setSeed(long newSeed) {
+				throw new UnsupportedOperationException(
+					"ThreadLocalRandom cannot be seeded");
+			}
+		};
+	}
+}
@@ -0,0 +1,401 @@
+import java.util.Arrays;
+
+/**
+ * The RuleBoard class plays any solitaire game whose removals can be
+ * described by <code>BoardRules</code>, so a new variant needs no code of
+ * its own, only its board size, its deck and its rules.
+ * <p>
+ * The rules are compiled when the board is created: the pair sum into a
+ * table of the value that completes each point value, and the rank groups
+ * into the number of cards of each rank they need.  Whether a play is
+ * possible is then answered from the board's card counts, and a play is
+ * found in a single pass over the board rather than by trying every pair.
+ */
+public class RuleBoard extends Board {
+
+	/**
+	 * Flag used to control debugging print statements.
+	 */
+	private static final boolean I_AM_DEBUGGING = false;
+
+	/**
+	 * The rules of the game played on this board.
+	 */
+	private BoardRules rules;
+
+	/**
+	 * The value that completes a pair with each point value, or -1.
+	 */
+	private int[] complement;
+
+	/**
+	 * The ranks of each rank group, as listed in the rules.
+	 */
+	private int[][] groups;
+
+	/**
+	 * The distinct ranks of each rank group.
+	 */
+	private int[][] groupRanks;
+
+	/**
+	 * The number of cards of each of the distinct ranks
+	 * (in <code>groupRanks</code>) each rank group needs.
+	 */
+	private int[][] groupNeeds;
+
+	/**
+	 * The distinct point values of the deck, in the order of the
+	 * point values the deck was created from.
+	 */
+	private int[] deckValues;
+
+	/**
+	 * Scratch table, indexed by point value, of the last board position
+	 * holding a card of that value; -1 for values not on the board.
+	 */
+	private int[] lastSlot;
+
+	/**
+	 * Scratch space marking the board positions already in a group.
+	 */
+	private boolean[] used;
+
+	/**
+	 * Scratch space for the indexes of a group found for removal.
+	 */
+	private int[] foundIndexes;
+
+
+	/**
+	 * Creates a new <code>RuleBoard</code> instance.
+	 * @param size the number of cards in the board
+	 * @param ranks the names of the card ranks needed to create the deck
+	 * @param suits the names of the card suits needed to create the deck
+	 * @param pointValues the integer values of the cards needed to create
+	 *                    the deck
+	 * @param gameRules the removals allowed in the game
+	 */
+	public RuleBoard(int size, String[] ranks, String[] suits,
+			int[] pointValues, BoardRules gameRules) {
+		super(size, ranks, suits, pointValues);
+		compile(pointValues, gameRules);
+	}
+
+	/**
+	 * Creates a new <code>RuleBoard</code> instance whose deals are
+	 * reproducible from the given seed.
+	 * @param size the number of cards in the board
+	 * @param ranks the names of the card ranks needed to create the deck
+	 * @param suits the names of the card suits needed to create the deck
+	 * @param pointValues the integer values of the cards needed to create
+	 *                    the deck
+	 * @param gameRules the removals allowed in the game
+	 * @param seed the seed for the deck's random number generator
+	 */
+	public RuleBoard(int size, String[] ranks, String[] suits,
+			int[] pointValues, BoardRules gameRules, long seed) {
+		super(size, ranks, suits, pointValues, seed);
+		compile(pointValues, gameRules);
+	}
+
+	/**
+	 * Accesses the rules of the game played on this board.
+	 * @return the rules.
+	 */
+	public BoardRules rules() {
+		return rules;
+	}
+
+	/**
+	 * Determines if the selected cards form a valid group for removal
+	 * under this board's rules.  A selection that names the same
+	 * position twice is never legal.
+	 * @param selectedCards holds the indices of the selected cards
+	 *        in its first count elements.
+	 * @param count the number of selected cards.
+	 * @return true if the selected cards form a valid group for removal;
+	 *         false otherwise.
+	 */
+	@Override
+	public boolean isLegal(int[] selectedCards, int count) {
+		if (count == 0 || count > size()) {
+			return false;
+		}
+		for (int i = 0; i < count; i++) {
+			if (codeAt(selectedCards[i]) == CardCode.NONE) {
+				return false;
+			}
+			for (int j = 0; j < i; j++) {
+				if (selectedCards[j] == selectedCards[i]) {
+					return false;
+				}
+			}
+		}
+		if (count == 2 && rules.pairSum() != BoardRules.NO_PAIR_SUM
+				&& pointValueAt(selectedCards[0]) + pointValueAt(selectedCards[1])
+					== rules.pairSum()) {
+			return true;
+		}
+		for (int g = 0; g < groups.length; g++) {
+			if (groups[g].length == count && isRankGroup(selectedCards, g)) {
+				return true;
+			}
+		}
+		if (rules.allowsSameValueGroups() && count > 1) {
+			int value = pointValueAt(selectedCards[0]);
+			for (int i = 1; i < count; i++) {
+				if (pointValueAt(selectedCards[i]) != value) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Determine if there are any legal plays left on the board.
+	 * This is answered from the board's card counts.
+	 * @return true if there is a legal play left on the board;
+	 *         false otherwise.
+	 */
+	@Override
+	public boolean anotherPlayIsPossible() {
+		long start = GameMetrics.start();
+		boolean possible = hasPair() || findRankGroup() >= 0 || findSameValue() >= 0;
+		GameMetrics.BOARD_PLAY_CHECK.stop(start);
+		return possible;
+	}
+
+	/**
+	 * Looks for a legal play on the board.  If one is found, it plays it.
+	 * A pair is played first, then a rank group, then a same-value group
+	 * (see <code>BoardRules</code>).
+	 * @return true if a legal play was found (and made); false othewise.
+	 */
+	@Override
+	public boolean playIfPossible() {
+		if (hasPair()) {
+			playPair();
+			return true;
+		}
+		int g = findRankGroup();
+		if (g >= 0) {
+			playRankGroup(g);
+			return true;
+		}
+		int value = findSameValue();
+		if (value >= 0) {
+			playSameValue(value);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Compiles the rules into the tables the plays are found with.
+	 * @param pointValues the point values the deck was created from.
+	 * @param gameRules the rules to compile.
+	 */
+	private void compile(int[] pointValues, BoardRules gameRules) {
+		rules = gameRules;
+		complement = rules.complementTable();
+		groups = new int[rules.rankGroupCount()][];
+		groupRanks = new int[groups.length][];
+		groupNeeds = new int[groups.length][];
+		for (int g = 0; g < groups.length; g++) {
+			groups[g] = rules.rankGroup(g);
+			int[] ranks = new int[groups[g].length];
+			int[] needs = new int[groups[g].length];
+			int distinct = 0;
+			for (int r : groups[g]) {
+				int i = 0;
+				while (i < distinct && ranks[i] != r) {
+					i++;
+				}
+				if (i == distinct) {
+					ranks[i] = r;
+					distinct++;
+				}
+				needs[i]++;
+			}
+			groupRanks[g] = Arrays.copyOf(ranks, distinct);
+			groupNeeds[g] = Arrays.copyOf(needs, distinct);
+		}
+
+		int[] values = new int[pointValues.length];
+		int distinct = 0;
+		for (int v : pointValues) {
+			int i = 0;
+			while (i < distinct && values[i] != v) {
+				i++;
+			}
+			if (i == distinct) {
+				values[i] = v;
+				distinct++;
+			}
+		}
+		deckValues = Arrays.copyOf(values, distinct);
+
+		lastSlot = new int[CardCode.MAX_FIELD + 1];
+		Arrays.fill(lastSlot, -1);
+		used = new boolean[size()];
+		foundIndexes = new int[size()];
+	}
+
+	/**
+	 * Determines if the board holds a pair that adds up to the pair sum.
+	 * @return true if such a pair is on the board; false otherwise.
+	 */
+	private boolean hasPair() {
+		return rules.pairSum() != BoardRules.NO_PAIR_SUM
+			&& hasPairSum(rules.pairSum());
+	}
+
+	/**
+	 * Looks for a rank group whose cards are all on the board.
+	 * @return the index of the first such group, or -1 if there is none.
+	 */
+	private int findRankGroup() {
+		for (int g = 0; g < groups.length; g++) {
+			int[] ranks = groupRanks[g];
+			int[] needs = groupNeeds[g];
+			int i = 0;
+			while (i < ranks.length && countOfRank(ranks[i]) >= needs[i]) {
+				i++;
+			}
+			if (i == ranks.length) {
+				return g;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Looks for a point value held by at least two cards on the board,
+	 * if same-value groups are allowed.
+	 * @return the first such value in the deck's order, or -1 if there is none.
+	 */
+	private int findSameValue() {
+		if (rules.allowsSameValueGroups()) {
+			for (int v : deckValues) {
+				if (countOfValue(v) > 1) {
+					return v;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Determines if the selected cards are exactly the ranks of a group.
+	 * @param selectedCards holds the indices of the selected cards; there
+	 *        are as many as the group has ranks.
+	 * @param g the index of the group.
+	 * @return true if they are; false otherwise.
+	 */
+	private boolean isRankGroup(int[] selectedCards, int g) {
+		int[] group = groups[g];
+		boolean matched = true;
+		for (int i = 0; i < group.length && matched; i++) {
+			matched = false;
+			for (int j = 0; j < group.length && !matched; j++) {
+				if (!used[j] && rankAt(selectedCards[j]) == group[i]) {
+					used[j] = true;
+					matched = true;
+				}
+			}
+		}
+		for (int j = 0; j < group.length; j++) {
+			used[j] = false;
+		}
+		return matched;
+	}
+
+	/**
+	 * Removes the pair whose first card is in the lowest board position,
+	 * paired with the lowest position after it that completes the sum.
+	 * One pass records the last position of each point value, so a
+	 * second pass can tell from the complement table whether a card
+	 * has a partner after it.  There must be such a pair on the board.
+	 */
+	private void playPair() {
+		int n = size();
+		for (int k = 0; k < n; k++) {
+			if (codeAt(k) != CardCode.NONE) {
+				lastSlot[pointValueAt(k)] = k;
+			}
+		}
+		int first = -1;
+		int want = -1;
+		for (int k = 0; k < n && first < 0; k++) {
+			if (codeAt(k) != CardCode.NONE) {
+				int c = complement[pointValueAt(k)];
+				if (c >= 0 && lastSlot[c] > k) {
+					first = k;
+					want = c;
+				}
+			}
+		}
+		int second = first + 1;
+		while (codeAt(second) == CardCode.NONE || pointValueAt(second) != want) {
+			second++;
+		}
+		for (int k = 0; k < n; k++) {
+			if (codeAt(k) != CardCode.NONE) {
+				lastSlot[pointValueAt(k)] = -1;
+			}
+		}
+		foundIndexes[0] = first;
+		foundIndexes[1] = second;
+		replaceSelectedCards(foundIndexes, 2);
+		if (I_AM_DEBUGGING) {
+			System.out.println(rules.pairSum() + "-Pair removed.\n");
+		}
+	}
+
+	/**
+	 * Removes a rank group, taking for each of its ranks the card in the
+	 * lowest board position not already taken.  All its cards must be
+	 * on the board.
+	 * @param g the index of the group.
+	 */
+	private void playRankGroup(int g) {
+		int[] group = groups[g];
+		for (int i = 0; i < group.length; i++) {
+			int k = 0;
+			while (used[k] || rankAt(k) != group[i]) {
+				k++;
+			}
+			used[k] = true;
+			foundIndexes[i] = k;
+		}
+		for (int i = 0; i < group.length; i++) {
+			used[foundIndexes[i]] = false;
+		}
+		replaceSelectedCards(foundIndexes, group.length);
+		if (I_AM_DEBUGGING) {
+			System.out.println("Rank group removed.\n");
+		}
+	}
+
+	/**
+	 * Removes the two cards of the given point value in the lowest
+	 * board positions.  There must be two such cards on the board.
+	 * @param value the point value.
+	 */
+	private void playSameValue(int value) {
+		int found = 0;
+		for (int k = 0; k < size() && found < 2; k++) {
+			if (codeAt(k) != CardCode.NONE && pointValueAt(k) == value) {
+				foundIndexes[found] = k;
+				found++;
+			}
+		}
+		replaceSelectedCards(foundIndexes, found);
+		if (I_AM_DEBUGGING) {
+			System.out.println("Pair removed.\n");
+		}
+	}
+}
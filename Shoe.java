@@ -0,0 +1,299 @@
+import java.io.IOException;
+
+/**
+ * The Shoe class represents a blackjack dealing shoe: one to eight decks
+ * shuffled together and dealt from a single <code>Deck</code>.
+ * <p>
+ * A cut card is placed so that the shoe is reshuffled at the start of the
+ * first round after a given fraction (the penetration) of its cards has
+ * been dealt.  In continuous-shuffle mode the cards are instead returned
+ * and reshuffled before every round.  Should the shoe run out in the
+ * middle of a round, the discards are reshuffled and dealing continues;
+ * the cards in play stay where they are.  All reshuffles rearrange the
+ * deck's cards in place, so a shoe can be dealt from indefinitely.
+ */
+public class Shoe {
+
+	/**
+	 * The fewest decks a shoe can hold.
+	 */
+	public static final int MIN_DECKS = 1;
+
+	/**
+	 * The most decks a shoe can hold.
+	 */
+	public static final int MAX_DECKS = 8;
+
+	/**
+	 * The cards in the shoe.
+	 */
+	private Deck deck;
+
+	/**
+	 * The number of decks in the shoe.
+	 */
+	private int decks;
+
+	/**
+	 * The shoe is reshuffled at the start of a round when fewer
+	 * than this many cards are left to deal.
+	 */
+	private int cutCard;
+
+	/**
+	 * True if the shoe is reshuffled before every round.
+	 */
+	private boolean continuous;
+
+	/**
+	 * The number of cards dealt since the current round started.
+	 */
+	private int inPlay;
+
+	/**
+	 * The number of times the shoe has been reshuffled.
+	 */
+	private long reshuffles;
+
+	/**
+	 * Counts the cards as they are dealt, or null when
+	 * they are not being counted.
+	 */
+	private CardCounter counter;
+
+
+	/**
+	 * Creates a new, shuffled <code>Shoe</code> instance.
+	 * @param ranks is an array containing all of the card ranks.
+	 * @param suits is an array containing all of the card suits.
+	 * @param values is an array containing all of the card point values.
+	 * @param deckCount is the number of decks, from 1 to 8.
+	 * @param penetration is the fraction of the cards, greater than 0 and
+	 *        at most 1, that are dealt before the shoe is reshuffled.
+	 * @param continuousShuffle is true to reshuffle before every round.
+	 * @param rng is the source of random numbers used to shuffle.
+	 */
+	public Shoe(String[] ranks, String[] suits, int[] values, int deckCount,
+			double penetration, boolean continuousShuffle, RandomSource rng) {
+		if (deckCount < MIN_DECKS || deckCount > MAX_DECKS) {
+			throw new IllegalArgumentException("A shoe holds " + MIN_DECKS
+				+ " to " + MAX_DECKS + " decks, not " + deckCount);
+		}
+		if (!(penetration > 0.0 && penetration <= 1.0)) {
+			throw new IllegalArgumentException(
+				"penetration must be in (0, 1]: " + penetration);
+		}
+		deck = new Deck(ranks, suits, values, deckCount, rng);
+		decks = deckCount;
+		cutCard = deck.totalSize() - (int) Math.round(deck.totalSize() * penetration);
+		continuous = continuousShuffle;
+		inPlay = 0;
+		reshuffles = 0;
+	}
+
+	/**
+	 * Starts a new round.  The cards of the previous round become discards,
+	 * and the shoe is reshuffled if the cut card has been reached or it is
+	 * in continuous-shuffle mode.
+	 */
+	public void startRound() {
+		inPlay = 0;
+		if (continuous || deck.size() < cutCard || deck.isEmpty()) {
+			shuffle();
+		}
+	}
+
+	/**
+	 * Returns every card to the shoe and shuffles them.
+	 */
+	public void shuffle() {
+		deck.reshuffle(0);
+		inPlay = 0;
+		reshuffles++;
+		if (counter != null) {
+			counter.recount(deck);
+		}
+	}
+
+	/**
+	 * Reseeds the shoe's source of random numbers and shuffles every card
+	 * back in, so that the deals that follow are determined by the seed.
+	 * @param seed the new seed.
+	 */
+	public void setSeed(long seed) {
+		deck.setSeed(seed);
+		shuffle();
+	}
+
+	/**
+	 * Deals a card from the shoe, reshuffling the discards first if the
+	 * shoe has run out.
+	 * @return the code (see <code>CardCode</code>) of the card just dealt,
+	 *         or <code>CardCode.NONE</code> if every card is in play.
+	 */
+	public int deal() {
+		if (deck.isEmpty() && inPlay < deck.totalSize()) {
+			deck.reshuffle(inPlay);
+			reshuffles++;
+			if (counter != null) {
+				counter.recount(deck);
+			}
+		}
+		int code = deck.dealCode();
+		if (code != CardCode.NONE) {
+			inPlay++;
+			if (counter != null) {
+				counter.cardDealt(code);
+			}
+		}
+		return code;
+	}
+
+	/**
+	 * Deals several cards from the shoe in one call, in the order that
+	 * repeated calls to <code>deal</code> would deal them.  If every card
+	 * is in play, the rest of the positions are set to
+	 * <code>CardCode.NONE</code>.
+	 * @param dest receives the codes of the cards dealt.
+	 * @param offset the position in dest of the first card.
+	 * @param count the number of cards to deal.
+	 * @return the number of cards actually dealt.
+	 */
+	public int deal(int[] dest, int offset, int count) {
+		int dealt;
+		if (count <= deck.size()) {
+			dealt = deck.dealCodes(dest, offset, count);
+			inPlay += dealt;
+			if (counter != null) {
+				for (int i = 0; i < dealt; i++) {
+					counter.cardDealt(dest[offset + i]);
+				}
+			}
+		} else {
+			// The discards are shuffled back in part way through.
+			if (offset < 0 || count < 0 || count > dest.length - offset) {
+				throw new IllegalArgumentException("Cannot deal " + count
+					+ " cards at " + offset + " into " + dest.length + " positions");
+			}
+			dealt = 0;
+			for (int i = 0; i < count; i++) {
+				int code = deal();
+				dest[offset + i] = code;
+				if (code != CardCode.NONE) {
+					dealt++;
+				}
+			}
+		}
+		return dealt;
+	}
+
+	/**
+	 * Starts or stops counting the cards as they are dealt.  Counting
+	 * starts from the cards already dealt since the last reshuffle.
+	 * @param system the counting system to use, or null to stop counting.
+	 */
+	public void setCountingSystem(CountingSystem system) {
+		counter = system == null ? null : new CardCounter(system, deck, decks);
+	}
+
+	/**
+	 * Accesses the counter that counts the cards as they are dealt.
+	 * @return the counter, or null if the cards are not being counted.
+	 */
+	public CardCounter counter() {
+		return counter;
+	}
+
+	/**
+	 * Converts a card code from this shoe into a <code>Card</code>.
+	 * @param code the code of a card from this shoe.
+	 * @return the corresponding card, or null if code is
+	 *         <code>CardCode.NONE</code>.
+	 */
+	public Card card(int code) {
+		return deck.card(code);
+	}
+
+	/**
+	 * Writes the short form of a card from this shoe
+	 * (see <code>Deck.appendCode</code>).
+	 * @param out where to write the card.
+	 * @param code the code of a card from this shoe, or
+	 *        <code>CardCode.NONE</code>.
+	 * @throws IOException if out cannot be written to.
+	 */
+	public void appendCode(Appendable out, int code) throws IOException {
+		deck.appendCode(out, code);
+	}
+
+	/**
+	 * Accesses the number of cards left to deal.
+	 * @return the number of undealt cards in the shoe.
+	 */
+	public int size() {
+		return deck.size();
+	}
+
+	/**
+	 * Accesses the number of cards in the shoe, dealt or not.
+	 * @return the number of cards in the shoe.
+	 */
+	public int totalSize() {
+		return deck.totalSize();
+	}
+
+	/**
+	 * Accesses the number of decks in the shoe.
+	 * @return the number of decks.
+	 */
+	public int decks() {
+		return decks;
+	}
+
+	/**
+	 * Determines if the shoe is reshuffled before every round.
+	 * @return true in continuous-shuffle mode; false otherwise.
+	 */
+	public boolean isContinuous() {
+		return continuous;
+	}
+
+	/**
+	 * Accesses the number of times the shoe has been reshuffled.
+	 * @return the number of reshuffles.
+	 */
+	public long reshuffles() {
+		return reshuffles;
+	}
+
+	/**
+	 * Generates and returns a string representation of this shoe.
+	 * @return a string representation of this shoe.
+	 */
+	@Override
+	public String toString() {
+		return decks + "-deck shoe, " + deck;
+	}
+
+	/**
+	 * Writes this shoe in the same format as <code>toString</code>,
+	 * without building an intermediate string.
+	 * @param out where to write the shoe.
+	 * @throws IOException if out cannot be written to.
+	 */
+	public void appendTo(Appendable out) throws IOException {
+		Deck.appendInt(out, decks);
+		out.append("-deck shoe, ");
+		deck.appendTo(out);
+	}
+
+	/**
+	 * Writes this shoe's cards on a single line, for trace logs
+	 * (see <code>Deck.appendCompactTo</code>).
+	 * @param out where to write the shoe.
+	 * @throws IOException if out cannot be written to.
+	 */
+	public void appendCompactTo(Appendable out) throws IOException {
+		deck.appendCompactTo(out);
+	}
+}
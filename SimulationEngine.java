@@ -0,0 +1,492 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The SimulationEngine class plays noninteractive games of a solitaire
+ * <code>Board</code> variant, such as Elevens or Thirteens, on several
+ * threads at once.
+ * Every worker thread plays its share of the games on its own board,
+ * so workers share no mutable state.  Before each game the board's deck
+ * is reseeded from the run seed and the game's number, so any game of a
+ * run can be replayed exactly, however many threads the run used.
+ * The workers record the outcome of each game in a shared
+ * <code>GameStatistics</code>, which they can update at the same time
+ * without contending.
+ * Optionally every game is recorded, one trace file per worker
+ * (see <code>GameTraceWriter</code>).
+ */
+public class SimulationEngine {
+
+	/**
+	 * Creates the board a worker thread plays on.
+	 */
+	public interface BoardFactory {
+
+		/**
+		 * Creates a new board whose deck is seeded with the given seed.
+		 * @param seed the seed for the deck's random number generator.
+		 * @return a new board, ready for its first game.
+		 */
+		Board newBoard(long seed);
+	}
+
+	/**
+	 * Constant used to spread the run seed across the games.
+	 */
+	private static final long SEED_INCREMENT = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * The factory that creates a board for each worker.
+	 */
+	private BoardFactory boardFactory;
+
+	/**
+	 * Flag used to control debugging print statements.
+	 */
+	private boolean debugging;
+
+	/**
+	 * The directory the game traces are written to, or null when
+	 * games are not recorded.
+	 */
+	private Path traceDirectory;
+
+	/**
+	 * The statistics the games are recorded in, or null to record
+	 * each run in statistics of its own.
+	 */
+	private GameStatistics statistics;
+
+
+	/**
+	 * Creates a new <code>SimulationEngine</code> instance.
+	 * @param factory creates the board each worker thread plays on.
+	 */
+	public SimulationEngine(BoardFactory factory) {
+		boardFactory = factory;
+		debugging = false;
+	}
+
+	/**
+	 * Turns printing of the board after every play on or off.
+	 * @param isDebugging true to print the board after every play.
+	 */
+	public void setDebugging(boolean isDebugging) {
+		debugging = isDebugging;
+	}
+
+	/**
+	 * Records the games of every run in the given statistics, e.g. to
+	 * share them with other engines or to watch them while a run goes on.
+	 * @param stats the statistics to record in, or null to record each
+	 *        run in statistics of its own.
+	 */
+	public void setStatistics(GameStatistics stats) {
+		statistics = stats;
+	}
+
+	/**
+	 * Turns recording of every game on or off.  Each worker writes its
+	 * games to the file <code>trace-</code><i>n</i><code>.bin</code> in the
+	 * directory, where <i>n</i> is the worker's number.
+	 * @param directory the directory to write the traces to, or null
+	 *        to stop recording.
+	 */
+	public void setTraceDirectory(Path directory) {
+		traceDirectory = directory;
+	}
+
+	/**
+	 * Plays the given number of games, split as evenly as possible
+	 * across the given number of threads.
+	 * @param games the total number of games to play.
+	 * @param threads the number of worker threads to use.
+	 * @param seed the run seed from which every game's seed is derived.
+	 * @return the merged results of all the workers.
+	 * @throws IllegalStateException if a worker failed; the run's games
+	 *         are then only partly played, and no result is returned.
+	 * @throws UncheckedIOException if a trace file cannot be created;
+	 *         no game is played then.
+	 * @throws InterruptedException if interrupted while waiting
+	 *         for the workers to finish.
+	 */
+	public Result run(long games, int threads, long seed)
+			throws InterruptedException {
+		if (games < 0) {
+			throw new IllegalArgumentException("games must not be negative: " + games);
+		}
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be positive: " + threads);
+		}
+		GameStatistics stats = statistics;
+		if (stats == null) {
+			stats = new GameStatistics();
+		}
+		GameStatistics.Snapshot before = stats.snapshot();
+		Worker[] workers = createWorkers(games, threads, seed, stats);
+		for (Worker worker : workers) {
+			worker.start();
+		}
+
+		for (Worker worker : workers) {
+			worker.join();
+		}
+		IllegalStateException failed = null;
+		for (Worker worker : workers) {
+			if (worker.failure != null) {
+				if (failed == null) {
+					failed = new IllegalStateException(worker.getName() + " failed",
+						worker.failure);
+				} else {
+					failed.addSuppressed(worker.failure);
+				}
+			}
+		}
+		if (failed != null) {
+			throw failed;
+		}
+		return new Result(stats.snapshot().minus(before));
+	}
+
+	/**
+	 * Creates the workers of a run, with their boards and trace files,
+	 * without starting any of them.  If a trace file cannot be created,
+	 * the ones already created are closed.
+	 * @param games the total number of games to play.
+	 * @param threads the number of workers.
+	 * @param seed the run seed.
+	 * @param stats the statistics the workers record their games in.
+	 * @return the workers.
+	 */
+	private Worker[] createWorkers(long games, int threads, long seed,
+			GameStatistics stats) {
+		Worker[] workers = new Worker[threads];
+		long share = games / threads;
+		long extra = games % threads;
+		long firstGame = 0;
+		int created = 0;
+		try {
+			for (int w = 0; w < threads; w++) {
+				long workerGames = share + (w < extra ? 1 : 0);
+				Board board = boardFactory.newBoard(seed);
+				GameTraceWriter trace = null;
+				if (traceDirectory != null) {
+					trace = openTrace(board, w, firstGame);
+				}
+				workers[w] = new Worker(board, trace, stats, seed, firstGame,
+					workerGames);
+				workers[w].setName("simulation-" + w);
+				firstGame += workerGames;
+				created++;
+			}
+		} catch (RuntimeException e) {
+			for (int w = 0; w < created; w++) {
+				UncheckedIOException closing = workers[w].closeTrace();
+				if (closing != null) {
+					e.addSuppressed(closing);
+				}
+			}
+			throw e;
+		}
+		return workers;
+	}
+
+	/**
+	 * Creates the trace file of a worker.
+	 * @param board the board the worker plays on.
+	 * @param worker the number of the worker.
+	 * @param firstGame the number of the first game the worker plays.
+	 * @return the writer recording the worker's games.
+	 */
+	private GameTraceWriter openTrace(Board board, int worker, long firstGame) {
+		try {
+			return new GameTraceWriter(
+				traceDirectory.resolve("trace-" + worker + ".bin"), board, firstGame);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Computes the seed the deck is given before a game of a run.
+	 * @param seed the run seed.
+	 * @param game the number of the game within the run, starting at 0.
+	 * @return the seed for that game.
+	 */
+	public static long gameSeed(long seed, long game) {
+		return XoroshiroRandom.mix(seed + game * SEED_INCREMENT);
+	}
+
+	/**
+	 * Deals a game of a run again, exactly as it was dealt during the run.
+	 * @param seed the run seed.
+	 * @param game the number of the game within the run, starting at 0.
+	 * @return a new board showing the start of that game.
+	 */
+	public Board replay(long seed, long game) {
+		Board board = boardFactory.newBoard(seed);
+		board.setSeed(gameSeed(seed, game));
+		board.newGame();
+		return board;
+	}
+
+	/**
+	 * Runs a simulation configured from the command line and prints
+	 * its report.  The arguments are, in order and all optional:
+	 * the number of games, the number of threads (default: one per
+	 * available processor), the run seed (default: the clock), and a
+	 * directory to record every game in (default: none).
+	 * @param args the command line arguments.
+	 * @param defaultGames the number of games to play when none is given.
+	 * @throws InterruptedException if interrupted while waiting
+	 *         for the workers to finish.
+	 */
+	public void runFromCommandLine(String[] args, long defaultGames)
+			throws InterruptedException {
+		long games = defaultGames;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long seed = System.nanoTime();
+		if (args.length > 0) {
+			games = Long.parseLong(args[0]);
+		}
+		if (args.length > 1) {
+			threads = Integer.parseInt(args[1]);
+		}
+		if (args.length > 2) {
+			seed = Long.parseLong(args[2]);
+		}
+		if (args.length > 3) {
+			setTraceDirectory(Paths.get(args[3]));
+		}
+		if (debugging) {
+			System.out.println("Seed: " + seed);
+		}
+		run(games, threads, seed).printReport();
+	}
+
+	/**
+	 * The merged outcome of a simulation run.
+	 */
+	public static class Result {
+
+		/**
+		 * The number of games won.
+		 */
+		private long wins;
+
+		/**
+		 * The number of games played.
+		 */
+		private long games;
+
+		/**
+		 * The counts of the games of the run.
+		 */
+		private GameStatistics.Snapshot statistics;
+
+		/**
+		 * Creates a new <code>Result</code> instance.
+		 * @param gamesWon the number of games won.
+		 * @param gamesPlayed the number of games played.
+		 */
+		public Result(long gamesWon, long gamesPlayed) {
+			this(new GameStatistics.Snapshot(gamesWon, gamesPlayed - gamesWon,
+				0, 0, 0));
+		}
+
+		/**
+		 * Creates a new <code>Result</code> instance.
+		 * @param runStatistics the counts of the games of the run.
+		 */
+		public Result(GameStatistics.Snapshot runStatistics) {
+			statistics = runStatistics;
+			wins = runStatistics.wins();
+			games = runStatistics.games();
+		}
+
+		/**
+		 * Accesses the counts of the games of the run, such as the
+		 * moves made per game and the cards left in lost games.
+		 * @return the counts of the run.
+		 */
+		public GameStatistics.Snapshot statistics() {
+			return statistics;
+		}
+
+		/**
+		 * Accesses the number of games won.
+		 * @return the number of games won.
+		 */
+		public long wins() {
+			return wins;
+		}
+
+		/**
+		 * Accesses the number of games played.
+		 * @return the number of games played.
+		 */
+		public long games() {
+			return games;
+		}
+
+		/**
+		 * Computes the percentage of games won, rounded to one decimal place.
+		 * @return the percentage of games won, or 0 if no games were played.
+		 */
+		public double percentWon() {
+			if (games == 0) {
+				return 0.0;
+			}
+			return (int) (1000.0 * wins / games + 0.5) / 10.0;
+		}
+
+		/**
+		 * Prints the games won, games played and percent won.
+		 */
+		public void printReport() {
+			System.out.println("Games won:    " + wins);
+			System.out.println("Games played: " + games);
+			System.out.println("Percent won:  " + percentWon() + "%");
+			System.out.println(String.format("Moves per game:      %.2f",
+				statistics.movesPerGame()));
+			System.out.println(String.format("Cards left per loss: %.2f",
+				statistics.cardsLeftPerLoss()));
+		}
+	}
+
+	/**
+	 * A thread that plays its share of the games on its own board.
+	 */
+	private class Worker extends Thread {
+
+		/**
+		 * The board this worker plays on.
+		 */
+		private Board board;
+
+		/**
+		 * Records this worker's games, or null when they are not recorded.
+		 */
+		private GameTraceWriter trace;
+
+		/**
+		 * The run seed.
+		 */
+		private long runSeed;
+
+		/**
+		 * The number of the first game this worker has to play.
+		 */
+		private long firstGame;
+
+		/**
+		 * The number of games this worker has to play.
+		 */
+		private long gamesToPlay;
+
+		/**
+		 * The statistics this worker records its games in.
+		 */
+		private GameStatistics stats;
+
+		/**
+		 * What this worker failed with, or null if it played all its games.
+		 * It is read by the run only after the worker has been joined.
+		 */
+		private Throwable failure;
+
+		/**
+		 * Creates a new <code>Worker</code> instance.
+		 * @param workerBoard the board to play on.
+		 * @param workerTrace records the games, or null.
+		 * @param runStats the statistics to record the games in.
+		 * @param seed the run seed.
+		 * @param first the number of the first game to play.
+		 * @param games the number of games to play.
+		 */
+		Worker(Board workerBoard, GameTraceWriter workerTrace,
+				GameStatistics runStats, long seed, long first, long games) {
+			board = workerBoard;
+			trace = workerTrace;
+			stats = runStats;
+			runSeed = seed;
+			firstGame = first;
+			gamesToPlay = games;
+		}
+
+		/**
+		 * Plays the games, reseeding the deck before each one, and closes
+		 * the board's trace, if any, when done.  What makes the worker fail
+		 * is kept in <code>failure</code>, for the run to report.
+		 */
+		@Override
+		public void run() {
+			board.setTrace(trace);
+			try {
+				playGames();
+			} catch (Throwable e) {
+				failure = e;
+			}
+			board.setTrace(null);
+			UncheckedIOException closing = closeTrace();
+			if (closing != null) {
+				if (failure == null) {
+					failure = closing;
+				} else {
+					failure.addSuppressed(closing);
+				}
+			}
+		}
+
+		/**
+		 * Closes this worker's trace, if any.
+		 * @return the error closing it, or null if it was closed.
+		 */
+		UncheckedIOException closeTrace() {
+			if (trace != null) {
+				try {
+					trace.close();
+				} catch (IOException e) {
+					return new UncheckedIOException(e);
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Plays the games, reseeding the deck before each one.
+		 */
+		private void playGames() {
+			for (long k = firstGame; k < firstGame + gamesToPlay; k++) {
+				board.setSeed(gameSeed(runSeed, k));
+				board.newGame();
+				if (debugging) {
+					printBoard();
+				}
+				int moves = 0;
+				while (board.playIfPossible()) {
+					moves++;
+					if (debugging) {
+						printBoard();
+					}
+				}
+				if (board.gameIsWon()) {
+					stats.recordWin(moves);
+				} else {
+					stats.recordLoss(moves, board.cardCount() + board.deckSize());
+				}
+			}
+		}
+
+		/**
+		 * Prints this worker's board without interleaving with other workers.
+		 */
+		private void printBoard() {
+			synchronized (System.out) {
+				System.out.println(board);
+			}
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/**
+ * The SlotChanges class records which positions (slots) of a board have
+ * changed since they were last looked at, so that a display only needs to
+ * redraw those positions.  Each slot is recorded at most once, so
+ * marking, and draining the recorded slots, take time proportional to the
+ * number of changes rather than to the size of the board.
+ */
+public class SlotChanges {
+
+	/**
+	 * The kth element is true iff slot k has changed.
+	 */
+	private boolean[] changed;
+
+	/**
+	 * The changed slots, in the order they first changed,
+	 * in the first <code>count</code> elements.
+	 */
+	private int[] slots;
+
+	/**
+	 * The number of changed slots.
+	 */
+	private int count;
+
+	/**
+	 * Creates a new <code>SlotChanges</code> instance with no changes.
+	 * @param size the number of slots.
+	 */
+	public SlotChanges(int size) {
+		changed = new boolean[size];
+		slots = new int[size];
+		count = 0;
+	}
+
+	/**
+	 * Records that a slot has changed.
+	 * @param k the slot that changed.
+	 */
+	public void mark(int k) {
+		if (!changed[k]) {
+			changed[k] = true;
+			slots[count] = k;
+			count++;
+		}
+	}
+
+	/**
+	 * Records that every slot has changed.
+	 */
+	public void markAll() {
+		for (int k = 0; k < changed.length; k++) {
+			mark(k);
+		}
+	}
+
+	/**
+	 * Determines if a slot has changed.
+	 * @param k the slot to check.
+	 * @return true if slot k has changed; false otherwise.
+	 */
+	public boolean isChanged(int k) {
+		return changed[k];
+	}
+
+	/**
+	 * Accesses the number of changed slots.
+	 * @return the number of slots that have changed.
+	 */
+	public int count() {
+		return count;
+	}
+
+	/**
+	 * Copies out the changed slots and forgets them.
+	 * @param dest receives the changed slots; it must be at least as long
+	 *        as the number of slots.
+	 * @return the number of slots stored in dest.
+	 */
+	public int drain(int[] dest) {
+		int n = count;
+		for (int i = 0; i < n; i++) {
+			dest[i] = slots[i];
+			changed[slots[i]] = false;
+		}
+		count = 0;
+		return n;
+	}
+}
@@ -0,0 +1,440 @@
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The SolitaireSolver class decides whether a deal of a game described
+ * by <code>BoardRules</code>, such as Elevens, Thirteens or Pairs, can be won, by searching every sequence of removals rather
+ * than playing the first legal group it finds the way
+ * <code>playIfPossible</code> does.
+ * <p>
+ * Which position a card sits in does not matter to the game, and neither
+ * do suits, so a search state is just the number of cards of each rank
+ * on the board plus the number of cards dealt so far, packed into a
+ * <code>long</code>.  Every removal takes cards off the board for good,
+ * so the search cannot cycle; states that have already been explored
+ * (reached again through removals made in a different order) are
+ * remembered in a <code>LongHashSet</code> and not searched twice.
+ * <p>
+ * A solver is not thread-safe, but it can be reused for any number
+ * of deals; each thread should have its own.
+ */
+public class SolitaireSolver {
+
+	/**
+	 * The number of bits used to hold the count of one rank.
+	 */
+	private static final int COUNT_BITS = 3;
+
+	/**
+	 * The largest count of one rank a state can hold.
+	 */
+	private static final int MAX_COUNT = (1 << COUNT_BITS) - 1;
+
+	/**
+	 * The rules of the game being solved.
+	 */
+	private BoardRules rules;
+
+	/**
+	 * The states that have been explored during the current solve.
+	 */
+	private LongHashSet explored;
+
+	/**
+	 * The removable groups of ranks for the current deal.
+	 */
+	private int[][] groups;
+
+	/**
+	 * The number of cards of each rank on the board.
+	 */
+	private int[] counts;
+
+	/**
+	 * The ranks of the undealt cards, in the order they will be dealt.
+	 */
+	private int[] dealOrder;
+
+	/**
+	 * The number of undealt cards at the start of the search.
+	 */
+	private int deckCards;
+
+	/**
+	 * The number of cards dealt since the start of the search.
+	 */
+	private int dealt;
+
+	/**
+	 * The number of cards on the board.
+	 */
+	private int onBoard;
+
+	/**
+	 * The indexes (into groups) of the removals made so far.
+	 */
+	private int[] moveStack;
+
+	/**
+	 * The number of removals made so far.
+	 */
+	private int depth;
+
+
+	/**
+	 * Creates a new <code>SolitaireSolver</code> instance.
+	 * @param sum the total the point values of a removable pair add up to.
+	 * @param removableGroups other groups of ranks (indexes into the
+	 *        ranks the deck was created from) that may be removed together.
+	 */
+	public SolitaireSolver(int sum, int[][] removableGroups) {
+		this(withGroups(new BoardRules().withPairSum(sum), removableGroups));
+	}
+
+	/**
+	 * Creates a solver for the game with the given rules.
+	 * @param gameRules the removals allowed in the game.
+	 */
+	public SolitaireSolver(BoardRules gameRules) {
+		rules = gameRules;
+		explored = new LongHashSet();
+		counts = new int[0];
+		dealOrder = new int[0];
+		moveStack = new int[0];
+	}
+
+	/**
+	 * Creates a solver for <code>ElevensBoard</code>: pairs adding up to
+	 * 11, or a jack, a queen and a king.
+	 * @return a new solver for Elevens.
+	 */
+	public static SolitaireSolver forElevens() {
+		return new SolitaireSolver(ElevensBoard.RULES);
+	}
+
+	/**
+	 * Creates a solver for <code>ThirteensBoard</code>: pairs adding up
+	 * to 13, or a single king.
+	 * @return a new solver for Thirteens.
+	 */
+	public static SolitaireSolver forThirteens() {
+		return new SolitaireSolver(ThirteensBoard.RULES);
+	}
+
+	/**
+	 * Creates a solver for <code>PairsBoard</code>: two or more cards
+	 * with the same point value.
+	 * @return a new solver for Pairs.
+	 */
+	public static SolitaireSolver forPairs() {
+		return new SolitaireSolver(PairsBoard.RULES);
+	}
+
+	/**
+	 * Adds rank groups to rules.
+	 * @param base the rules to add to.
+	 * @param rankGroups the groups of ranks to add.
+	 * @return the rules with the groups added.
+	 */
+	private static BoardRules withGroups(BoardRules base, int[][] rankGroups) {
+		BoardRules result = base;
+		for (int[] group : rankGroups) {
+			result = result.withRankGroup(group);
+		}
+		return result;
+	}
+
+	/**
+	 * Determines whether the game on a board can still be won from its
+	 * current position, given the order of the cards left in its deck.
+	 * The board is not changed.
+	 * @param board the board to solve.
+	 * @return the outcome of the search.
+	 */
+	public Solution solve(Board board) {
+		load(board);
+		explored.clear();
+		depth = 0;
+		boolean winnable = search();
+		return new Solution(winnable, winnable ? positions(board) : new ArrayList<int[]>(),
+			explored.size());
+	}
+
+	/**
+	 * Copies the position of a board into the search state.
+	 * @param board the board to copy.
+	 */
+	private void load(Board board) {
+		int ranks = 0;
+		deckCards = board.deckSize();
+		for (int k = 0; k < board.size(); k++) {
+			ranks = Math.max(ranks, board.rankAt(k) + 1);
+		}
+		for (int i = 0; i < deckCards; i++) {
+			ranks = Math.max(ranks, CardCode.rank(board.deckCodeAt(i)) + 1);
+		}
+		if (ranks * COUNT_BITS + Long.SIZE - Long.numberOfLeadingZeros(deckCards) > Long.SIZE) {
+			throw new IllegalArgumentException("Too many ranks to solve: " + ranks);
+		}
+		if (counts.length < ranks) {
+			counts = new int[ranks];
+		}
+		if (dealOrder.length < deckCards) {
+			dealOrder = new int[deckCards];
+		}
+		if (moveStack.length < board.size() + deckCards) {
+			moveStack = new int[board.size() + deckCards];
+		}
+
+		int[] rankValues = new int[ranks];
+		Arrays.fill(counts, 0);
+		onBoard = 0;
+		for (int k = 0; k < board.size(); k++) {
+			int code = board.codeAt(k);
+			if (code != CardCode.NONE) {
+				counts[CardCode.rank(code)]++;
+				rankValues[CardCode.rank(code)] = CardCode.pointValue(code);
+				onBoard++;
+			}
+		}
+		for (int i = 0; i < deckCards; i++) {
+			int code = board.deckCodeAt(i);
+			dealOrder[i] = CardCode.rank(code);
+			rankValues[CardCode.rank(code)] = CardCode.pointValue(code);
+		}
+		int[] rankTotals = new int[ranks];
+		for (int r = 0; r < ranks; r++) {
+			rankTotals[r] = counts[r];
+		}
+		for (int i = 0; i < deckCards; i++) {
+			rankTotals[dealOrder[i]]++;
+		}
+		for (int r = 0; r < ranks; r++) {
+			if (rankTotals[r] > MAX_COUNT) {
+				throw new IllegalArgumentException("Too many cards of one rank to solve: "
+					+ rankTotals[r] + ", but a state holds at most " + MAX_COUNT);
+			}
+		}
+		dealt = 0;
+
+		List<int[]> found = new ArrayList<int[]>();
+		if (rules.pairSum() != BoardRules.NO_PAIR_SUM) {
+			for (int r1 = 0; r1 < ranks; r1++) {
+				for (int r2 = r1; r2 < ranks; r2++) {
+					if (rankValues[r1] + rankValues[r2] == rules.pairSum()) {
+						found.add(new int[] {r1, r2});
+					}
+				}
+			}
+		}
+		for (int g = 0; g < rules.rankGroupCount(); g++) {
+			found.add(rules.rankGroup(g));
+		}
+		if (rules.allowsSameValueGroups()) {
+			addSameValueGroups(found, rankValues, rankTotals, new int[0], 0);
+		}
+		groups = found.toArray(new int[found.size()][]);
+	}
+
+	/**
+	 * Adds every group of two or more cards of the same point value that
+	 * the deal could hold, as multisets of ranks in increasing order.
+	 * @param found receives the groups.
+	 * @param rankValues the point value of each rank.
+	 * @param rankTotals the number of cards of each rank in the deal.
+	 * @param prefix the ranks chosen so far, all of the same value.
+	 * @param from the lowest rank that may be chosen next.
+	 */
+	private static void addSameValueGroups(List<int[]> found, int[] rankValues,
+			int[] rankTotals, int[] prefix, int from) {
+		if (prefix.length > 1) {
+			found.add(prefix);
+		}
+		for (int r = from; r < rankValues.length; r++) {
+			if (prefix.length > 0 && rankValues[r] != rankValues[prefix[0]]) {
+				continue;
+			}
+			int taken = 0;
+			for (int p : prefix) {
+				if (p == r) {
+					taken++;
+				}
+			}
+			if (taken < rankTotals[r]) {
+				int[] group = Arrays.copyOf(prefix, prefix.length + 1);
+				group[prefix.length] = r;
+				addSameValueGroups(found, rankValues, rankTotals, group, r);
+			}
+		}
+	}
+
+	/**
+	 * Searches for a sequence of removals that clears the board and deck.
+	 * @return true if one was found; the removals are then in moveStack.
+	 */
+	private boolean search() {
+		if (onBoard == 0 && dealt == deckCards) {
+			return true;
+		}
+		if (!explored.add(key())) {
+			return false;
+		}
+		for (int g = 0; g < groups.length; g++) {
+			int[] group = groups[g];
+			if (!take(group)) {
+				continue;
+			}
+			int refill = Math.min(group.length, deckCards - dealt);
+			for (int i = 0; i < refill; i++) {
+				counts[dealOrder[dealt]]++;
+				dealt++;
+			}
+			onBoard += refill - group.length;
+			moveStack[depth] = g;
+			depth++;
+			if (search()) {
+				return true;
+			}
+			depth--;
+			onBoard -= refill - group.length;
+			for (int i = 0; i < refill; i++) {
+				dealt--;
+				counts[dealOrder[dealt]]--;
+			}
+			for (int r : group) {
+				counts[r]++;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Takes a group of cards off the board, if they are all there.
+	 * @param group the ranks of the cards to take.
+	 * @return true if the cards were taken; false if the board was
+	 *         left unchanged because some were missing.
+	 */
+	private boolean take(int[] group) {
+		for (int i = 0; i < group.length; i++) {
+			if (counts[group[i]] == 0) {
+				for (int j = 0; j < i; j++) {
+					counts[group[j]]++;
+				}
+				return false;
+			}
+			counts[group[i]]--;
+		}
+		return true;
+	}
+
+	/**
+	 * Packs the current search state into a <code>long</code>.
+	 * @return the packed state.
+	 */
+	private long key() {
+		long key = dealt;
+		for (int r = 0; r < counts.length; r++) {
+			key = (key << COUNT_BITS) | counts[r];
+		}
+		return key;
+	}
+
+	/**
+	 * Turns the winning removals into the board positions to select,
+	 * by replaying them on a copy of the board's cards.
+	 * @param board the board that was solved.
+	 * @return the positions removed by each move, in order.
+	 */
+	private List<int[]> positions(Board board) {
+		int[] slots = new int[board.size()];
+		for (int k = 0; k < slots.length; k++) {
+			slots[k] = board.codeAt(k);
+		}
+		int next = 0;
+		List<int[]> moves = new ArrayList<int[]>();
+		for (int m = 0; m < depth; m++) {
+			int[] group = groups[moveStack[m]];
+			int[] selected = new int[group.length];
+			for (int i = 0; i < group.length; i++) {
+				for (int k = 0; k < slots.length; k++) {
+					if (slots[k] != CardCode.NONE && CardCode.rank(slots[k]) == group[i]) {
+						selected[i] = k;
+						slots[k] = CardCode.NONE;
+						break;
+					}
+				}
+			}
+			for (int k : selected) {
+				if (next < deckCards) {
+					slots[k] = board.deckCodeAt(next);
+					next++;
+				}
+			}
+			moves.add(selected);
+		}
+		return moves;
+	}
+
+	/**
+	 * The outcome of solving one deal.
+	 */
+	public static class Solution {
+
+		/**
+		 * Whether the deal can be won.
+		 */
+		private boolean winnable;
+
+		/**
+		 * The board positions removed by each move of a winning game.
+		 */
+		private List<int[]> moves;
+
+		/**
+		 * The number of distinct states the search explored.
+		 */
+		private int states;
+
+		/**
+		 * Creates a new <code>Solution</code> instance.
+		 * @param canWin whether the deal can be won.
+		 * @param winningMoves the positions removed by each move of
+		 *        a winning game; empty if it cannot be won.
+		 * @param statesExplored the number of distinct states explored.
+		 */
+		public Solution(boolean canWin, List<int[]> winningMoves, int statesExplored) {
+			winnable = canWin;
+			moves = winningMoves;
+			states = statesExplored;
+		}
+
+		/**
+		 * Determines if the deal can be won.
+		 * @return true if the deal can be won; false otherwise.
+		 */
+		public boolean isWinnable() {
+			return winnable;
+		}
+
+		/**
+		 * Accesses the moves of a winning game.  Every winning game removes
+		 * every card, so any winning sequence is an optimal one.  Playing
+		 * the moves in order through <code>replaceSelectedCards</code>
+		 * wins the game.
+		 * @return the board positions removed by each move;
+		 *         empty if the deal cannot be won.
+		 */
+		public List<int[]> moves() {
+			return moves;
+		}
+
+		/**
+		 * Accesses the number of distinct states the search explored.
+		 * @return the number of states explored.
+		 */
+		public int statesExplored() {
+			return states;
+		}
+	}
+}
@@ -0,0 +1,600 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The SolverSweep class estimates the fraction of deals of a solitaire
+ * <code>Board</code> variant, such as Elevens or Thirteens, that can be
+ * won with perfect play, by running a <code>SolitaireSolver</code> over a
+ * long run of seeded deals.  Deal <i>k</i> of a sweep is dealt from
+ * <code>SimulationEngine.gameSeed(seed, k)</code>, the same deal as game
+ * <i>k</i> of a simulation run with that seed, so any deal can be looked
+ * at again with <code>SimulationEngine.replay</code>.
+ * <p>
+ * The deals are solved on a <code>ForkJoinPool</code>: each block of deals
+ * is split in halves down to small batches, so threads that draw quick
+ * deals steal the remaining work of those that draw slow ones.  Every
+ * thread solves on its own board and solver.
+ * <p>
+ * A sweep writes two files to its directory.  <code>sweep.bin</code>
+ * holds the result of every deal, column by column in blocks of
+ * <code>interval</code> deals: after a header (the magic number
+ * <code>SSWP</code>, a version byte, the seed, and the game's name as a
+ * length byte and ASCII), each block is the number of its first deal
+ * (eight bytes) and its deal count (four bytes), then a bit per deal that
+ * is set if the deal can be won, a byte per deal holding the number of
+ * moves of the win (0 if none), and the number of states the solver
+ * explored for each deal (four bytes each).  <code>sweep.ckpt</code> is
+ * rewritten after every block with the totals so far and the length of
+ * <code>sweep.bin</code>; a sweep started in a directory holding a
+ * checkpoint carries on from it, dropping any part of a block written
+ * after the checkpoint.
+ */
+public class SolverSweep {
+
+	/**
+	 * The first four bytes of a results file: "SSWP".
+	 */
+	public static final int MAGIC = 0x53535750;
+
+	/**
+	 * The first four bytes of a checkpoint file: "SSCK".
+	 */
+	public static final int CHECKPOINT_MAGIC = 0x5353434B;
+
+	/**
+	 * The version of both file formats.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * The name of the results file in a sweep's directory.
+	 */
+	public static final String RESULTS_FILE = "sweep.bin";
+
+	/**
+	 * The name of the checkpoint file in a sweep's directory.
+	 */
+	public static final String CHECKPOINT_FILE = "sweep.ckpt";
+
+	/**
+	 * The number of deals to sweep when none is given.
+	 */
+	private static final long DEALS = 1000000;
+
+	/**
+	 * The number of deals between checkpoints when none is given.
+	 */
+	private static final int INTERVAL = 100000;
+
+	/**
+	 * The most deals a task solves itself rather than splitting in two.
+	 */
+	private static final int BATCH = 256;
+
+	/**
+	 * The length of a checkpoint file.
+	 */
+	private static final int CHECKPOINT_SIZE = 4 + 1 + 8 * 6;
+
+	/**
+	 * The name of the game swept, as recorded in the results file.
+	 */
+	private String game;
+
+	/**
+	 * The factory that creates a board for each thread.
+	 */
+	private SimulationEngine.BoardFactory boardFactory;
+
+	/**
+	 * The rules the deals are solved by.
+	 */
+	private BoardRules rules;
+
+	/**
+	 * The board and solver of each thread.
+	 */
+	private ThreadLocal<Player> players;
+
+	/**
+	 * Whether each deal of the block being solved can be won.
+	 */
+	private boolean[] won;
+
+	/**
+	 * The number of moves of the win of each deal of the block.
+	 */
+	private byte[] moves;
+
+	/**
+	 * The number of states explored for each deal of the block.
+	 */
+	private int[] states;
+
+	/**
+	 * The run seed from which every deal's seed is derived.
+	 */
+	private long seed;
+
+	/**
+	 * The number of deals already solved.
+	 */
+	private long done;
+
+	/**
+	 * The number of deals solved that can be won.
+	 */
+	private long wins;
+
+	/**
+	 * The total number of states explored.
+	 */
+	private long statesExplored;
+
+
+	/**
+	 * Creates a new <code>SolverSweep</code> instance.
+	 * @param name the name of the game, at most 255 ASCII characters.
+	 * @param factory creates the board each thread deals on.
+	 * @param gameRules the removals allowed in the game.
+	 */
+	public SolverSweep(String name, SimulationEngine.BoardFactory factory,
+			BoardRules gameRules) {
+		if (name.length() > 255) {
+			throw new IllegalArgumentException("Game name too long: " + name);
+		}
+		game = name;
+		boardFactory = factory;
+		rules = gameRules;
+		players = new ThreadLocal<Player>() {
+			@Override
+			protected Player initialValue() {
+				return new Player(boardFactory.newBoard(0),
+					new SolitaireSolver(rules));
+			}
+		};
+	}
+
+	/**
+	 * Creates a sweep over deals of <code>ElevensBoard</code>.
+	 * @return a new sweep for Elevens.
+	 */
+	public static SolverSweep forElevens() {
+		return new SolverSweep("elevens", new SimulationEngine.BoardFactory() {
+			public Board newBoard(long seed) {
+				return new ElevensBoard(seed);
+			}
+		}, ElevensBoard.RULES);
+	}
+
+	/**
+	 * Creates a sweep over deals of <code>ThirteensBoard</code>.
+	 * @return a new sweep for Thirteens.
+	 */
+	public static SolverSweep forThirteens() {
+		return new SolverSweep("thirteens", new SimulationEngine.BoardFactory() {
+			public Board newBoard(long seed) {
+				return new ThirteensBoard(seed);
+			}
+		}, ThirteensBoard.RULES);
+	}
+
+	/**
+	 * Sweeps a game's deals and prints the fraction that can be won.
+	 * @param args are, in order and all optional: the game ("elevens" or
+	 *             "thirteens"), the number of deals, the run seed, the
+	 *             number of threads, the number of deals between
+	 *             checkpoints, and the directory to write the results
+	 *             and checkpoint to (default: the current directory).
+	 *             A sweep that resumes from a checkpoint keeps the seed
+	 *             it was started with.
+	 * @throws IOException if the results or checkpoint cannot be
+	 *         read or written.
+	 */
+	public static void main(String[] args) throws IOException {
+		SolverSweep sweep = forElevens();
+		long deals = DEALS;
+		long runSeed = System.nanoTime();
+		int threads = Runtime.getRuntime().availableProcessors();
+		int interval = INTERVAL;
+		Path directory = Paths.get(".");
+		if (args.length > 0) {
+			if (args[0].equals("thirteens")) {
+				sweep = forThirteens();
+			} else if (!args[0].equals("elevens")) {
+				throw new IllegalArgumentException("Unknown game: " + args[0]);
+			}
+		}
+		if (args.length > 1) {
+			deals = Long.parseLong(args[1]);
+		}
+		if (args.length > 2) {
+			runSeed = Long.parseLong(args[2]);
+		}
+		if (args.length > 3) {
+			threads = Integer.parseInt(args[3]);
+		}
+		if (args.length > 4) {
+			interval = Integer.parseInt(args[4]);
+		}
+		if (args.length > 5) {
+			directory = Paths.get(args[5]);
+		}
+		sweep.run(deals, runSeed, threads, interval, directory);
+		sweep.printReport();
+	}
+
+	/**
+	 * Solves deals up to the given number, on the given number of
+	 * threads, writing the results and a checkpoint to a directory after
+	 * every interval deals.  If the directory holds a checkpoint of a
+	 * sweep of the same game, the sweep carries on from it with that
+	 * sweep's seed.
+	 * @param deals the number of deals to solve, in all.
+	 * @param runSeed the run seed from which every deal's seed is
+	 *        derived, unless resuming.
+	 * @param threads the number of threads to solve on.
+	 * @param interval the number of deals between checkpoints.
+	 * @param directory the directory of the results and checkpoint.
+	 * @throws IOException if the results or checkpoint cannot be
+	 *         read or written.
+	 */
+	public void run(long deals, long runSeed, int threads, int interval,
+			Path directory) throws IOException {
+		if (deals < 0) {
+			throw new IllegalArgumentException("deals must not be negative: " + deals);
+		}
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be positive: " + threads);
+		}
+		if (interval < 1) {
+			throw new IllegalArgumentException("interval must be positive: " + interval);
+		}
+		Path results = directory.resolve(RESULTS_FILE);
+		Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+		seed = runSeed;
+		done = 0;
+		wins = 0;
+		statesExplored = 0;
+		long length = -1;
+		if (Files.exists(checkpoint)) {
+			length = readCheckpoint(checkpoint);
+			checkHeader(results);
+			System.out.println("Resuming " + game + " at deal " + done
+				+ " with seed " + seed);
+		}
+		won = new boolean[interval];
+		moves = new byte[interval];
+		states = new int[interval];
+		ByteBuffer buffer = ByteBuffer.allocate(12 + (interval + 7) / 8 + 5 * interval);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		FileChannel channel = FileChannel.open(results, StandardOpenOption.CREATE,
+			StandardOpenOption.WRITE);
+		try {
+			if (length < 0) {
+				channel.truncate(0);
+				writeHeader(buffer);
+				length = write(channel, buffer, 0);
+				writeCheckpoint(checkpoint, length);
+			} else {
+				channel.truncate(length);
+			}
+			while (done < deals) {
+				int count = (int) Math.min(interval, deals - done);
+				pool.invoke(new Solve(done, 0, count));
+				buffer.clear();
+				buffer.putLong(done);
+				buffer.putInt(count);
+				putColumns(buffer, count);
+				length = write(channel, buffer, length);
+				for (int i = 0; i < count; i++) {
+					if (won[i]) {
+						wins++;
+					}
+					statesExplored += states[i];
+				}
+				done += count;
+				writeCheckpoint(checkpoint, length);
+				System.out.println(String.format("%d of %d deals, %.4f%% won",
+					done, deals, 100.0 * wins / done));
+			}
+		} finally {
+			channel.close();
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Accesses the number of deals solved.
+	 * @return the number of deals solved, including any solved
+	 *         before resuming.
+	 */
+	public long deals() {
+		return done;
+	}
+
+	/**
+	 * Accesses the number of deals solved that can be won.
+	 * @return the number of winnable deals.
+	 */
+	public long wins() {
+		return wins;
+	}
+
+	/**
+	 * Computes the fraction of the deals solved that can be won.
+	 * @return the fraction won, or 0 if no deals were solved.
+	 */
+	public double fractionWon() {
+		return done == 0 ? 0.0 : (double) wins / done;
+	}
+
+	/**
+	 * Prints the fraction of the deals that can be won, with the
+	 * margin of a 95% confidence interval.
+	 */
+	public void printReport() {
+		double p = fractionWon();
+		double margin = done == 0 ? 0.0 : 1.96 * Math.sqrt(p * (1 - p) / done);
+		System.out.println("Game:           " + game);
+		System.out.println("Seed:           " + seed);
+		System.out.println("Deals solved:   " + done);
+		System.out.println("Deals won:      " + wins);
+		System.out.println(String.format("Winnable:       %.4f%% +/- %.4f%%",
+			100.0 * p, 100.0 * margin));
+		System.out.println(String.format("States per deal: %.1f",
+			done == 0 ? 0.0 : (double) statesExplored / done));
+	}
+
+	/**
+	 * Puts the results file header in a buffer.
+	 * @param buffer the buffer, cleared.
+	 */
+	private void writeHeader(ByteBuffer buffer) {
+		buffer.clear();
+		buffer.putInt(MAGIC);
+		buffer.put((byte) VERSION);
+		buffer.putLong(seed);
+		byte[] name = game.getBytes(StandardCharsets.US_ASCII);
+		buffer.put((byte) name.length);
+		buffer.put(name);
+	}
+
+	/**
+	 * Checks that a results file was written by a sweep of this game
+	 * with the checkpoint's seed.
+	 * @param results the results file.
+	 * @throws IOException if the file cannot be read or does not match.
+	 */
+	private void checkHeader(Path results) throws IOException {
+		ByteBuffer expected = ByteBuffer.allocate(4 + 1 + 8 + 1 + 255);
+		writeHeader(expected);
+		expected.flip();
+		ByteBuffer actual = ByteBuffer.allocate(expected.remaining());
+		FileChannel channel = FileChannel.open(results, StandardOpenOption.READ);
+		try {
+			while (actual.hasRemaining()) {
+				if (channel.read(actual) < 0) {
+					break;
+				}
+			}
+		} finally {
+			channel.close();
+		}
+		actual.flip();
+		if (!actual.equals(expected)) {
+			throw new IOException(results + " is not the results of a sweep of "
+				+ game + " with seed " + seed);
+		}
+	}
+
+	/**
+	 * Puts the results of a block of deals in a buffer, column by column.
+	 * @param buffer the buffer to put them in.
+	 * @param count the number of deals in the block.
+	 */
+	private void putColumns(ByteBuffer buffer, int count) {
+		for (int i = 0; i < count; i += 8) {
+			int bits = 0;
+			for (int j = 0; j < 8 && i + j < count; j++) {
+				if (won[i + j]) {
+					bits |= 1 << j;
+				}
+			}
+			buffer.put((byte) bits);
+		}
+		buffer.put(moves, 0, count);
+		for (int i = 0; i < count; i++) {
+			buffer.putInt(states[i]);
+		}
+	}
+
+	/**
+	 * Writes a buffer to a file at the given position and forces it
+	 * to the disk, so that a checkpoint never gets ahead of the results.
+	 * @param channel the file.
+	 * @param buffer the buffer, not yet flipped.
+	 * @param position the position in the file to write at.
+	 * @return the position just past what was written.
+	 * @throws IOException if the file cannot be written.
+	 */
+	private static long write(FileChannel channel, ByteBuffer buffer, long position)
+			throws IOException {
+		buffer.flip();
+		long at = position;
+		while (buffer.hasRemaining()) {
+			at += channel.write(buffer, at);
+		}
+		channel.force(false);
+		return at;
+	}
+
+	/**
+	 * Replaces the checkpoint with the sweep's progress so far: the magic
+	 * number, the version, the seed, the number of deals solved and won,
+	 * the states explored, the length of the results file, and a
+	 * checksum of the rest.  It is written to a temporary file and moved
+	 * into place, so a sweep stopped while writing it keeps the last one.
+	 * @param checkpoint the checkpoint file.
+	 * @param length the length of the results file.
+	 * @throws IOException if the checkpoint cannot be written.
+	 */
+	private void writeCheckpoint(Path checkpoint, long length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(CHECKPOINT_SIZE);
+		buffer.putInt(CHECKPOINT_MAGIC);
+		buffer.put((byte) VERSION);
+		buffer.putLong(seed);
+		buffer.putLong(done);
+		buffer.putLong(wins);
+		buffer.putLong(statesExplored);
+		buffer.putLong(length);
+		buffer.putLong(checksum(seed, done, wins, statesExplored, length));
+		Path temporary = checkpoint.resolveSibling(CHECKPOINT_FILE + ".tmp");
+		FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+			StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			write(channel, buffer, 0);
+		} finally {
+			channel.close();
+		}
+		Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING,
+			StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Reads a checkpoint, restoring the sweep's progress from it.
+	 * @param checkpoint the checkpoint file.
+	 * @return the length of the results file at the checkpoint.
+	 * @throws IOException if the checkpoint cannot be read or is damaged.
+	 */
+	private long readCheckpoint(Path checkpoint) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(checkpoint));
+		if (buffer.remaining() != CHECKPOINT_SIZE || buffer.getInt() != CHECKPOINT_MAGIC
+				|| buffer.get() != VERSION) {
+			throw new IOException(checkpoint + " is not a sweep checkpoint");
+		}
+		long savedSeed = buffer.getLong();
+		long savedDone = buffer.getLong();
+		long savedWins = buffer.getLong();
+		long savedStates = buffer.getLong();
+		long length = buffer.getLong();
+		if (buffer.getLong() != checksum(savedSeed, savedDone, savedWins,
+				savedStates, length)) {
+			throw new IOException(checkpoint + " is damaged");
+		}
+		seed = savedSeed;
+		done = savedDone;
+		wins = savedWins;
+		statesExplored = savedStates;
+		return length;
+	}
+
+	/**
+	 * Mixes the fields of a checkpoint into a checksum.
+	 * @param values the fields.
+	 * @return the checksum.
+	 */
+	private static long checksum(long... values) {
+		long sum = CHECKPOINT_MAGIC;
+		for (long v : values) {
+			sum = XoroshiroRandom.mix(sum + v);
+		}
+		return sum;
+	}
+
+	/**
+	 * A thread's board and solver.
+	 */
+	private static class Player {
+
+		/**
+		 * The board the deals are dealt on.
+		 */
+		private Board board;
+
+		/**
+		 * The solver the deals are solved with.
+		 */
+		private SolitaireSolver solver;
+
+		/**
+		 * Creates a new <code>Player</code> instance.
+		 * @param dealBoard the board to deal on.
+		 * @param dealSolver the solver to solve with.
+		 */
+		Player(Board dealBoard, SolitaireSolver dealSolver) {
+			board = dealBoard;
+			solver = dealSolver;
+		}
+	}
+
+	/**
+	 * A task that solves a range of the block's deals, splitting it
+	 * in halves for other threads to steal while it is large.
+	 */
+	private class Solve extends RecursiveAction {
+
+		/**
+		 * The version of this class's serialized form.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The number of the block's first deal.
+		 */
+		private long firstDeal;
+
+		/**
+		 * The index within the block of the first deal to solve.
+		 */
+		private int from;
+
+		/**
+		 * The index within the block just past the last deal to solve.
+		 */
+		private int to;
+
+		/**
+		 * Creates a new <code>Solve</code> instance.
+		 * @param blockStart the number of the block's first deal.
+		 * @param start the index of the first deal to solve.
+		 * @param end the index just past the last deal to solve.
+		 */
+		Solve(long blockStart, int start, int end) {
+			firstDeal = blockStart;
+			from = start;
+			to = end;
+		}
+
+		/**
+		 * Solves the deals, or splits them in two if there are many.
+		 */
+		@Override
+		protected void compute() {
+			if (to - from > BATCH) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Solve(firstDeal, from, middle),
+					new Solve(firstDeal, middle, to));
+				return;
+			}
+			Player player = players.get();
+			for (int i = from; i < to; i++) {
+				player.board.setSeed(SimulationEngine.gameSeed(seed, firstDeal + i));
+				player.board.newGame();
+				SolitaireSolver.Solution solution = player.solver.solve(player.board);
+				won[i] = solution.isWinnable();
+				moves[i] = (byte) solution.moves().size();
+				states[i] = solution.statesExplored();
+			}
+		}
+	}
+}
@@ -0,0 +1,55 @@
+/**
+ * A <code>BlackJackStrategy</code> that hits until the hand is worth
+ * a fixed amount, whatever the dealer shows.
+ */
+public class StandThresholdStrategy implements BlackJackStrategy {
+
+	/**
+	 * The player stays once the hand is worth at least this much.
+	 */
+	private int threshold;
+
+	/**
+	 * Creates a new <code>StandThresholdStrategy</code> instance.
+	 * @param standAt the hand value at which the player stays.
+	 */
+	public StandThresholdStrategy(int standAt) {
+		threshold = standAt;
+	}
+
+	/**
+	 * Hits while the hand is worth less than the threshold;
+	 * never doubles, splits or surrenders.
+	 * @param hand the hand being played.
+	 * @param dealerUpCard the point value of the dealer's face-up card.
+	 * @param canDouble true if the hand can be doubled.
+	 * @param canSplit true if the hand can be split.
+	 * @param canSurrender true if the player can surrender.
+	 * @return <code>HIT</code> or <code>STAND</code>.
+	 */
+	@Override
+	public int play(BlackJackHand hand, int dealerUpCard, boolean canDouble,
+			boolean canSplit, boolean canSurrender) {
+		return hand.value() < threshold ? HIT : STAND;
+	}
+
+	/**
+	 * Never takes insurance.
+	 * @param hand the player's hand as dealt.
+	 * @param counter the count of the shoe, or null.
+	 * @return false.
+	 */
+	@Override
+	public boolean takesInsurance(BlackJackHand hand, CardCounter counter) {
+		return false;
+	}
+
+	/**
+	 * Generates and returns a string representation of this strategy.
+	 * @return the name of this strategy.
+	 */
+	@Override
+	public String toString() {
+		return "stand at " + threshold;
+	}
+}
@@ -1,10 +1,9 @@
-import java.util.List;
-import java.util.ArrayList;
-
 /**
  * The ThirteensBoard class represents the board in a game of Thirteens.
+ * The game is played by <code>RuleBoard</code> from the rules
+ * in <code>RULES</code>.
  */
-public class ThirteensBoard extends Board {
+public class ThirteensBoard extends RuleBoard {
 
 	/**
 	 * The size (number of cards) on the board.
@@ -30,140 +29,31 @@ public class ThirteensBoard extends Board {
 		{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 0};
 
 	/**
-	 * Flag used to control debugging print statements.
-	 */
-	private static final boolean I_AM_DEBUGGING = false;
-
-
-	/**
-	 * Creates a new <code>ThirteensBoard</code> instance.
+	 * The index of the king in RANKS.
 	 */
-	 public ThirteensBoard() {
-	 	super(BOARD_SIZE, RANKS, SUITS, POINT_VALUES);
-	 }
+	static final int KING = 12;
 
 	/**
-	 * Determines if the selected cards form a valid group for removal.
-	 * In Thirteens, the legal groups are (1) a pair of non-face cards
+	 * The removals allowed in Thirteens: (1) a pair of non-face cards
 	 * whose values add to 13, and (2) a king.
-	 * @param selectedCards the list of the indices of the selected cards.
-	 * @return true if the selected cards form a valid group for removal;
-	 *         false otherwise.
 	 */
-	@Override
-	public boolean isLegal(List<Integer> selectedCards) {
-		if (selectedCards.size() == 1) {
-			return findKing(selectedCards).size() > 0;
-		} else if (selectedCards.size() == 2) {
-			return findPairSum13(selectedCards).size() > 0;
-		} else {
-			return false;
-		}
-	}
+	static final BoardRules RULES =
+		new BoardRules().withPairSum(13).withRankGroup(KING);
 
-	/**
-	 * Determine if there are any legal plays left on the board.
-	 * In Thirteens, there is a legal play if the board contains
-	 * (1) a pair of non-face cards whose values add to 13, or (2) a king.
-	 * @return true if there is a legal play left on the board;
-	 *         false otherwise.
-	 */
-	@Override
-	public boolean anotherPlayIsPossible() {
-		List<Integer> cIndexes = cardIndexes();
-		return findPairSum13(cIndexes).size() > 0
-			 || findKing(cIndexes).size() > 0;
-	}
 
 	/**
-	 * Look for an 13-pair in the selected cards.
-	 * @param selectedCards selects a subset of this board.  It is list
-	 *                      of indexes into this board that are searched
-	 *                      to find an 13-pair.
-	 * @return a list of the indexes of an 13-pair, if an 13-pair was found;
-	 *         an empty list, if an 13-pair was not found.
-	 */
-	private List<Integer> findPairSum13(List<Integer> selectedCards) {
-		List<Integer> foundIndexes = new ArrayList<Integer>();
-		for (int sk1 = 0; sk1 < selectedCards.size(); sk1++) {
-			int k1 = selectedCards.get(sk1).intValue();
-			for (int sk2 = sk1 + 1; sk2 < selectedCards.size(); sk2++) {
-				int k2 = selectedCards.get(sk2).intValue();
-				if (cardAt(k1).pointValue() + cardAt(k2).pointValue() == 13) {
-					foundIndexes.add(new Integer(k1));
-					foundIndexes.add(new Integer(k2));
-					return foundIndexes;
-				}
-			}
-		}
-		return foundIndexes;
-	}
-
-	/**
-	 * Look for a king in the selected cards.
-	 * @param selectedCards selects a subset of this board.  It is list
-	 *                      of indexes into this board that are searched
-	 *                      to find a king.
-	 * @return a list of the index of a king, if a king was found;
-	 *         an empty list, if a king was not found.
-	 */
-	private List<Integer> findKing(List<Integer> selectedCards) {
-		List<Integer> foundIndexes = new ArrayList<Integer>();
-		for (Integer kObj : selectedCards) {
-			int k = kObj.intValue();
-			if (cardAt(k).rank().equals("king")) {
-				foundIndexes.add(new Integer(k));
-				return foundIndexes;
-			}
-		}
-		return foundIndexes;
-	}
-
-	/**
-	 * Looks for a legal play on the board.  If one is found, it plays it.
-	 * @return true if a legal play was found (and made); false othewise.
-	 */
-	public boolean playIfPossible() {
-		return playPairSum13IfPossible() || playKingIfPossible();
-	}
-
-	/**
-	 * Looks for a pair of non-face cards whose values sum to 13.
-	 * If found, replace them with the next two cards in the deck.
-	 * The simulation of this game uses this method.
-	 * @return true if an 13-pair play was found (and made); false othewise.
+	 * Creates a new <code>ThirteensBoard</code> instance.
 	 */
-	private boolean playPairSum13IfPossible() {
-		List<Integer> foundIndexes = cardIndexes();
-		List<Integer> cardsToReplace = findPairSum13(foundIndexes);
-		if (cardsToReplace.size() > 0) {
-			replaceSelectedCards(cardsToReplace);
-			if (I_AM_DEBUGGING) {
-				System.out.println("13-Pair removed.\n");
-			}
-			return true;
-		} else {
-			return false;
-		}
-	}
+	 public ThirteensBoard() {
+	 	super(BOARD_SIZE, RANKS, SUITS, POINT_VALUES, RULES);
+	 }
 
 	/**
-	 * Looks for a King.
-	 * If found, replace it with the next card in the deck.
-	 * The simulation of this game uses this method.
-	 * @return true if a king play was found (and made); false othewise.
+	 * Creates a new <code>ThirteensBoard</code> instance whose deals are
+	 * reproducible from the given seed.
+	 * @param seed the seed for the deck's random number generator
 	 */
-	private boolean playKingIfPossible() {
-		List<Integer> foundIndexes = cardIndexes();
-		List<Integer> cardsToReplace = findKing(foundIndexes);
-		if (cardsToReplace.size() > 0) {
-			replaceSelectedCards(cardsToReplace);
-			if (I_AM_DEBUGGING) {
-				System.out.println("King removed.\n");
-			}
-			return true;
-		} else {
-			return false;
-		}
-	}
+	 public ThirteensBoard(long seed) {
+	 	super(BOARD_SIZE, RANKS, SUITS, POINT_VALUES, RULES, seed);
+	 }
 }
@@ -0,0 +1,111 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * XoroshiroRandom is a small, fast, seedable <code>RandomSource</code>
+ * implementing the xoroshiro128++ generator.  It is not thread-safe;
+ * every deck (and so every simulation thread) gets its own instance.
+ */
+public class XoroshiroRandom implements RandomSource {
+
+	/**
+	 * The golden-ratio increment used by the SplitMix64 seeding sequence.
+	 */
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * Source of distinct seeds for generators created without one.
+	 */
+	private static final AtomicLong SEED_UNIQUIFIER =
+		new AtomicLong(System.nanoTime());
+
+	/**
+	 * The first half of the generator state.
+	 */
+	private long s0;
+
+	/**
+	 * The second half of the generator state.
+	 */
+	private long s1;
+
+
+	/**
+	 * Creates a new <code>XoroshiroRandom</code> instance with a seed
+	 * that is very likely to differ from that of any other instance.
+	 */
+	public XoroshiroRandom() {
+		this(mix(SEED_UNIQUIFIER.addAndGet(GOLDEN_GAMMA) ^ System.nanoTime()));
+	}
+
+	/**
+	 * Creates a new <code>XoroshiroRandom</code> instance.
+	 * @param seed the initial seed.
+	 */
+	public XoroshiroRandom(long seed) {
+		setSeed(seed);
+	}
+
+	/**
+	 * Restarts this generator from the given seed.  The two state words are
+	 * the first two outputs of a SplitMix64 sequence started at seed, so
+	 * nearby seeds still give unrelated sequences.
+	 * @param seed the new seed.
+	 */
+	@Override
+	public void setSeed(long seed) {
+		s0 = mix(seed + GOLDEN_GAMMA);
+		s1 = mix(seed + 2 * GOLDEN_GAMMA);
+		if ((s0 | s1) == 0) {
+			s1 = GOLDEN_GAMMA;
+		}
+	}
+
+	/**
+	 * Returns the next 64 random bits.
+	 * @return a random long.
+	 */
+	public long nextLong() {
+		long a = s0;
+		long b = s1;
+		long result = Long.rotateLeft(a + b, 17) + a;
+		b ^= a;
+		s0 = Long.rotateLeft(a, 49) ^ b ^ (b << 21);
+		s1 = Long.rotateLeft(b, 28);
+		return result;
+	}
+
+	/**
+	 * Returns a uniformly distributed random number, using Lemire's
+	 * multiply-and-shift method to avoid a division in the common case.
+	 * @param bound the upper bound (exclusive); must be positive.
+	 * @return a random number between 0 (inclusive) and bound (exclusive).
+	 */
+	@Override
+	public int nextInt(int bound) {
+		if (bound <= 0) {
+			throw new IllegalArgumentException("bound must be positive: " + bound);
+		}
+		long m = (nextLong() >>> 32) * bound;
+		long low = m & 0xFFFFFFFFL;
+		if (low < bound) {
+			long threshold = (0x100000000L - bound) % bound;
+			while (low < threshold) {
+				m = (nextLong() >>> 32) * bound;
+				low = m & 0xFFFFFFFFL;
+			}
+		}
+		return (int) (m >>> 32);
+	}
+
+	/**
+	 * Scrambles a 64-bit value with the SplitMix64 finalizer.
+	 * Useful for turning a run seed and a game number into a game seed.
+	 * @param z the value to scramble.
+	 * @return the scrambled value.
+	 */
+	public static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
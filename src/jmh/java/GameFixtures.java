@@ -0,0 +1,141 @@
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The GameFixtures class holds the decks and boards the JMH benchmarks run
+ * on (see <code>benchmarks.GameBenchmarks</code>).  Every deck and board
+ * is seeded, so each fork measures the same deals.
+ */
+public class GameFixtures implements benchmarks.GameFixture {
+
+	/**
+	 * The ranks of the cards in the benchmarked decks.
+	 */
+	private static final String[] RANKS =
+		{"ace", "2", "3", "4", "5", "6", "7", "8", "9", "10", "jack", "queen", "king"};
+
+	/**
+	 * The suits of the cards in the benchmarked decks.
+	 */
+	private static final String[] SUITS =
+		{"spades", "hearts", "diamonds", "clubs"};
+
+	/**
+	 * The point values of the cards in the benchmarked decks.
+	 */
+	private static final int[] POINT_VALUES =
+		{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 10, 10, 10};
+
+	/**
+	 * The deck shuffled, dealt and described.
+	 */
+	private Deck deck = new Deck(RANKS, SUITS, POINT_VALUES, 1L);
+
+	/**
+	 * The Elevens board played out.
+	 */
+	private Board elevens = new ElevensBoard(1L);
+
+	/**
+	 * The Thirteens board played out.
+	 */
+	private Board thirteens = new ThirteensBoard(2L);
+
+	/**
+	 * The Pairs board played out.
+	 */
+	private Board pairs = new PairsBoard(3L);
+
+	/**
+	 * The blackjack board whose hand is scored.
+	 */
+	private BlackJackBoard blackJack = new BlackJackBoard(7, 4L);
+
+	/**
+	 * Builds a new standard deck.
+	 * @return the size of the deck.
+	 */
+	@Override
+	public int newDeck() {
+		return new Deck(RANKS, SUITS, POINT_VALUES, 1L).size();
+	}
+
+	/**
+	 * Shuffles the deck.
+	 * @return the code of the card on top of the deck.
+	 */
+	@Override
+	public int shuffleDeck() {
+		deck.shuffle();
+		return deck.peekCode(0);
+	}
+
+	/**
+	 * Reseeds the deck and deals out all 52 cards.
+	 * @param bh consumes the code of every card dealt.
+	 */
+	@Override
+	public void dealDeck(Blackhole bh) {
+		deck.setSeed(1L);
+		while (!deck.isEmpty()) {
+			bh.consume(deck.dealCode());
+		}
+	}
+
+	/**
+	 * Describes the deck as text.
+	 * @return the description.
+	 */
+	@Override
+	public String deckText() {
+		return deck.toString();
+	}
+
+	/**
+	 * Deals a new game of Elevens and plays it out.
+	 * @return true if the game was won; false otherwise.
+	 */
+	@Override
+	public boolean playElevens() {
+		return playOut(elevens);
+	}
+
+	/**
+	 * Deals a new game of Thirteens and plays it out.
+	 * @return true if the game was won; false otherwise.
+	 */
+	@Override
+	public boolean playThirteens() {
+		return playOut(thirteens);
+	}
+
+	/**
+	 * Deals a new game of Pairs and plays it out.
+	 * @return true if the game was won; false otherwise.
+	 */
+	@Override
+	public boolean playPairs() {
+		return playOut(pairs);
+	}
+
+	/**
+	 * Scores the player's blackjack hand.
+	 * @return the best value of the hand.
+	 */
+	@Override
+	public int handSum() {
+		return blackJack.getMyHandSum();
+	}
+
+	/**
+	 * Deals a new game on a board and plays it out.
+	 * @param board the board to play on.
+	 * @return true if the game was won; false otherwise.
+	 */
+	private static boolean playOut(Board board) {
+		board.newGame();
+		while (board.playIfPossible()) {
+			// keep playing
+		}
+		return board.gameIsWon();
+	}
+}
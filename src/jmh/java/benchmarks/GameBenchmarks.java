@@ -0,0 +1,140 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The JMH benchmarks of the game hot paths: building, shuffling, dealing
+ * and printing a <code>Deck</code>, playing out whole games on the
+ * solitaire boards, and scoring a blackjack hand.  Each reports its
+ * throughput in operations per second; run with <code>-prof gc</code>
+ * (as <code>gradle jmh</code> does), JMH also reports the bytes allocated
+ * per operation as <code>gc.alloc.rate.norm</code>.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmarks {
+
+	/**
+	 * The decks and boards of one benchmark thread.
+	 */
+	@State(Scope.Thread)
+	public static class Games {
+
+		/**
+		 * The default-package class holding the decks and boards.
+		 */
+		private static final String FIXTURE_CLASS = "GameFixtures";
+
+		/**
+		 * The decks and boards.
+		 */
+		private GameFixture fixture;
+
+		/**
+		 * Creates the decks and boards, once for each fork.
+		 * @throws ReflectiveOperationException if the fixture class
+		 *         cannot be loaded or created.
+		 */
+		@Setup(Level.Trial)
+		public void setUp() throws ReflectiveOperationException {
+			fixture = (GameFixture) Class.forName(FIXTURE_CLASS)
+				.getDeclaredConstructor().newInstance();
+		}
+	}
+
+	/**
+	 * Measures building a standard deck.
+	 * @param games the fixture.
+	 * @param bh consumes the result.
+	 */
+	@Benchmark
+	public void deckInit(Games games, Blackhole bh) {
+		bh.consume(games.fixture.newDeck());
+	}
+
+	/**
+	 * Measures shuffling a deck.
+	 * @param games the fixture.
+	 * @param bh consumes the result.
+	 */
+	@Benchmark
+	public void deckShuffle(Games games, Blackhole bh) {
+		bh.consume(games.fixture.shuffleDeck());
+	}
+
+	/**
+	 * Measures dealing out a whole deck, one card at a time.
+	 * @param games the fixture.
+	 * @param bh consumes every card dealt.
+	 */
+	@Benchmark
+	public void deckDeal(Games games, Blackhole bh) {
+		games.fixture.dealDeck(bh);
+	}
+
+	/**
+	 * Measures describing a deck as text.
+	 * @param games the fixture.
+	 * @param bh consumes the result.
+	 */
+	@Benchmark
+	public void deckToString(Games games, Blackhole bh) {
+		bh.consume(games.fixture.deckText());
+	}
+
+	/**
+	 * Measures dealing and playing out a game of Elevens.
+	 * @param games the fixture.
+	 * @param bh consumes the result.
+	 */
+	@Benchmark
+	public void elevensPlayout(Games games, Blackhole bh) {
+		bh.consume(games.fixture.playElevens());
+	}
+
+	/**
+	 * Measures dealing and playing out a game of Thirteens.
+	 * @param games the fixture.
+	 * @param bh consumes the result.
+	 */
+	@Benchmark
+	public void thirteensPlayout(Games games, Blackhole bh) {
+		bh.consume(games.fixture.playThirteens());
+	}
+
+	/**
+	 * Measures dealing and playing out a game of Pairs.
+	 * @param games the fixture.
+	 * @param bh consumes the result.
+	 */
+	@Benchmark
+	public void pairsPlayout(Games games, Blackhole bh) {
+		bh.consume(games.fixture.playPairs());
+	}
+
+	/**
+	 * Measures scoring a blackjack hand.
+	 * @param games the fixture.
+	 * @param bh consumes the result.
+	 */
+	@Benchmark
+	public void blackJackHandSum(Games games, Blackhole bh) {
+		bh.consume(games.fixture.handSum());
+	}
+}
@@ -0,0 +1,62 @@
+package benchmarks;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The decks and boards the benchmarks run on, and the operations measured
+ * on them.  The game classes are all in the default package, which a class
+ * in a named package cannot use, and JMH only accepts benchmarks in a named
+ * package; so the benchmarks reach the games through this interface, which
+ * the default-package class <code>GameFixtures</code> implements.  It is
+ * the only implementation loaded, so its calls are inlined.
+ */
+public interface GameFixture {
+
+	/**
+	 * Builds a new standard deck.
+	 * @return the size of the deck.
+	 */
+	int newDeck();
+
+	/**
+	 * Shuffles the fixture's deck.
+	 * @return the code of the card on top of the deck.
+	 */
+	int shuffleDeck();
+
+	/**
+	 * Reseeds the fixture's deck and deals out all 52 cards.
+	 * @param bh consumes the code of every card dealt.
+	 */
+	void dealDeck(Blackhole bh);
+
+	/**
+	 * Describes the fixture's deck as text.
+	 * @return the description.
+	 */
+	String deckText();
+
+	/**
+	 * Deals a new game of Elevens and plays it out.
+	 * @return true if the game was won; false otherwise.
+	 */
+	boolean playElevens();
+
+	/**
+	 * Deals a new game of Thirteens and plays it out.
+	 * @return true if the game was won; false otherwise.
+	 */
+	boolean playThirteens();
+
+	/**
+	 * Deals a new game of Pairs and plays it out.
+	 * @return true if the game was won; false otherwise.
+	 */
+	boolean playPairs();
+
+	/**
+	 * Scores the player's blackjack hand.
+	 * @return the best value of the hand.
+	 */
+	int handSum();
+}